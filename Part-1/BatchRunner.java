@@ -0,0 +1,366 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Runs many races with the same rules as Race, without the
+ * sleeping and printing, and writes out how they went:
+ * wins and falls per horse, races with no winner, and how
+ * many steps the races took.
+ *
+ * Races are run in batches, each with its own random numbers
+ * split off the seed in batch order, so the same seed gives
+ * the same results whatever the thread count.
+ *
+ * Usage: java Main --batch [options], or java BatchRunner [options]
+ *   --horse NAME:CONFIDENCE  add a horse (repeat for each; default is Race's field)
+ *   --length N               race length (default 20)
+ *   --races N                number of races (default 1000000)
+ *   --threads N              worker threads (default one per core)
+ *   --seed N                 random seed (default from the clock)
+ *   --out FILE               write the summary to FILE instead of stdout
+ *
+ * @author McRaceface
+ * @version 1.0
+ */
+public class BatchRunner
+{
+    private static final int BATCH_RACES = 4096;
+    // Races over this many times the race length in steps share the last histogram bucket
+    private static final int LONGEST_COUNTED = 64;
+
+    private final String[] names;
+    private final double[] confidence;
+    private final double[] moveChance;
+    private final double[] fallChance;
+    private final int raceLength;
+    private final int maxSteps;
+
+    /**
+     * @param horses the field, in lane order
+     * @param raceLength the length of the racetrack
+     */
+    public BatchRunner(List<Horse> horses, int raceLength)
+    {
+        if (horses.isEmpty()) {
+            throw new IllegalArgumentException("A race needs at least one horse");
+        }
+        if (raceLength < 1) {
+            throw new IllegalArgumentException("Race length must be at least 1");
+        }
+        this.raceLength = raceLength;
+        this.maxSteps = raceLength * LONGEST_COUNTED;
+        names = new String[horses.size()];
+        confidence = new double[horses.size()];
+        moveChance = new double[horses.size()];
+        fallChance = new double[horses.size()];
+        for (int lane = 0; lane < horses.size(); lane++) {
+            names[lane] = horses.get(lane).getName().trim();
+            confidence[lane] = horses.get(lane).getConfidence();
+            moveChance[lane] = Race.moveChance(horses.get(lane).getConfidence());
+            fallChance[lane] = Race.fallChance(horses.get(lane).getConfidence());
+        }
+    }
+
+    /**
+     * Runs the races on the given number of threads
+     *
+     * @return the totals over every race
+     */
+    public Tally run(long races, int threads, long seed)
+    {
+        SplittableRandom root = new SplittableRandom(seed);
+        long batches = (races + BATCH_RACES - 1) / BATCH_RACES;
+        long[] nextBatch = new long[1];
+
+        Tally[] tallies = new Tally[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            Tally tally = new Tally(names, confidence, maxSteps);
+            tallies[t] = tally;
+            workers[t] = new Thread(() -> {
+                int[] distance = new int[names.length];
+                boolean[] fallen = new boolean[names.length];
+                while (true) {
+                    long batch;
+                    SplittableRandom random;
+                    // Claimed and split together, so batch n always gets the nth stream
+                    synchronized (root) {
+                        batch = nextBatch[0]++;
+                        if (batch >= batches) {
+                            break;
+                        }
+                        random = root.split();
+                    }
+                    long count = Math.min(BATCH_RACES, races - batch * BATCH_RACES);
+                    for (long i = 0; i < count; i++) {
+                        runRace(random, distance, fallen, tally);
+                    }
+                }
+            }, "batch-" + t);
+            workers[t].start();
+        }
+
+        Tally total = new Tally(names, confidence, maxSteps);
+        for (int t = 0; t < threads; t++) {
+            try {
+                workers[t].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the races", e);
+            }
+            total.add(tallies[t]);
+        }
+        return total;
+    }
+
+    /**
+     * One race, step for step as Race.startRace runs it:
+     * every horse still up may move and then may fall, and the
+     * first horse in lane order to reach the end wins
+     */
+    private void runRace(SplittableRandom random, int[] distance, boolean[] fallen, Tally tally)
+    {
+        int lanes = distance.length;
+        for (int lane = 0; lane < lanes; lane++) {
+            distance[lane] = 0;
+            fallen[lane] = false;
+        }
+        int standing = lanes;
+        int steps = 0;
+        while (true) {
+            steps++;
+            for (int lane = 0; lane < lanes; lane++) {
+                if (fallen[lane]) {
+                    continue;
+                }
+                if (random.nextDouble() < moveChance[lane]) {
+                    distance[lane]++;
+                }
+                if (random.nextDouble() < fallChance[lane]) {
+                    fallen[lane] = true;
+                    standing--;
+                    tally.falls[lane]++;
+                }
+            }
+            for (int lane = 0; lane < lanes; lane++) {
+                if (distance[lane] == raceLength) {
+                    tally.wins[lane]++;
+                    tally.addSteps(steps);
+                    return;
+                }
+            }
+            if (standing == 0) {
+                tally.noWinner++;
+                tally.addSteps(steps);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Totals over a number of races
+     */
+    public static class Tally
+    {
+        private final String[] names;
+        private final double[] confidence;
+        private final long[] wins;
+        private final long[] falls;
+        // Races by the number of steps they took; the last bucket is everything longer
+        private final long[] steps;
+        private long noWinner;
+        private long races;
+        private long totalSteps;
+        private int longest;
+
+        Tally(String[] names, double[] confidence, int maxSteps)
+        {
+            this.names = names;
+            this.confidence = confidence;
+            this.wins = new long[names.length];
+            this.falls = new long[names.length];
+            this.steps = new long[maxSteps + 2];
+        }
+
+        private void addSteps(int count)
+        {
+            races++;
+            totalSteps += count;
+            steps[Math.min(count, steps.length - 1)]++;
+            longest = Math.max(longest, count);
+        }
+
+        void add(Tally other)
+        {
+            for (int lane = 0; lane < wins.length; lane++) {
+                wins[lane] += other.wins[lane];
+                falls[lane] += other.falls[lane];
+            }
+            for (int i = 0; i < steps.length; i++) {
+                steps[i] += other.steps[i];
+            }
+            noWinner += other.noWinner;
+            races += other.races;
+            totalSteps += other.totalSteps;
+            longest = Math.max(longest, other.longest);
+        }
+
+        public long getRaces()
+        {
+            return races;
+        }
+
+        public long getWins(int lane)
+        {
+            return wins[lane];
+        }
+
+        public long getFalls(int lane)
+        {
+            return falls[lane];
+        }
+
+        public long getNoWinner()
+        {
+            return noWinner;
+        }
+
+        /**
+         * The fewest steps that at least the given fraction of
+         * races finished within
+         */
+        public int stepsPercentile(double fraction)
+        {
+            long needed = (long) Math.ceil(races * fraction);
+            long seen = 0;
+            for (int i = 0; i < steps.length; i++) {
+                seen += steps[i];
+                if (seen >= needed && seen > 0) {
+                    return i == steps.length - 1 ? longest : i;
+                }
+            }
+            return longest;
+        }
+
+        /**
+         * Writes the summary: a row per horse, then the number of
+         * steps races took as percentiles and a histogram
+         */
+        public void print(PrintStream out)
+        {
+            out.printf("%-16s %10s %12s %8s %12s %8s%n", "horse", "confidence", "wins", "win%", "falls", "fall%");
+            for (int lane = 0; lane < names.length; lane++) {
+                out.printf("%-16s %10.2f %12d %7.3f%% %12d %7.3f%%%n", names[lane], confidence[lane],
+                    wins[lane], percent(wins[lane]), falls[lane], percent(falls[lane]));
+            }
+            out.printf("%-16s %10s %12d %7.3f%%%n", "no winner", "", noWinner, percent(noWinner));
+            out.println();
+
+            out.printf("steps: mean %.2f, min %d, median %d, p90 %d, p99 %d, max %d%n",
+                races > 0 ? (double) totalSteps / races : 0.0, stepsPercentile(0.0),
+                stepsPercentile(0.5), stepsPercentile(0.9), stepsPercentile(0.99), longest);
+
+            // About twenty rows of histogram, whatever the race length
+            int last = Math.min(longest, steps.length - 1);
+            int width = Math.max(1, (last + 19) / 20);
+            long biggest = 1;
+            for (int from = 0; from <= last; from += width) {
+                biggest = Math.max(biggest, bucket(from, width));
+            }
+            for (int from = 0; from <= last; from += width) {
+                long count = bucket(from, width);
+                if (count == 0) {
+                    continue;
+                }
+                String label = from + width > steps.length - 1 ? from + "+" : from + "-" + (from + width - 1);
+                out.printf("%12s %12d %7.3f%% %s%n", label, count, percent(count),
+                    "#".repeat((int) (50 * count / biggest)));
+            }
+        }
+
+        private long bucket(int from, int width)
+        {
+            long count = 0;
+            for (int i = from; i < Math.min(from + width, steps.length); i++) {
+                count += steps[i];
+            }
+            return count;
+        }
+
+        private double percent(long count)
+        {
+            return races > 0 ? 100.0 * count / races : 0.0;
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        List<Horse> horses = new ArrayList<>();
+        int length = 20;
+        long races = 1_000_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        String out = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (option.equals("--batch")) {
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--horse":
+                        int colon = value.lastIndexOf(':');
+                        if (colon < 0) {
+                            throw new IllegalArgumentException("Horses are NAME:CONFIDENCE, not " + value);
+                        }
+                        horses.add(new Horse((char) ('A' + horses.size() % 26), value.substring(0, colon),
+                            Double.parseDouble(value.substring(colon + 1))));
+                        break;
+                    case "--length":
+                        length = Integer.parseInt(value);
+                        break;
+                    case "--races":
+                        races = Long.parseLong(value);
+                        break;
+                    case "--threads":
+                        threads = Math.max(1, Integer.parseInt(value));
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    case "--out":
+                        out = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+            if (horses.isEmpty()) {
+                horses = new Race(length).getHorses();
+            }
+            BatchRunner runner = new BatchRunner(horses, length);
+
+            long start = System.nanoTime();
+            Tally tally = runner.run(races, threads, seed);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            PrintStream stream = out == null ? System.out : new PrintStream(out, "UTF-8");
+            stream.printf("%d races of length %d, seed %d, %d threads: %.2f s, %.0f races/s%n%n",
+                tally.getRaces(), length, seed, threads, seconds, tally.getRaces() / seconds);
+            tally.print(stream);
+            if (stream != System.out) {
+                stream.close();
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+}
@@ -9,6 +9,12 @@ public class Main {
             // Ignore if we can't set the encoding
         }
         
+        // Headless batch of races, e.g. java Main --batch --races 1000000 --threads 8
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchRunner.main(args);
+            return;
+        }
+
         Race race = new Race(20);
         race.startRace();
     }
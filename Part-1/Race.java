@@ -1,4 +1,5 @@
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -62,6 +63,22 @@ public class Race
         horseMap.putIfAbsent(laneNumber, theHorse);
     }
     
+    /**
+     * The horses in the race, in lane order, leaving out empty lanes
+     * 
+     * @return the horses in the race
+     */
+    List<Horse> getHorses()
+    {
+        List<Horse> horses = new ArrayList<>();
+        for(Horse horse: horseMap.values()){
+            if(horse != null){
+                horses.add(horse);
+            }
+        }
+        return horses;
+    }
+
     /**
      * Start the race
      * The horse are brought to the start and
@@ -163,26 +180,42 @@ public class Race
         //so only run if it has not fallen
         if  (!theHorse.hasFallen())
         {
-            // New balanced movement logic:
-            // Higher confidence means higher chance to move
-            double moveChance = theHorse.getConfidence() * 0.9; // Increased from 0.8 to 0.9
-            
-            // Fall chance is now much lower and more balanced
-            // Base fall chance of 0.02 (2%) modified by confidence
-            double fallChance = 0.02 * (1.5 - theHorse.getConfidence());
-            
             // First check if horse moves
-            if (Math.random() < moveChance) {
+            if (Math.random() < moveChance(theHorse.getConfidence())) {
                 theHorse.moveForward();
             }
             
             // Then check if horse falls
             // The fall chance is now much lower and more realistic
-            if (Math.random() < fallChance) {
+            if (Math.random() < fallChance(theHorse.getConfidence())) {
                 theHorse.fall();
             }
         }
     }
+
+    /**
+     * The chance a horse moves forward in one step.
+     * New balanced movement logic:
+     * higher confidence means higher chance to move
+     * 
+     * @param confidence the horse's confidence
+     */
+    static double moveChance(double confidence)
+    {
+        return confidence * 0.9; // Increased from 0.8 to 0.9
+    }
+
+    /**
+     * The chance a horse falls in one step.
+     * Fall chance is now much lower and more balanced:
+     * base fall chance of 0.02 (2%) modified by confidence
+     * 
+     * @param confidence the horse's confidence
+     */
+    static double fallChance(double confidence)
+    {
+        return 0.02 * (1.5 - confidence);
+    }
         
     /** 
      * Determines if a horse has won the race
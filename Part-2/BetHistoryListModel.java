@@ -0,0 +1,47 @@
+import java.io.IOException;
+import javax.swing.AbstractListModel;
+
+/**
+ * The persistent bet history, newest first, for a JList.
+ *
+ * Bets are read from disk only for the rows the list shows. The list
+ * must have a fixed cell height, or it will read every row to size itself.
+ */
+public class BetHistoryListModel extends AbstractListModel<String> {
+    private static final long serialVersionUID = 1L;
+    private final BetHistoryStore store;
+    private int size;
+
+    public BetHistoryListModel(BetHistoryStore store) {
+        this.store = store;
+        this.size = store != null ? (int) Math.min(Integer.MAX_VALUE, store.size()) : 0;
+    }
+
+    /**
+     * Picks up bets settled since the last refresh
+     */
+    public void refresh() {
+        int old = size;
+        size = store != null ? (int) Math.min(Integer.MAX_VALUE, store.size()) : 0;
+        // Newest first, so new bets arrive at the top
+        if (size > old) {
+            fireIntervalAdded(this, 0, size - old - 1);
+        } else if (size < old) {
+            fireIntervalRemoved(this, 0, old - size - 1);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        try {
+            return store.get(size - 1 - index).toString();
+        } catch (IOException | IndexOutOfBoundsException e) {
+            return "(unavailable)";
+        }
+    }
+}
@@ -0,0 +1,315 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only on-disk history of every settled bet.
+ *
+ * Bets are stored as fixed-size records in the order they were settled,
+ * so a time range is found by binary search over the file itself. Each
+ * account and horse also gets an index file listing the numbers of its
+ * records, which is binary searched the same way. Only the account and
+ * horse name dictionaries are kept in memory, along with a bounded number
+ * of open index files.
+ *
+ * A store locks its directory while open, so a second process (or a second
+ * store in this one) cannot append to the same files.
+ */
+public class BetHistoryStore implements Closeable {
+    // timestamp, account, horse, bet type, stake, returned
+    private static final int RECORD_SIZE = 8 + 4 + 4 + 4 + 8 + 8;
+    private static final int WIN_BET = 0;
+    private static final int MAX_OPEN_INDEXES = 32;
+
+    private final Path directory;
+    private final FileChannel records;
+    private final FileLock lock;
+    private final Dictionary accounts;
+    private final Dictionary horses;
+    // Least recently used first, so the oldest is closed when too many are open
+    private final LinkedHashMap<String, FileChannel> openIndexes = new LinkedHashMap<>(16, 0.75f, true);
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private final ByteBuffer longBuffer = ByteBuffer.allocate(8);
+    private final ByteBuffer intBuffer = ByteBuffer.allocate(4);
+    private long recordCount;
+    private long lastTimestamp;
+
+    public BetHistoryStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.records = FileChannel.open(directory.resolve("bets.dat"),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.lock = lock(records, directory);
+        // Drop a half-written record left by a crash
+        this.recordCount = records.size() / RECORD_SIZE;
+        records.truncate(recordCount * RECORD_SIZE);
+        this.lastTimestamp = recordCount > 0 ? readTimestamp(recordCount - 1) : 0;
+        this.accounts = new Dictionary(directory.resolve("accounts.txt"));
+        this.horses = new Dictionary(directory.resolve("horses.txt"));
+    }
+
+    private static FileLock lock(FileChannel records, Path directory) throws IOException {
+        FileLock lock;
+        try {
+            lock = records.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            records.close();
+            throw new IOException("Bet history in " + directory + " is already open elsewhere");
+        }
+        return lock;
+    }
+
+    /**
+     * Opens the history in the directory named by the horserace.history
+     * system property, or under the user's home directory.
+     */
+    public static BetHistoryStore openDefault() throws IOException {
+        String configured = System.getProperty("horserace.history");
+        Path directory = configured != null
+            ? Paths.get(configured)
+            : Paths.get(System.getProperty("user.home"), ".horserace", "bet-history");
+        return new BetHistoryStore(directory);
+    }
+
+    /**
+     * Appends a settled bet.
+     *
+     * @param exoticType the exotic bet type, or null for a win bet
+     * @param returned stake plus winnings paid back, 0 if the bet lost
+     */
+    public synchronized void record(long timestamp, String accountId, String horseName,
+                                    ExoticBetType exoticType, double stake, double returned) throws IOException {
+        // Keep the file in time order so ranges can be binary searched
+        long time = Math.max(timestamp, lastTimestamp);
+        int account = accounts.keyFor(accountId);
+        int horse = horses.keyFor(horseName);
+
+        recordBuffer.clear();
+        recordBuffer.putLong(time)
+            .putInt(account)
+            .putInt(horse)
+            .putInt(exoticType == null ? WIN_BET : exoticType.ordinal() + 1)
+            .putDouble(stake)
+            .putDouble(returned)
+            .flip();
+        writeFully(records, recordBuffer, recordCount * RECORD_SIZE);
+
+        appendIndex(indexFor("account-", account), recordCount);
+        appendIndex(indexFor("horse-", horse), recordCount);
+        recordCount++;
+        lastTimestamp = time;
+    }
+
+    public synchronized long size() {
+        return recordCount;
+    }
+
+    /**
+     * One bet by its position in the history, 0 being the first settled
+     */
+    public synchronized BetRecord get(long recordNumber) throws IOException {
+        if (recordNumber < 0 || recordNumber >= recordCount) {
+            throw new IndexOutOfBoundsException("Bet " + recordNumber + " of " + recordCount);
+        }
+        return readRecord(recordNumber);
+    }
+
+    /**
+     * Bets settled in [from, to), oldest first, at most limit of them
+     */
+    public synchronized List<BetRecord> findByTime(long from, long to, int limit) throws IOException {
+        List<BetRecord> found = new ArrayList<>();
+        for (long n = firstRecordAtOrAfter(from); n < recordCount && found.size() < limit; n++) {
+            BetRecord record = readRecord(n);
+            if (record.getTimestamp() >= to) break;
+            found.add(record);
+        }
+        return found;
+    }
+
+    public synchronized List<BetRecord> findByAccount(String accountId, long from, long to, int limit) throws IOException {
+        Integer key = accounts.existingKey(accountId);
+        return key == null ? new ArrayList<>() : findInIndex(indexFor("account-", key), from, to, limit);
+    }
+
+    public synchronized List<BetRecord> findByHorse(String horseName, long from, long to, int limit) throws IOException {
+        Integer key = horses.existingKey(horseName);
+        return key == null ? new ArrayList<>() : findInIndex(indexFor("horse-", key), from, to, limit);
+    }
+
+    private List<BetRecord> findInIndex(FileChannel index, long from, long to, int limit) throws IOException {
+        long entries = index.size() / 4;
+        long low = 0;
+        long high = entries;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (readTimestamp(readIndex(index, mid)) < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        List<BetRecord> found = new ArrayList<>();
+        for (long i = low; i < entries && found.size() < limit; i++) {
+            BetRecord record = readRecord(readIndex(index, i));
+            if (record.getTimestamp() >= to) break;
+            found.add(record);
+        }
+        return found;
+    }
+
+    private long firstRecordAtOrAfter(long from) throws IOException {
+        long low = 0;
+        long high = recordCount;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (readTimestamp(mid) < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long readTimestamp(long recordNumber) throws IOException {
+        longBuffer.clear();
+        readFully(records, longBuffer, recordNumber * RECORD_SIZE);
+        return longBuffer.getLong(0);
+    }
+
+    private BetRecord readRecord(long recordNumber) throws IOException {
+        recordBuffer.clear();
+        readFully(records, recordBuffer, recordNumber * RECORD_SIZE);
+        recordBuffer.flip();
+        long timestamp = recordBuffer.getLong();
+        String account = accounts.nameOf(recordBuffer.getInt());
+        String horse = horses.nameOf(recordBuffer.getInt());
+        int type = recordBuffer.getInt();
+        String betType = type == WIN_BET ? "Win" : ExoticBetType.values()[type - 1].getLabel();
+        return new BetRecord(timestamp, account, horse, betType, recordBuffer.getDouble(), recordBuffer.getDouble());
+    }
+
+    private long readIndex(FileChannel index, long entry) throws IOException {
+        intBuffer.clear();
+        readFully(index, intBuffer, entry * 4);
+        return intBuffer.getInt(0) & 0xFFFFFFFFL;
+    }
+
+    private void appendIndex(FileChannel index, long recordNumber) throws IOException {
+        intBuffer.clear();
+        intBuffer.putInt((int) recordNumber).flip();
+        writeFully(index, intBuffer, index.size());
+    }
+
+    private FileChannel indexFor(String prefix, int key) throws IOException {
+        String name = prefix + key + ".idx";
+        FileChannel index = openIndexes.get(name);
+        if (index == null) {
+            if (openIndexes.size() >= MAX_OPEN_INDEXES) {
+                Iterator<FileChannel> oldest = openIndexes.values().iterator();
+                FileChannel evicted = oldest.next();
+                oldest.remove();
+                evicted.close();
+            }
+            index = FileChannel.open(directory.resolve(name),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            openIndexes.put(name, index);
+        }
+        return index;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Bet history is truncated");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (FileChannel index : openIndexes.values()) index.close();
+        openIndexes.clear();
+        accounts.close();
+        horses.close();
+        lock.release();
+        records.close();
+    }
+
+    /**
+     * Maps names to small integer keys, persisted one name per line
+     */
+    private static class Dictionary implements Closeable {
+        private final Map<String, Integer> keys = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final Writer writer;
+
+        Dictionary(Path file) throws IOException {
+            if (Files.exists(file)) {
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        keys.put(line, names.size());
+                        names.add(line);
+                    }
+                }
+            }
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        int keyFor(String name) throws IOException {
+            String clean = name == null ? "" : name.replace('\n', ' ').replace('\r', ' ');
+            Integer key = keys.get(clean);
+            if (key == null) {
+                key = names.size();
+                keys.put(clean, key);
+                names.add(clean);
+                writer.write(clean);
+                writer.write('\n');
+                writer.flush();
+            }
+            return key;
+        }
+
+        Integer existingKey(String name) {
+            return name == null ? null : keys.get(name.replace('\n', ' ').replace('\r', ' '));
+        }
+
+        String nameOf(int key) {
+            return key >= 0 && key < names.size() ? names.get(key) : "?";
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
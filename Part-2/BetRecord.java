@@ -0,0 +1,62 @@
+/**
+ * One settled bet read back from the BetHistoryStore.
+ */
+public class BetRecord {
+    private final long timestamp;
+    private final String accountId;
+    private final String horseName;
+    private final String betType;
+    private final double stake;
+    private final double returned;
+
+    public BetRecord(long timestamp, String accountId, String horseName, String betType,
+                     double stake, double returned) {
+        this.timestamp = timestamp;
+        this.accountId = accountId;
+        this.horseName = horseName;
+        this.betType = betType;
+        this.stake = stake;
+        this.returned = returned;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getHorseName() {
+        return horseName;
+    }
+
+    /**
+     * "Win" or the exotic bet's label
+     */
+    public String getBetType() {
+        return betType;
+    }
+
+    public double getStake() {
+        return stake;
+    }
+
+    /**
+     * Stake plus winnings paid back, the stake alone for a refund
+     * and 0 for a losing bet
+     */
+    public double getReturned() {
+        return returned;
+    }
+
+    public boolean isWon() {
+        return returned > stake;
+    }
+
+    @Override
+    public String toString() {
+        String outcome = isWon() ? String.format("Won $%.2f", returned) : returned > 0 ? "Refunded" : "Lost";
+        return String.format("%s %s on %s: $%.2f - %s", accountId, betType, horseName.trim(), stake, outcome);
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * One win bet in a batch submitted to BettingSystem.placeBets.
+ */
+public class BetRequest {
+    private final String accountId;
+    private final HorseGUI horse;
+    private final double amount;
+
+    public BetRequest(String accountId, HorseGUI horse, double amount) {
+        this.accountId = accountId;
+        this.horse = horse;
+        this.amount = amount;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public HorseGUI getHorse() {
+        return horse;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * What happened to one bet in a batch.
+ */
+public class BetResult {
+    public enum Status {
+        ACCEPTED,
+        REPRICED,
+        INVALID,
+        UNKNOWN_ACCOUNT,
+        INSUFFICIENT_FUNDS,
+        LIMIT_EXCEEDED,
+        RACE_RUNNING,
+        // The bet itself was fine but another bet in the batch failed
+        BATCH_REJECTED
+    }
+
+    private final Status status;
+    private final double odds;
+
+    public BetResult(Status status, double odds) {
+        this.status = status;
+        this.odds = odds;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isAccepted() {
+        return status == Status.ACCEPTED || status == Status.REPRICED;
+    }
+
+    /**
+     * The odds the bet was taken at, or 0 if it was not taken
+     */
+    public double getOdds() {
+        return odds;
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * A bettor's balance and the win bets they have open on the current race.
+ * Guarded by its own monitor, so accounts can be read and credited without
+ * locking the rest of the betting system.
+ */
+public class BettingAccount {
+    private final String id;
+    private double balance;
+    private IntDoubleMap stakes; // By horse id
+    private IntDoubleMap winnings; // At the odds each bet was placed at
+
+    public BettingAccount(String id, double balance) {
+        this.id = id;
+        this.balance = balance;
+        this.stakes = new IntDoubleMap();
+        this.winnings = new IntDoubleMap();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized double getBalance() {
+        return balance;
+    }
+
+    synchronized void debit(double amount) {
+        balance -= amount;
+    }
+
+    synchronized void credit(double amount) {
+        balance += amount;
+    }
+
+    synchronized void addBet(HorseGUI horse, double stake, double odds) {
+        stakes.add(horse.getId(), stake);
+        winnings.add(horse.getId(), stake * odds);
+    }
+
+    public synchronized double getStake(HorseGUI horse) {
+        return stakes.get(horse.getId(), 0.0);
+    }
+
+    public synchronized double getWinnings(HorseGUI horse) {
+        return winnings.get(horse.getId(), 0.0);
+    }
+
+    public synchronized double getTotalStaked() {
+        return stakes.sum();
+    }
+
+    /**
+     * Stakes by horse id
+     */
+    public synchronized IntDoubleMap getStakes() {
+        return new IntDoubleMap(stakes);
+    }
+
+    synchronized void clearBets() {
+        stakes.clear();
+        winnings.clear();
+    }
+}
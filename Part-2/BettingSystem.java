@@ -1,30 +1,87 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BettingSystem {
-    private Map<HorseGUI, Double> odds;
-    private Map<HorseGUI, Double> bets;
+    public static final String PLAYER_ACCOUNT = "player";
+    private static final double MIN_BET = 2.0; // Standard minimum bet of $2
+    private static final double HOUSE_EDGE = 0.15; // 15% house edge
+    private static final double MIN_IN_RUNNING_ODDS = 0.05;
+    private static final double MAX_IN_RUNNING_ODDS = 999.0;
+
+    // Keyed by horse id, so nothing here holds on to a horse. Odds are
+    // replaced whole, never changed in place, as the engine and the EDT
+    // both read them.
+    private volatile IntDoubleMap odds;
+    // Debits and the running totals below are guarded by ledgerLock. It is
+    // only held for the arithmetic: bets are priced and checked against the
+    // risk book before taking it.
+    private final Object ledgerLock = new Object();
+    private IntDoubleMap bets; // All accounts' stakes per horse
+    private IntDoubleMap payouts; // All accounts' winnings per horse at the odds each bet was placed at
+    private IntObjectMap<String> betHorseNames; // Names of horses with bets, for the history
+    private final Map<String, BettingAccount> accounts;
+    private BettingAccount player;
+    private List<ExoticBet> exoticBets;
+    private ExoticBetPricer exoticPricer;
+    private HouseRiskBook riskBook;
     private double totalBets;
-    private double houseBalance;
-    private double playerBalance;
+    private volatile double houseBalance;
     private Statistics statistics;
     private Race race;
+    private InRunningOdds inRunningOdds;
+    private OddsPublisher oddsPublisher;
+    private int[] laneDistances;
+    private boolean[] laneFallen;
 
     public BettingSystem(Statistics statistics, Race race) {
-        this.odds = new HashMap<>();
-        this.bets = new HashMap<>();
+        this.odds = new IntDoubleMap();
+        this.bets = new IntDoubleMap();
+        this.payouts = new IntDoubleMap();
+        this.betHorseNames = new IntObjectMap<>();
+        this.exoticBets = new ArrayList<>();
+        this.exoticPricer = new ExoticBetPricer();
+        // Limit the payout on any one outcome to the house's starting balance
+        this.riskBook = new HouseRiskBook(10000.0, 5000.0, 0.1);
         this.totalBets = 0;
         this.houseBalance = 10000.0; // Starting house balance
-        this.playerBalance = 1000.0; // Starting player balance
+        this.accounts = new ConcurrentHashMap<>();
+        this.player = openAccount(PLAYER_ACCOUNT, 1000.0); // Starting player balance
         this.statistics = statistics;
         this.race = race;
+        this.oddsPublisher = new OddsPublisher(250);
     }
 
     public void calculateOdds(HorseGUI[] horses, Track track) {
-        // Clear previous odds
-        odds.clear();
+        SimulatorEvents.OddsCalculation event = new SimulatorEvents.OddsCalculation();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            computeOdds(horses, track);
+        } finally {
+            SimulatorMetrics.ODDS.recordSince(start);
+        }
+        commitOddsEvent(event, "pre-race", horses.length, track);
+    }
+
+    private static void commitOddsEvent(SimulatorEvents.OddsCalculation event, String kind, int fieldSize, Track track) {
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.fieldSize = fieldSize;
+            event.trackShape = track.getShape();
+            event.weather = track.getWeatherCondition();
+            event.commit();
+        }
+    }
+
+    private void computeOdds(HorseGUI[] horses, Track track) {
+        IntDoubleMap odds = new IntDoubleMap(horses.length);
         
         // Calculate base odds for each horse
         for (HorseGUI horse : horses) {
@@ -52,11 +109,12 @@ public class BettingSystem {
             double finalOdds = baseOdds * 1.15;
             
             // Ensure minimum odds of 1.1
-            odds.put(horse, Math.max(1.1, finalOdds));
+            odds.put(horse.getId(), Math.max(1.1, finalOdds));
         }
         
         // Normalize odds to ensure they sum to a reasonable total
-        normalizeOdds();
+        normalizeOdds(horses, odds);
+        this.odds = odds;
     }
     
     private double calculateRecentForm(HorseGUI horse) {
@@ -126,7 +184,7 @@ public class BettingSystem {
         double totalBets = getTotalBetAmount();
         if (totalBets == 0) return 1.0;
         
-        double horseBets = getBets().getOrDefault(horse, 0.0);
+        double horseBets = getTotalBetAmount(horse);
         double betRatio = horseBets / totalBets;
         
         // If more than 40% of total bets are on this horse, increase odds
@@ -137,24 +195,27 @@ public class BettingSystem {
         return 1.0;
     }
     
-    private void normalizeOdds() {
+    private void normalizeOdds(HorseGUI[] horses, IntDoubleMap odds) {
         // Ensure minimum odds spread
         double minOdds = Double.MAX_VALUE;
         double maxOdds = Double.MIN_VALUE;
         
-        for (double odd : odds.values()) {
+        for (HorseGUI horse : horses) {
+            if (horse == null) continue;
+            double odd = odds.get(horse.getId(), 0.0);
             minOdds = Math.min(minOdds, odd);
             maxOdds = Math.max(maxOdds, odd);
         }
         
         if (maxOdds - minOdds < 2.0) {
             double adjustment = (2.0 - (maxOdds - minOdds)) / 2.0;
-            for (HorseGUI horse : odds.keySet()) {
-                double currentOdd = odds.get(horse);
+            for (HorseGUI horse : horses) {
+                if (horse == null) continue;
+                double currentOdd = odds.get(horse.getId(), 0.0);
                 if (currentOdd == maxOdds) {
-                    odds.put(horse, currentOdd + adjustment);
+                    odds.put(horse.getId(), currentOdd + adjustment);
                 } else if (currentOdd == minOdds) {
-                    odds.put(horse, Math.max(1.1, currentOdd - adjustment));
+                    odds.put(horse.getId(), Math.max(1.1, currentOdd - adjustment));
                 }
             }
         }
@@ -191,7 +252,7 @@ public class BettingSystem {
         // Betting pattern analysis
         double totalBets = getTotalBetAmount();
         if (totalBets > 0) {
-            double horseBets = getBets().getOrDefault(horse, 0.0);
+            double horseBets = getTotalBetAmount(horse);
             double betPercentage = (horseBets / totalBets) * 100;
             feedback.append(String.format("\nBetting Trends:\n- %.1f%% of total bets are on this horse\n", betPercentage));
         }
@@ -214,185 +275,523 @@ public class BettingSystem {
         return feedback.toString();
     }
 
+    public BettingAccount openAccount(String id, double balance) {
+        BettingAccount account = new BettingAccount(id, balance);
+        accounts.put(id, account);
+        return account;
+    }
+
+    public BettingAccount getAccount(String id) {
+        return accounts.get(id);
+    }
+
     public boolean placeBet(HorseGUI horse, double amount) {
-        if (horse == null || amount <= 0 || amount > playerBalance) {
-            return false;
+        return placeBet(PLAYER_ACCOUNT, horse, amount);
+    }
+
+    public boolean placeBet(String accountId, HorseGUI horse, double amount) {
+        return placeBets(new BetRequest[]{new BetRequest(accountId, horse, amount)})[0].isAccepted();
+    }
+
+    /**
+     * Places a batch of win bets from one or more accounts, all or none.
+     *
+     * The race state is checked once and every bet is validated against
+     * its account's balance (including the other bets in the batch) and the
+     * house's limits before any money moves. If any bet fails, none are
+     * placed and the others come back as BATCH_REJECTED.
+     *
+     * Batches run concurrently: the house limits are taken with the risk
+     * book's compare-and-set, and only the final balance check and debits
+     * hold a lock.
+     *
+     * @return one result per request, in the same order
+     */
+    public BetResult[] placeBets(BetRequest[] requests) {
+        SimulatorEvents.BetPlacement event = new SimulatorEvents.BetPlacement();
+        event.begin();
+        BetResult[] results = placeBatch(requests);
+        if (event.shouldCommit()) {
+            double stake = 0;
+            for (BetRequest request : requests) {
+                if (request != null) stake += request.getAmount();
+            }
+            event.bets = requests.length;
+            event.accepted = results.length > 0 && results[0].isAccepted();
+            event.totalStake = stake;
+            event.fieldSize = race.getHorses().size();
+            event.commit();
         }
-        
-        // Standard minimum bet of $2
-        if (amount < 2.0) {
-            return false;
+        return results;
+    }
+
+    private BetResult[] placeBatch(BetRequest[] requests) {
+        BetResult[] results = new BetResult[requests.length];
+        if (race.isRaceRunning() && !race.isRacePaused()) {
+            Arrays.fill(results, new BetResult(BetResult.Status.RACE_RUNNING, 0.0));
+            return results;
         }
-        
-        double currentBet = bets.getOrDefault(horse, 0.0);
-        bets.put(horse, currentBet + amount);
-        totalBets += amount;
-        playerBalance -= amount;
-        return true;
+
+        List<HorseGUI> field = race.getHorses();
+
+        // Check every bet before touching any balance
+        Map<String, Double> debits = new HashMap<>();
+        boolean valid = true;
+        for (int i = 0; i < requests.length; i++) {
+            BetResult.Status status = validate(requests[i], field, debits);
+            if (status != null) {
+                results[i] = new BetResult(status, 0.0);
+                valid = false;
+            }
+        }
+        if (!valid) {
+            return rejectRest(results);
+        }
+
+        // Take the liability on, backing it all out again if any bet breaches a limit.
+        // The odds quoted right now are locked in, the board keeps moving during the race
+        HouseRiskBook.Decision[] decisions = new HouseRiskBook.Decision[requests.length];
+        for (int i = 0; i < requests.length; i++) {
+            BetRequest request = requests[i];
+            decisions[i] = riskBook.acceptWin(field.indexOf(request.getHorse()), request.getAmount(), getOdds(request.getHorse()));
+            if (!decisions[i].isAccepted()) {
+                for (int j = 0; j < i; j++) {
+                    riskBook.release(decisions[j]);
+                }
+                results[i] = new BetResult(BetResult.Status.LIMIT_EXCEEDED, 0.0);
+                return rejectRest(results);
+            }
+        }
+
+        synchronized (ledgerLock) {
+            // Another batch may have spent the same balance since it was validated
+            debits.clear();
+            for (int i = 0; i < requests.length; i++) {
+                BettingAccount account = accounts.get(requests[i].getAccountId());
+                if (debits.merge(account.getId(), requests[i].getAmount(), Double::sum) > account.getBalance()) {
+                    for (HouseRiskBook.Decision decision : decisions) {
+                        riskBook.release(decision);
+                    }
+                    results[i] = new BetResult(BetResult.Status.INSUFFICIENT_FUNDS, 0.0);
+                    return rejectRest(results);
+                }
+            }
+            for (int i = 0; i < requests.length; i++) {
+                BetRequest request = requests[i];
+                HorseGUI horse = request.getHorse();
+                double amount = request.getAmount();
+                double lockedOdds = decisions[i].getOdds();
+
+                BettingAccount account = accounts.get(request.getAccountId());
+                account.debit(amount);
+                account.addBet(horse, amount, lockedOdds);
+                bets.add(horse.getId(), amount);
+                payouts.add(horse.getId(), amount * lockedOdds);
+                betHorseNames.put(horse.getId(), horse.getName().trim());
+                totalBets += amount;
+            }
+        }
+
+        for (int i = 0; i < requests.length; i++) {
+            BetResult.Status status = decisions[i].getStatus() == HouseRiskBook.Status.REPRICED
+                ? BetResult.Status.REPRICED : BetResult.Status.ACCEPTED;
+            results[i] = new BetResult(status, decisions[i].getOdds());
+        }
+        return results;
+    }
+
+    private BetResult.Status validate(BetRequest request, List<HorseGUI> field, Map<String, Double> debits) {
+        if (request == null || request.getHorse() == null || !(request.getAmount() >= MIN_BET)) {
+            return BetResult.Status.INVALID;
+        }
+        if (!field.contains(request.getHorse())) {
+            return BetResult.Status.INVALID;
+        }
+        BettingAccount account = accounts.get(request.getAccountId());
+        if (account == null) {
+            return BetResult.Status.UNKNOWN_ACCOUNT;
+        }
+        double debit = debits.merge(account.getId(), request.getAmount(), Double::sum);
+        if (debit > account.getBalance()) {
+            return BetResult.Status.INSUFFICIENT_FUNDS;
+        }
+        return null;
+    }
+
+    private static BetResult[] rejectRest(BetResult[] results) {
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = new BetResult(BetResult.Status.BATCH_REJECTED, 0.0);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Prices an ordered finish for the current field, in X:1 format.
+     *
+     * @return the odds, or 0 if the selection is not valid for this field
+     */
+    public double getExoticOdds(ExoticBetType type, HorseGUI[] selection) {
+        int[] lanes = toLanes(type, selection);
+        if (lanes == null) return 0.0;
+        return exoticPricer.getOdds(currentField(), lanes);
+    }
+
+    /**
+     * How often the ordered finish came up in simulation; 0 if it never
+     * did, or if the selection is not valid for this field
+     */
+    public double getExoticProbability(ExoticBetType type, HorseGUI[] selection) {
+        int[] lanes = toLanes(type, selection);
+        if (lanes == null) return 0.0;
+        return exoticPricer.probability(currentField(), lanes);
+    }
+
+    public boolean placeExoticBet(ExoticBetType type, HorseGUI[] selection, double amount) {
+        return submitExoticBet(type, selection, amount).isAccepted();
+    }
+
+    /**
+     * Places an exacta, trifecta or superfecta bet at the current price.
+     * Exotic prices are for the whole race, so they can only be placed
+     * before it starts.
+     *
+     * Pricing a new field runs the whole simulation, so it happens before
+     * any lock is taken; the race state and balance are checked again
+     * when the stake is debited.
+     *
+     * @return the odds the bet was taken at, or why it was not
+     */
+    public BetResult submitExoticBet(ExoticBetType type, HorseGUI[] selection, double amount) {
+        if (race.isRaceRunning()) {
+            return new BetResult(BetResult.Status.RACE_RUNNING, 0.0);
+        }
+        int[] lanes = toLanes(type, selection);
+        if (lanes == null || !(amount >= MIN_BET)) {
+            return new BetResult(BetResult.Status.INVALID, 0.0);
+        }
+        if (amount > player.getBalance()) {
+            return new BetResult(BetResult.Status.INSUFFICIENT_FUNDS, 0.0);
+        }
+
+        double exoticOdds = exoticPricer.getOdds(currentField(), lanes);
+        HouseRiskBook.Decision decision = riskBook.acceptExotic(lanes, amount, exoticOdds);
+        if (!decision.isAccepted()) {
+            return new BetResult(BetResult.Status.LIMIT_EXCEEDED, 0.0);
+        }
+        synchronized (ledgerLock) {
+            boolean started = race.isRaceRunning();
+            if (started || amount > player.getBalance()) {
+                riskBook.release(decision);
+                return new BetResult(started ? BetResult.Status.RACE_RUNNING
+                    : BetResult.Status.INSUFFICIENT_FUNDS, 0.0);
+            }
+            exoticBets.add(new ExoticBet(type, selection, amount, decision.getOdds()));
+            totalBets += amount;
+            player.debit(amount);
+        }
+        BetResult.Status status = decision.getStatus() == HouseRiskBook.Status.REPRICED
+            ? BetResult.Status.REPRICED : BetResult.Status.ACCEPTED;
+        return new BetResult(status, decision.getOdds());
+    }
+
+    public List<ExoticBet> getExoticBets() {
+        synchronized (ledgerLock) {
+            return new ArrayList<>(exoticBets);
+        }
+    }
+
+    /**
+     * Stakes plus winnings the exotic bets would return for this finishing order
+     */
+    public double exoticReturnFor(List<HorseGUI> finishingOrder) {
+        double total = 0;
+        for (ExoticBet bet : getExoticBets()) {
+            if (bet.isWonBy(finishingOrder)) {
+                total += bet.getAmount() * (1.0 + bet.getOdds());
+            }
+        }
+        return total;
+    }
+
+    private RaceField currentField() {
+        return RaceField.of(race.getHorses(), race.getTrack(), race.getRaceLength());
+    }
+
+    private int[] toLanes(ExoticBetType type, HorseGUI[] selection) {
+        List<HorseGUI> field = race.getHorses();
+        if (selection == null || selection.length != type.getPlacings() || field.size() < type.getPlacings()) {
+            return null;
+        }
+        int[] lanes = new int[selection.length];
+        for (int i = 0; i < selection.length; i++) {
+            lanes[i] = field.indexOf(selection[i]);
+            if (lanes[i] < 0) return null;
+            for (int j = 0; j < i; j++) {
+                if (lanes[j] == lanes[i]) return null; // A horse can only finish once
+            }
+        }
+        return lanes;
     }
 
     public void processRaceResult(HorseGUI winningHorse) {
+        processRaceResult(winningHorse, winningHorse == null
+            ? Collections.<HorseGUI>emptyList() : Collections.singletonList(winningHorse));
+    }
+
+    public synchronized void processRaceResult(HorseGUI winningHorse, List<HorseGUI> finishingOrder) {
+        SimulatorEvents.Settlement event = new SimulatorEvents.Settlement();
+        event.begin();
+        double staked;
+        double paidOut;
+        synchronized (ledgerLock) {
+            staked = totalBets;
+            paidOut = settle(winningHorse, finishingOrder);
+        }
+        if (event.shouldCommit()) {
+            event.fieldSize = race.getHorses().size();
+            event.trackShape = race.getTrack().getShape();
+            event.weather = race.getTrack().getWeatherCondition();
+            event.winner = winningHorse != null ? winningHorse.getName().trim() : "";
+            event.totalStaked = staked;
+            event.paidOut = paidOut;
+            event.commit();
+        }
+    }
+
+    /**
+     * @return everything paid back to bettors, stakes included
+     */
+    private double settle(HorseGUI winningHorse, List<HorseGUI> finishingOrder) {
         if (winningHorse == null) {
             // If no winner (all horses fell), refund all bets
-            playerBalance += totalBets;
-            return;
-        }
-        
-        // Calculate odds if they haven't been calculated yet
-        if (odds == null || odds.isEmpty()) {
-            HorseGUI[] horses = race.getHorses().toArray(new HorseGUI[0]);
-            calculateOdds(horses, race.getTrack());
+            double refunded = 0;
+            for (BettingAccount account : accounts.values()) {
+                refunded += account.getTotalStaked();
+                account.credit(account.getTotalStaked());
+            }
+            for (ExoticBet bet : exoticBets) {
+                refunded += bet.getAmount();
+                player.credit(bet.getAmount());
+            }
+            recordHistory(null, finishingOrder);
+            clearBets();
+            return refunded;
         }
         
-        double winningBet = bets.getOrDefault(winningHorse, 0.0);
-        double horseOdds = odds.getOrDefault(winningHorse, 1.0);
-        double payout = winningBet * horseOdds; // Original bet + winnings
+        double payout = payouts.get(winningHorse.getId(), 0.0); // Winnings at the odds each bet was placed at
+        double exoticReturn = exoticReturnFor(finishingOrder);
         
         // Add the original bet back plus winnings
-        playerBalance += winningBet + payout;
-        houseBalance += totalBets - (winningBet + payout);
+        double paidOut = exoticReturn;
+        for (BettingAccount account : accounts.values()) {
+            double accountReturn = account.getStake(winningHorse) + account.getWinnings(winningHorse);
+            account.credit(accountReturn);
+            paidOut += accountReturn;
+        }
+        player.credit(exoticReturn);
+        houseBalance += totalBets - paidOut;
         
         // Record betting statistics
         if (statistics != null) {
             statistics.recordBettingStats(winningHorse, totalBets, payout);
         }
         
+        recordHistory(winningHorse, finishingOrder);
         // Clear bets for next race
+        clearBets();
+        return paidOut;
+    }
+
+    /**
+     * Writes every settled bet to the race's history store, if it has one
+     */
+    private void recordHistory(HorseGUI winningHorse, List<HorseGUI> finishingOrder) {
+        BetHistoryStore history = race != null ? race.getBetHistory() : null;
+        if (history == null) return;
+
+        long now = System.currentTimeMillis();
+        try {
+            for (BettingAccount account : accounts.values()) {
+                IntDoubleMap stakes = account.getStakes();
+                for (int horseId : stakes.keys()) {
+                    double stake = stakes.get(horseId, 0.0);
+                    double returned = winningHorse == null ? stake
+                        : horseId == winningHorse.getId() ? stake + account.getWinnings(winningHorse) : 0.0;
+                    history.record(now, account.getId(), betHorseNames.get(horseId), null, stake, returned);
+                }
+            }
+            for (ExoticBet bet : exoticBets) {
+                double returned = winningHorse == null ? bet.getAmount()
+                    : bet.isWonBy(finishingOrder) ? bet.getAmount() * (1 + bet.getOdds()) : 0.0;
+                history.record(now, player.getId(), bet.getSelection()[0].getName().trim(),
+                    bet.getType(), bet.getAmount(), returned);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write bet history: " + e.getMessage());
+        }
+    }
+
+    private void clearBets() {
+        for (BettingAccount account : accounts.values()) {
+            account.clearBets();
+        }
         bets.clear();
+        payouts.clear();
+        betHorseNames.clear();
+        exoticBets.clear();
+        riskBook.clear();
         totalBets = 0;
+        inRunningOdds = null;
+
+        // Back to pre-race odds for the next race
+        odds = new IntDoubleMap();
     }
 
     public double getOdds(HorseGUI horse) {
-        return odds.getOrDefault(horse, 0.0);
+        if (!odds.containsKey(horse.getId()) && race.getHorses().contains(horse)) {
+            calculateOdds(race.getHorses().toArray(new HorseGUI[0]), race.getTrack());
+        }
+        return odds.get(horse.getId(), 0.0);
+    }
+
+    /**
+     * Winnings owed on the player's bets on this horse if it wins,
+     * not including the stakes themselves
+     */
+    public double getPotentialPayout(HorseGUI horse) {
+        return player.getWinnings(horse);
+    }
+
+    public HouseRiskBook getRiskBook() {
+        return riskBook;
+    }
+
+    public double getHouseBalance() {
+        return houseBalance;
+    }
+
+    public OddsPublisher getOddsPublisher() {
+        return oddsPublisher;
     }
 
     public double getPlayerBalance() {
-        return playerBalance;
+        return player.getBalance();
+    }
+
+    public double getPlayerStake(HorseGUI horse) {
+        return player.getStake(horse);
+    }
+
+    public double getPlayerTotalStaked() {
+        return player.getTotalStaked();
     }
 
+    /**
+     * The player's stakes on horses in the current field, in lane order
+     */
     public Map<HorseGUI, Double> getBets() {
-        return new HashMap<>(bets); // Return a copy to prevent external modification
+        Map<HorseGUI, Double> stakes = new LinkedHashMap<>();
+        for (HorseGUI horse : race.getHorses()) {
+            double stake = player.getStake(horse);
+            if (stake > 0) {
+                stakes.put(horse, stake);
+            }
+        }
+        return stakes;
     }
 
     public String getBettingSummary() {
         StringBuilder summary = new StringBuilder();
         summary.append("\nBetting Summary:\n");
         summary.append("----------------\n");
-        summary.append(String.format("Your Balance: $%.2f\n", playerBalance));
-        summary.append(String.format("Total Bets Placed: $%.2f\n", totalBets));
+        summary.append(String.format("Your Balance: $%.2f\n", player.getBalance()));
+        double staked;
+        synchronized (ledgerLock) {
+            staked = totalBets;
+        }
+        summary.append(String.format("Total Bets Placed: $%.2f\n", staked));
+        summary.append(String.format("House Worst-Case Payout: $%.2f\n", riskBook.getWorstCaseLiability()));
         
         // Show current bets for each horse
         summary.append("\nCurrent Bets:\n");
         boolean hasBets = false;
-        for (Map.Entry<HorseGUI, Double> entry : bets.entrySet()) {
+        for (Map.Entry<HorseGUI, Double> entry : getBets().entrySet()) {
             if (entry.getValue() > 0) {
                 summary.append(String.format("%s: $%.2f at %.2f:1 odds\n", 
                     entry.getKey().getName(),
                     entry.getValue(),
-                    odds.get(entry.getKey())));
+                    getPotentialPayout(entry.getKey()) / entry.getValue()));
                 hasBets = true;
             }
         }
+        for (ExoticBet bet : getExoticBets()) {
+            summary.append(String.format("%s: $%.2f at %.2f:1 odds\n",
+                bet.describe(), bet.getAmount(), bet.getOdds()));
+            hasBets = true;
+        }
         if (!hasBets) {
             summary.append("No bets placed yet\n");
         }
         
         summary.append("\nCurrent Odds:\n");
-        for (Map.Entry<HorseGUI, Double> entry : odds.entrySet()) {
+        IntDoubleMap odds = this.odds;
+        for (HorseGUI horse : race.getHorses()) {
+            if (!odds.containsKey(horse.getId())) continue;
             summary.append(String.format("%s: %.2f:1\n", 
-                entry.getKey().getName(), 
-                entry.getValue()));
+                horse.getName(), 
+                odds.get(horse.getId(), 0.0)));
         }
         return summary.toString();
     }
 
-    private Map<HorseGUI, Double> calculateDynamicOdds(HorseGUI[] horses, Track track) {
-        Map<HorseGUI, Double> odds = new HashMap<>();
-        double totalImpliedProbability = 0;
-        
-        // Calculate base probabilities
-        for (HorseGUI horse : horses) {
-            if (horse != null) {
-                // Base probability from horse attributes
-                double baseProbability = horse.getConfidence() * horse.getSpeed() * horse.getStamina();
-                
-                // Track condition modifiers
-                baseProbability *= track.getWeatherConfidenceModifier();
-                baseProbability *= track.getTrackShapeModifier();
-                
-                // Recent form modifier (last 3 races)
-                baseProbability *= calculateRecentFormModifier(horse);
-                
-                // Track record modifier
-                baseProbability *= calculateTrackRecordModifier(horse, track);
-                
-                // Convert to implied probability
-                double impliedProbability = 1.0 / (baseProbability * 2.0);
-                totalImpliedProbability += impliedProbability;
-                
-                odds.put(horse, impliedProbability);
-            }
-        }
-        
-        // Normalize probabilities and apply house edge
-        double houseEdge = 0.15; // 15% house edge
-        for (Map.Entry<HorseGUI, Double> entry : odds.entrySet()) {
-            double normalizedProbability = entry.getValue() / totalImpliedProbability;
-            double decimalOdds = (1.0 / normalizedProbability) * (1.0 - houseEdge);
-            entry.setValue(decimalOdds - 1.0); // Convert to X:1 format
+    /**
+     * Builds the first-passage tables for the field about to run, so that
+     * updating the odds on each tick only reads the tables.
+     */
+    public void prepareInRunningOdds(List<HorseGUI> horses, Track track, int raceLength) {
+        RaceField field = RaceField.of(horses, track, raceLength);
+        if (inRunningOdds == null || !inRunningOdds.getField().equals(field)) {
+            inRunningOdds = new InRunningOdds(field);
+            laneDistances = new int[field.size()];
+            laneFallen = new boolean[field.size()];
         }
-        
-        return odds;
     }
 
-    private double calculateRecentFormModifier(HorseGUI horse) {
-        List<String> recentRaces = horse.getRecentRaceResults();
-        if (recentRaces.isEmpty()) return 1.0;
-        
-        double formModifier = 1.0;
-        int wins = 0;
-        int falls = 0;
-        
-        for (String race : recentRaces) {
-            if (race.contains("won")) wins++;
-            if (race.contains("fell")) falls++;
+    public void updateOddsDuringRace(HorseGUI[] horses, Track track) {
+        SimulatorEvents.OddsCalculation event = new SimulatorEvents.OddsCalculation();
+        event.begin();
+        if (inRunningOdds == null || inRunningOdds.getField().size() != horses.length) {
+            prepareInRunningOdds(Arrays.asList(horses), track, race.getRaceLength());
         }
-        
-        formModifier += (wins * 0.1); // +10% per win
-        formModifier -= (falls * 0.15); // -15% per fall
-        
-        return Math.max(0.5, Math.min(1.5, formModifier)); // Cap between 0.5 and 1.5
-    }
 
-    private double calculateTrackRecordModifier(HorseGUI horse, Track track) {
-        String trackShape = track.getShape();
-        double bestTime = horse.getBestTimeForTrack(trackShape);
-        double averageTime = track.getAverageTimeForShape(trackShape);
-        
-        if (bestTime == 0 || averageTime == 0) return 1.0;
-        
-        // If horse's best time is better than average, increase probability
-        double timeRatio = averageTime / bestTime;
-        return Math.max(0.8, Math.min(1.2, timeRatio));
-    }
+        // Odds follow the chance of winning from each horse's current position
+        for (int lane = 0; lane < horses.length; lane++) {
+            laneDistances[lane] = horses[lane].getDistanceTravelled();
+            laneFallen[lane] = horses[lane].hasFallen();
+        }
+        double[] winProbability = inRunningOdds.update(laneDistances, laneFallen);
 
-    public void updateOddsDuringRace(HorseGUI[] horses, Track track) {
-        // Update odds based on current race progress
-        Map<HorseGUI, Double> newOdds = calculateDynamicOdds(horses, track);
-        
-        // Apply momentum modifier based on current position
-        for (HorseGUI horse : horses) {
-            if (horse != null) {
-                double positionRatio = horse.getDistanceTravelled() / track.getLength();
-                double momentumModifier = 1.0 + (positionRatio * 0.2); // Up to +20% for leading
-                newOdds.put(horse, newOdds.get(horse) * momentumModifier);
-            }
+        IntDoubleMap newOdds = new IntDoubleMap(horses.length);
+        for (int lane = 0; lane < horses.length; lane++) {
+            newOdds.put(horses[lane].getId(), toOdds(winProbability[lane]));
         }
-        
+
         this.odds = newOdds;
+        oddsPublisher.offer(new IntDoubleMap(newOdds));
+        commitOddsEvent(event, "in-running", horses.length, track);
+    }
+
+    private double toOdds(double winProbability) {
+        if (winProbability <= 0) return MAX_IN_RUNNING_ODDS;
+        double decimalOdds = (1.0 / winProbability) * (1.0 - HOUSE_EDGE);
+        // Convert to X:1 format
+        return Math.max(MIN_IN_RUNNING_ODDS, Math.min(MAX_IN_RUNNING_ODDS, decimalOdds - 1.0));
     }
 
     public String getBettingSuggestion() {
+        Map<HorseGUI, Double> bets = getBets();
         if (bets.isEmpty()) return "No betting history available for suggestions.";
         
         // Analyze betting patterns
@@ -436,10 +835,14 @@ public class BettingSystem {
     }
 
     private double getTotalBetAmount() {
-        double total = 0;
-        for (double bet : bets.values()) {
-            total += bet;
+        synchronized (ledgerLock) {
+            return bets.sum();
+        }
+    }
+
+    private double getTotalBetAmount(HorseGUI horse) {
+        synchronized (ledgerLock) {
+            return bets.get(horse.getId(), 0.0);
         }
-        return total;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,305 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Breeds a population of horses over generations.
+ *
+ * Every generation races in randomly drawn heats on every shape and
+ * weather, and a horse's fitness is its championship points per start.
+ * Parents are picked by tournament, and a foal takes its confidence from
+ * between its parents' and each trait from one parent or the other, with
+ * small random mutations. A few of the fittest horses go through to the
+ * next generation unchanged.
+ *
+ * Populations are HorseRosters, so speed and stamina follow from the
+ * inherited breed and equipment the same way they do for any roster horse.
+ *
+ * Racing is split across one worker per core. Each worker has its own
+ * random stream and its own points arrays, and they are only summed once
+ * every worker is done, so no worker writes anything another one reads.
+ */
+public class BreedingSimulator {
+    private static final int TOURNAMENT_SIZE = 3;
+    private static final double ELITE_FRACTION = 0.02;
+    private static final double TRAIT_MUTATION_RATE = 0.05;
+    // Standard deviation of the change in a foal's confidence
+    private static final double CONFIDENCE_MUTATION = 0.03;
+    private static final double MIN_CONFIDENCE = 0.1;
+
+    private final int raceLength;
+    private final int fieldSize;
+    private final int heatsPerHorse;
+    private final Track[] tracks;
+    private final SplittableRandom random;
+    private HorseRoster population;
+    private int generation;
+
+    /**
+     * @param heatsPerHorse races each horse runs per generation
+     */
+    public BreedingSimulator(HorseRoster founders, int raceLength, int fieldSize, int heatsPerHorse, long seed) {
+        if (fieldSize < 2 || founders.size() < fieldSize) {
+            throw new IllegalArgumentException("Need at least " + Math.max(2, fieldSize) + " founders");
+        }
+        this.population = founders;
+        this.raceLength = raceLength;
+        this.fieldSize = fieldSize;
+        this.heatsPerHorse = heatsPerHorse;
+        this.random = new SplittableRandom(seed);
+        this.tracks = new Track[SeasonSimulator.TRACK_SHAPES.length * SeasonSimulator.WEATHER.length];
+        for (int t = 0; t < tracks.length; t++) {
+            tracks[t] = new Track(raceLength, fieldSize);
+            tracks[t].setShape(SeasonSimulator.TRACK_SHAPES[t / SeasonSimulator.WEATHER.length]);
+            tracks[t].setWeatherCondition(SeasonSimulator.WEATHER[t % SeasonSimulator.WEATHER.length]);
+        }
+    }
+
+    public List<Generation> evolve(int generations) {
+        List<Generation> history = new ArrayList<>();
+        for (int i = 0; i < generations; i++) {
+            history.add(step());
+        }
+        return history;
+    }
+
+    /**
+     * Races the current population and replaces it with its offspring
+     *
+     * @return how the generation that just raced did
+     */
+    public Generation step() {
+        double[] fitness = evaluate(population);
+        Generation summary = summarise(population, fitness);
+        population = breed(population, fitness);
+        generation++;
+        return summary;
+    }
+
+    /**
+     * Points per start for every horse
+     */
+    double[] evaluate(HorseRoster horses) {
+        int size = horses.size();
+        int heatsPerRound = size / fieldSize;
+        int heats = heatsPerRound * heatsPerHorse;
+
+        // The draw is made up front, so the workers only ever read it
+        int[] entrants = new int[heats * fieldSize];
+        int[] heatTrack = new int[heats];
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        for (int round = 0; round < heatsPerHorse; round++) {
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int value = order[i];
+                order[i] = order[j];
+                order[j] = value;
+            }
+            System.arraycopy(order, 0, entrants, round * heatsPerRound * fieldSize, heatsPerRound * fieldSize);
+        }
+        for (int heat = 0; heat < heats; heat++) {
+            heatTrack[heat] = random.nextInt(tracks.length);
+        }
+
+        int workers = Math.max(1, Math.min(heats, Runtime.getRuntime().availableProcessors()));
+        SplittableRandom[] streams = new SplittableRandom[workers];
+        for (int i = 0; i < workers; i++) {
+            streams[i] = random.split();
+        }
+        int[][] points = new int[workers][];
+        int[][] starts = new int[workers][];
+        IntStream.range(0, workers).parallel().forEach(worker -> {
+            int[] workerPoints = new int[size];
+            int[] workerStarts = new int[size];
+            int[] field = new int[fieldSize];
+            for (int heat = worker; heat < heats; heat += workers) {
+                System.arraycopy(entrants, heat * fieldSize, field, 0, fieldSize);
+                RaceSimulator simulator = new RaceSimulator(
+                    horses.field(field, tracks[heatTrack[heat]], raceLength), streams[worker]);
+                int placed = simulator.run();
+                int[] placings = simulator.getPlacings();
+                for (int i = 0; i < Math.min(placed, SeasonSimulator.POINTS.length); i++) {
+                    workerPoints[field[placings[i]]] += SeasonSimulator.POINTS[i];
+                }
+                for (int horse : field) {
+                    workerStarts[horse]++;
+                }
+            }
+            points[worker] = workerPoints;
+            starts[worker] = workerStarts;
+        });
+
+        double[] fitness = new double[size];
+        for (int horse = 0; horse < size; horse++) {
+            int totalPoints = 0;
+            int totalStarts = 0;
+            for (int worker = 0; worker < workers; worker++) {
+                totalPoints += points[worker][horse];
+                totalStarts += starts[worker][horse];
+            }
+            fitness[horse] = totalStarts > 0 ? (double) totalPoints / totalStarts : 0.0;
+        }
+        return fitness;
+    }
+
+    private HorseRoster breed(HorseRoster parents, double[] fitness) {
+        int size = parents.size();
+        HorseRoster foals = new HorseRoster(size);
+
+        // The fittest go through unchanged
+        int elite = Math.max(1, (int) (size * ELITE_FRACTION));
+        Integer[] ranked = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            ranked[i] = i;
+        }
+        Arrays.sort(ranked, (a, b) -> Double.compare(fitness[b], fitness[a]));
+        for (int i = 0; i < elite; i++) {
+            int horse = ranked[i];
+            foals.add(parents.getBaseConfidence(horse), parents.getBreed(horse), parents.getCoatColor(horse),
+                parents.getSaddle(horse), parents.getHorseshoes(horse));
+        }
+
+        HorseTraits.Breed[] breeds = HorseTraits.Breed.values();
+        HorseTraits.CoatColor[] coats = HorseTraits.CoatColor.values();
+        HorseTraits.Saddle[] saddles = HorseTraits.Saddle.values();
+        HorseTraits.Horseshoes[] shoes = HorseTraits.Horseshoes.values();
+        while (foals.size() < size) {
+            int sire = select(fitness);
+            int dam = select(fitness);
+
+            double weight = random.nextDouble();
+            double confidence = weight * parents.getBaseConfidence(sire)
+                + (1 - weight) * parents.getBaseConfidence(dam)
+                + nextGaussian() * CONFIDENCE_MUTATION;
+            confidence = Math.max(MIN_CONFIDENCE, Math.min(1.0, confidence));
+
+            HorseTraits.Breed breed = mutate(random.nextBoolean() ? parents.getBreed(sire) : parents.getBreed(dam), breeds);
+            HorseTraits.CoatColor coat = mutate(random.nextBoolean() ? parents.getCoatColor(sire) : parents.getCoatColor(dam), coats);
+            HorseTraits.Saddle saddle = mutate(random.nextBoolean() ? parents.getSaddle(sire) : parents.getSaddle(dam), saddles);
+            HorseTraits.Horseshoes shoe = mutate(random.nextBoolean() ? parents.getHorseshoes(sire) : parents.getHorseshoes(dam), shoes);
+            foals.add(confidence, breed, coat, saddle, shoe);
+        }
+        return foals;
+    }
+
+    /**
+     * Tournament selection: the fittest of a few horses picked at random
+     */
+    private int select(double[] fitness) {
+        int best = random.nextInt(fitness.length);
+        for (int i = 1; i < TOURNAMENT_SIZE; i++) {
+            int challenger = random.nextInt(fitness.length);
+            if (fitness[challenger] > fitness[best]) best = challenger;
+        }
+        return best;
+    }
+
+    private <T> T mutate(T inherited, T[] values) {
+        return random.nextDouble() < TRAIT_MUTATION_RATE ? values[random.nextInt(values.length)] : inherited;
+    }
+
+    private double nextGaussian() {
+        // Box-Muller, SplittableRandom has no nextGaussian of its own
+        double u = 1.0 - random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * random.nextDouble());
+    }
+
+    private Generation summarise(HorseRoster horses, double[] fitness) {
+        int best = 0;
+        double totalFitness = 0;
+        double totalConfidence = 0;
+        int[] breedCounts = new int[HorseTraits.Breed.values().length];
+        for (int i = 0; i < horses.size(); i++) {
+            if (fitness[i] > fitness[best]) best = i;
+            totalFitness += fitness[i];
+            totalConfidence += horses.getConfidence(i);
+            breedCounts[horses.getBreed(i).ordinal()]++;
+        }
+        int commonest = 0;
+        for (int i = 1; i < breedCounts.length; i++) {
+            if (breedCounts[i] > breedCounts[commonest]) commonest = i;
+        }
+        return new Generation(generation, fitness[best], totalFitness / horses.size(),
+            totalConfidence / horses.size(), HorseTraits.Breed.values()[commonest]);
+    }
+
+    public HorseRoster getPopulation() {
+        return population;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * How one generation did on the track
+     */
+    public static class Generation {
+        private final int number;
+        private final double bestFitness;
+        private final double meanFitness;
+        private final double meanConfidence;
+        private final HorseTraits.Breed commonestBreed;
+
+        Generation(int number, double bestFitness, double meanFitness, double meanConfidence,
+                   HorseTraits.Breed commonestBreed) {
+            this.number = number;
+            this.bestFitness = bestFitness;
+            this.meanFitness = meanFitness;
+            this.meanConfidence = meanConfidence;
+            this.commonestBreed = commonestBreed;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * Points per start of the best horse
+         */
+        public double getBestFitness() {
+            return bestFitness;
+        }
+
+        public double getMeanFitness() {
+            return meanFitness;
+        }
+
+        /**
+         * Average racing confidence, after breed and horseshoes
+         */
+        public double getMeanConfidence() {
+            return meanConfidence;
+        }
+
+        public HorseTraits.Breed getCommonestBreed() {
+            return commonestBreed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Generation %4d: best %.2f, mean %.2f points per start, confidence %.3f, mostly %s",
+                number, bestFitness, meanFitness, meanConfidence, commonestBreed);
+        }
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        BreedingSimulator simulator = new BreedingSimulator(HorseRoster.generate(size, 1), 50, 8, 5, 2);
+        long start = System.nanoTime();
+        for (int i = 0; i < generations; i++) {
+            Generation generation = simulator.step();
+            if (i % 20 == 0 || i == generations - 1) {
+                System.out.println(generation);
+            }
+        }
+        System.out.printf("%d generations of %d horses in %.1f s%n", generations, size,
+            (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,454 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Checks that a faster race engine produces the same outcomes as the
+ * reference rule in Race.moveHorse.
+ *
+ * Both engines run the same fields many times on every core, each worker
+ * with its own seeded generators. The winner, the number of horses that
+ * fell and the tick each race ended on are compared with chi-squared
+ * tests (winner, fallers) and a two-sample Kolmogorov-Smirnov test
+ * (ticks). The in-running win chances the odds board is priced from are
+ * then checked against RaceSimulator races run on from the same positions,
+ * on an odd track length so horses that move two units can overshoot.
+ * Any p-value under the threshold fails the run with exit code 1.
+ *
+ * Usage: java -Djava.awt.headless=true EngineEquivalenceHarness [runs-per-field] [alpha] [seed]
+ */
+public class EngineEquivalenceHarness {
+    private static final int DEFAULT_RUNS = 20_000;
+    private static final double DEFAULT_ALPHA = 0.001;
+    private static final int MAX_TICKS = 100_000;
+    private static final int RACE_LENGTH = 30;
+    private static final int ODDS_RACE_LENGTH = 31;
+
+    /**
+     * Runs one race on a field and reports how it ended
+     */
+    public interface Engine {
+        /**
+         * @param outcome filled with the winning lane (-1 if every horse
+         *                fell), the number of horses that fell and the
+         *                tick the race ended on
+         */
+        void run(SplittableRandom random, int[] outcome);
+    }
+
+    public interface EngineFactory {
+        Engine create(FieldSpec spec);
+    }
+
+    /**
+     * How to build one test field; every worker builds its own horses from it
+     */
+    public static class FieldSpec {
+        final String name;
+        final double[] confidence;
+        final String[] breed;
+        final String shape;
+        final String weather;
+
+        FieldSpec(String name, double[] confidence, String[] breed, String shape, String weather) {
+            this.name = name;
+            this.confidence = confidence;
+            this.breed = breed;
+            this.shape = shape;
+            this.weather = weather;
+        }
+
+        public List<HorseGUI> buildHorses() {
+            List<HorseGUI> horses = new ArrayList<>();
+            for (int lane = 0; lane < confidence.length; lane++) {
+                HorseGUI horse = new HorseGUI((char) ('A' + lane), "Lane " + lane, confidence[lane]);
+                horse.setBreed(breed[lane % breed.length]);
+                // Equipment is what applies the breed's speed, so faster breeds cover two units a move
+                horse.setEquipment("Standard");
+                horses.add(horse);
+            }
+            return horses;
+        }
+
+        public Track buildTrack() {
+            Track track = new Track(RACE_LENGTH, confidence.length);
+            track.setShape(shape);
+            track.setWeatherCondition(weather);
+            return track;
+        }
+
+        public int size() {
+            return confidence.length;
+        }
+    }
+
+    /**
+     * Race.moveHorse applied tick by tick to real horses, ending the race
+     * the way Race.updateRace does
+     */
+    public static Engine referenceEngine(FieldSpec spec) {
+        List<HorseGUI> horses = spec.buildHorses();
+        Track track = spec.buildTrack();
+        return (random, outcome) -> {
+            for (Horse horse : horses) {
+                horse.goBackToStart();
+            }
+            int winner = -1;
+            int fallen = 0;
+            int tick = 0;
+            while (tick < MAX_TICKS) {
+                tick++;
+                for (Horse horse : horses) {
+                    Race.moveHorse(horse, track, random::nextDouble);
+                }
+                fallen = 0;
+                for (int lane = 0; lane < horses.size(); lane++) {
+                    if (winner < 0 && horses.get(lane).getDistanceTravelled() == RACE_LENGTH) {
+                        winner = lane;
+                    }
+                    if (horses.get(lane).hasFallen()) fallen++;
+                }
+                if (winner >= 0 || fallen == horses.size()) break;
+            }
+            outcome[0] = winner;
+            outcome[1] = fallen;
+            outcome[2] = tick;
+        };
+    }
+
+    public static Engine simulatorEngine(FieldSpec spec) {
+        RaceField field = RaceField.of(spec.buildHorses(), spec.buildTrack(), RACE_LENGTH);
+        return (random, outcome) -> {
+            RaceSimulator simulator = new RaceSimulator(field, random);
+            simulator.run();
+            int fallen = 0;
+            for (int lane = 0; lane < field.size(); lane++) {
+                if (simulator.hasFallen(lane)) fallen++;
+            }
+            outcome[0] = simulator.getWinner();
+            outcome[1] = fallen;
+            outcome[2] = simulator.getTicks();
+        };
+    }
+
+    public static List<FieldSpec> defaultFields() {
+        List<FieldSpec> fields = new ArrayList<>();
+        fields.add(new FieldSpec("2 lanes, clear oval", new double[]{0.7, 0.55},
+            new String[]{"Thoroughbred"}, "Oval", "Clear"));
+        fields.add(new FieldSpec("4 lanes, default", new double[]{0.7, 0.65, 0.75, 0.68},
+            new String[]{"Thoroughbred", "Arabian", "Quarter Horse", "Paint"}, "Oval", "Clear"));
+        fields.add(new FieldSpec("6 lanes, rain", new double[]{0.5, 0.6, 0.7, 0.8, 0.9, 0.55},
+            new String[]{"Arabian", "Appaloosa", "Thoroughbred"}, "Straight", "Rainy"));
+        fields.add(new FieldSpec("8 lanes, mixed", new double[]{0.9, 0.85, 0.5, 0.6, 0.75, 0.65, 0.7, 0.8},
+            new String[]{"Quarter Horse", "Thoroughbred", "Arabian", "Paint", "Appaloosa"}, "Figure-eight", "Snowy"));
+        return fields;
+    }
+
+    public static void main(String[] args) {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+        double alpha = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_ALPHA;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+
+        long start = System.nanoTime();
+        boolean passed = compare(EngineEquivalenceHarness::referenceEngine,
+            EngineEquivalenceHarness::simulatorEngine, defaultFields(), runs, alpha, seed);
+        passed &= checkOdds(defaultFields(), runs, alpha, seed);
+        System.out.printf("%s in %.1fs (seed %d)%n", passed ? "PASSED" : "FAILED",
+            (System.nanoTime() - start) / 1e9, seed);
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Runs both engines on every field and tests their outcome distributions
+     *
+     * @return true if no test rejected at the given significance level
+     */
+    public static boolean compare(EngineFactory reference, EngineFactory candidate,
+                                  List<FieldSpec> fields, int runs, double alpha, long seed) {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        boolean passed = true;
+        System.out.printf("%-22s %-8s %10s %12s%n", "field", "test", "statistic", "p-value");
+        for (FieldSpec spec : fields) {
+            Outcomes expected = runParallel(reference, spec, runs, seeds.split());
+            Outcomes actual = runParallel(candidate, spec, runs, seeds.split());
+
+            double[] win = chiSquared(expected.winners, actual.winners);
+            double[] falls = chiSquared(expected.fallers, actual.fallers);
+            double[] ticks = kolmogorovSmirnov(expected.ticks, actual.ticks);
+            passed &= report(spec.name, "winner", win, alpha);
+            passed &= report(spec.name, "fallers", falls, alpha);
+            passed &= report(spec.name, "ticks", ticks, alpha);
+        }
+        return passed;
+    }
+
+    /**
+     * Tests InRunningOdds against the winners of simulated races, once
+     * from the start and once from a mid-race position with one horse
+     * past the line and, in larger fields, one down
+     *
+     * @return true if no test rejected at the given significance level
+     */
+    public static boolean checkOdds(List<FieldSpec> fields, int runs, double alpha, long seed) {
+        SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+        boolean passed = true;
+        for (FieldSpec spec : fields) {
+            RaceField field = RaceField.of(spec.buildHorses(), spec.buildTrack(), ODDS_RACE_LENGTH);
+            InRunningOdds odds = new InRunningOdds(field);
+            int size = field.size();
+
+            int[] midDistance = new int[size];
+            boolean[] midFallen = new boolean[size];
+            for (int lane = 0; lane < size; lane++) {
+                midDistance[lane] = random.nextInt(ODDS_RACE_LENGTH - 2);
+            }
+            midDistance[0] = ODDS_RACE_LENGTH + 1;
+            if (size > 2) midFallen[size - 1] = true;
+
+            passed &= report(spec.name, "odds", checkOdds(field, odds, new int[size], new boolean[size],
+                runs, random.split()), alpha);
+            passed &= report(spec.name, "odds-mid", checkOdds(field, odds, midDistance, midFallen,
+                runs, random.split()), alpha);
+        }
+        return passed;
+    }
+
+    private static double[] checkOdds(RaceField field, InRunningOdds odds, int[] distance, boolean[] fallen,
+                                      int runs, SplittableRandom random) {
+        int size = field.size();
+        double[] probability = Arrays.copyOf(odds.update(distance, fallen), size + 1);
+        double nobody = 1.0;
+        for (int lane = 0; lane < size; lane++) {
+            nobody -= probability[lane];
+        }
+        probability[size] = Math.max(0.0, nobody);
+
+        long[] winners = new long[size + 1];
+        RaceSimulator simulator = new RaceSimulator(field, random);
+        for (int i = 0; i < runs; i++) {
+            simulator.run(distance, fallen);
+            int winner = simulator.getWinner();
+            winners[winner >= 0 ? winner : size]++;
+        }
+        return goodnessOfFit(winners, probability);
+    }
+
+    private static boolean report(String field, String test, double[] result, double alpha) {
+        boolean ok = result[1] >= alpha;
+        System.out.printf("%-22s %-8s %10.3f %12.4g %s%n", field, test, result[0], result[1], ok ? "" : "DIVERGED");
+        return ok;
+    }
+
+    private static class Outcomes {
+        final long[] winners; // Last entry counts races nobody won
+        final long[] fallers;
+        final int[] ticks;
+
+        Outcomes(int size, int runs) {
+            winners = new long[size + 1];
+            fallers = new long[size + 1];
+            ticks = new int[runs];
+        }
+    }
+
+    private static Outcomes runParallel(EngineFactory factory, FieldSpec spec, int runs, SplittableRandom seed) {
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors());
+        SplittableRandom[] streams = new SplittableRandom[workers];
+        for (int i = 0; i < workers; i++) {
+            streams[i] = seed.split();
+        }
+
+        Outcomes outcomes = new Outcomes(spec.size(), runs);
+        Outcomes[] partials = new Outcomes[workers];
+        IntStream.range(0, workers).parallel().forEach(worker -> {
+            int from = (int) ((long) runs * worker / workers);
+            int to = (int) ((long) runs * (worker + 1) / workers);
+            Engine engine = factory.create(spec);
+            Outcomes partial = new Outcomes(spec.size(), 0);
+            int[] outcome = new int[3];
+            for (int i = from; i < to; i++) {
+                engine.run(streams[worker], outcome);
+                partial.winners[outcome[0] >= 0 ? outcome[0] : spec.size()]++;
+                partial.fallers[outcome[1]]++;
+                // Each worker writes only its own slice
+                outcomes.ticks[i] = outcome[2];
+            }
+            partials[worker] = partial;
+        });
+
+        for (Outcomes partial : partials) {
+            for (int i = 0; i <= spec.size(); i++) {
+                outcomes.winners[i] += partial.winners[i];
+                outcomes.fallers[i] += partial.fallers[i];
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Chi-squared test that two sets of category counts come from the same
+     * distribution. Sparse categories are pooled so every expected count
+     * is at least 5.
+     *
+     * @return the statistic and its p-value
+     */
+    static double[] chiSquared(long[] first, long[] second) {
+        long firstTotal = Arrays.stream(first).sum();
+        long secondTotal = Arrays.stream(second).sum();
+        double total = firstTotal + secondTotal;
+        double smallerShare = Math.min(firstTotal, secondTotal) / total;
+
+        double statistic = 0;
+        int bins = 0;
+        long pooledFirst = 0;
+        long pooledSecond = 0;
+        for (int i = 0; i < first.length; i++) {
+            pooledFirst += first[i];
+            pooledSecond += second[i];
+            if ((pooledFirst + pooledSecond) * smallerShare >= 5 || i == first.length - 1) {
+                if (pooledFirst + pooledSecond > 0) {
+                    statistic += cellStatistic(pooledFirst, pooledSecond, firstTotal, secondTotal, total);
+                    bins++;
+                }
+                pooledFirst = 0;
+                pooledSecond = 0;
+            }
+        }
+        if (bins < 2) return new double[]{0.0, 1.0};
+        return new double[]{statistic, 1.0 - regularizedGammaP((bins - 1) / 2.0, statistic / 2.0)};
+    }
+
+    /**
+     * Chi-squared test that category counts follow the given probabilities.
+     * Sparse categories are pooled so every expected count is at least 5,
+     * and any count in a category given no chance at all fails outright.
+     *
+     * @return the statistic and its p-value
+     */
+    static double[] goodnessOfFit(long[] observed, double[] probability) {
+        long total = Arrays.stream(observed).sum();
+        double statistic = 0;
+        int bins = 0;
+        long pooledObserved = 0;
+        double pooledExpected = 0;
+        for (int i = 0; i < observed.length; i++) {
+            if (probability[i] <= 0) {
+                if (observed[i] > 0) return new double[]{Double.POSITIVE_INFINITY, 0.0};
+                continue;
+            }
+            pooledObserved += observed[i];
+            pooledExpected += probability[i] * total;
+            if (pooledExpected >= 5 || i == observed.length - 1) {
+                statistic += (pooledObserved - pooledExpected) * (pooledObserved - pooledExpected) / pooledExpected;
+                bins++;
+                pooledObserved = 0;
+                pooledExpected = 0;
+            }
+        }
+        if (pooledExpected > 0) {
+            statistic += (pooledObserved - pooledExpected) * (pooledObserved - pooledExpected) / pooledExpected;
+            bins++;
+        }
+        if (bins < 2) return new double[]{0.0, 1.0};
+        return new double[]{statistic, 1.0 - regularizedGammaP((bins - 1) / 2.0, statistic / 2.0)};
+    }
+
+    private static double cellStatistic(long first, long second, long firstTotal, long secondTotal, double total) {
+        double column = first + second;
+        double expectedFirst = column * firstTotal / total;
+        double expectedSecond = column * secondTotal / total;
+        return (first - expectedFirst) * (first - expectedFirst) / expectedFirst
+            + (second - expectedSecond) * (second - expectedSecond) / expectedSecond;
+    }
+
+    /**
+     * Two-sample Kolmogorov-Smirnov test. The p-value uses the asymptotic
+     * distribution, which is conservative for tied, discrete samples.
+     *
+     * @return the largest gap between the two empirical CDFs and its p-value
+     */
+    static double[] kolmogorovSmirnov(int[] first, int[] second) {
+        int[] a = first.clone();
+        int[] b = second.clone();
+        Arrays.sort(a);
+        Arrays.sort(b);
+
+        int i = 0;
+        int j = 0;
+        double gap = 0;
+        while (i < a.length && j < b.length) {
+            int value = Math.min(a[i], b[j]);
+            while (i < a.length && a[i] == value) i++;
+            while (j < b.length && b[j] == value) j++;
+            gap = Math.max(gap, Math.abs((double) i / a.length - (double) j / b.length));
+        }
+
+        double effective = Math.sqrt((double) a.length * b.length / (a.length + b.length));
+        double lambda = (effective + 0.12 + 0.11 / effective) * gap;
+        return new double[]{gap, kolmogorovQ(lambda)};
+    }
+
+    private static double kolmogorovQ(double lambda) {
+        if (lambda < 0.2) return 1.0;
+        double sum = 0;
+        double sign = 1;
+        for (int k = 1; k <= 100; k++) {
+            double term = sign * Math.exp(-2 * k * k * lambda * lambda);
+            sum += term;
+            if (Math.abs(term) < 1e-12) break;
+            sign = -sign;
+        }
+        return Math.max(0.0, Math.min(1.0, 2 * sum));
+    }
+
+    static double regularizedGammaP(double a, double x) {
+        if (x <= 0) return 0.0;
+        double logPrefix = -x + a * Math.log(x) - logGamma(a);
+        if (x < a + 1) {
+            // Series expansion
+            double term = 1.0 / a;
+            double sum = term;
+            for (int n = 1; n < 1000; n++) {
+                term *= x / (a + n);
+                sum += term;
+                if (Math.abs(term) < Math.abs(sum) * 1e-15) break;
+            }
+            return sum * Math.exp(logPrefix);
+        }
+        // Continued fraction for the upper tail (modified Lentz)
+        double tiny = 1e-300;
+        double b = x + 1 - a;
+        double c = 1 / tiny;
+        double d = 1 / b;
+        double h = d;
+        for (int n = 1; n < 1000; n++) {
+            double an = -n * (n - a);
+            b += 2;
+            d = an * d + b;
+            if (Math.abs(d) < tiny) d = tiny;
+            c = b + an / c;
+            if (Math.abs(c) < tiny) c = tiny;
+            d = 1 / d;
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1) < 1e-15) break;
+        }
+        return 1.0 - Math.exp(logPrefix) * h;
+    }
+
+    private static double logGamma(double x) {
+        // Lanczos approximation
+        double[] coefficients = {76.18009172947146, -86.50532032941677, 24.01409824083091,
+            -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5};
+        double y = x;
+        double tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double series = 1.000000000190015;
+        for (double coefficient : coefficients) {
+            series += coefficient / ++y;
+        }
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+}
@@ -0,0 +1,321 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the breed, saddle, horseshoes and equipment that give one horse
+ * the best chance of winning against a given field on a given track.
+ *
+ * Many of the 240 combinations race identically (saddles, for one, only
+ * change speed and stamina, which the race rules never read), so they are
+ * grouped by the RaceField they produce and each group is simulated once.
+ * Groups are raced in rounds, in parallel, and after every round any group
+ * whose best plausible win rate is below the leader's worst plausible one
+ * is dropped. Simulated win counts are cached per field, so asking again
+ * for a similar field or a slightly changed horse picks up where the last
+ * search left off.
+ */
+public class EquipmentOptimiser {
+    private static final int ROUND_RUNS = 2_000;
+    private static final int DEFAULT_MAX_RUNS = 40_000;
+    // Standard errors either side of a win rate; wide, so good setups are rarely dropped by bad luck
+    private static final double BOUND_WIDTH = 3.0;
+    private static final int CACHE_SIZE = 4096;
+
+    private final int maxRuns;
+    private final Map<RaceField, Estimate> cache;
+    private final SplittableRandom seeds;
+
+    public EquipmentOptimiser() {
+        this(DEFAULT_MAX_RUNS, System.nanoTime());
+    }
+
+    public EquipmentOptimiser(int maxRuns, long seed) {
+        this.maxRuns = maxRuns;
+        this.seeds = new SplittableRandom(seed);
+        this.cache = new LinkedHashMap<RaceField, Estimate>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RaceField, Estimate> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Searches every setup for the horse.
+     *
+     * @param field the whole field, including the horse
+     */
+    public Result optimise(HorseGUI horse, List<HorseGUI> field, Track track, int raceLength) {
+        int lane = field.indexOf(horse);
+        if (lane < 0) {
+            throw new IllegalArgumentException(horse.getName() + " is not in the field");
+        }
+        RaceField base = RaceField.of(field, track, raceLength);
+        double natural = horse.getNaturalConfidence();
+
+        // Group setups that race the same
+        Map<RaceField, List<Setup>> groups = new LinkedHashMap<>();
+        for (HorseTraits.Breed breed : HorseTraits.Breed.values()) {
+            for (HorseTraits.Saddle saddle : HorseTraits.Saddle.values()) {
+                for (HorseTraits.Horseshoes shoes : HorseTraits.Horseshoes.values()) {
+                    for (HorseTraits.Equipment equipment : HorseTraits.Equipment.values()) {
+                        double confidence = HorseTraits.raceConfidence(natural, breed, shoes, equipment);
+                        RaceField candidate = withLane(base, lane, Race.moveChance(confidence, track),
+                            Race.fallChance(confidence, track), HorseTraits.stepsPerMove(breed, equipment));
+                        groups.computeIfAbsent(candidate, key -> new ArrayList<>())
+                            .add(new Setup(breed, saddle, shoes, equipment));
+                    }
+                }
+            }
+        }
+
+        List<Candidate> live = new ArrayList<>();
+        for (Map.Entry<RaceField, List<Setup>> group : groups.entrySet()) {
+            live.add(new Candidate(group.getKey(), lane, group.getValue(), estimateFor(group.getKey())));
+        }
+        int candidates = live.size();
+
+        long simulated = 0;
+        for (int target = ROUND_RUNS; live.size() > 1 && target <= maxRuns; target += ROUND_RUNS) {
+            SplittableRandom[] streams = new SplittableRandom[live.size()];
+            synchronized (seeds) {
+                for (int i = 0; i < streams.length; i++) {
+                    streams[i] = seeds.split();
+                }
+            }
+            int round = target;
+            List<Candidate> racing = live;
+            simulated += IntStream.range(0, racing.size()).parallel()
+                .mapToLong(i -> racing.get(i).estimate.runUntil(racing.get(i).field, round, streams[i]))
+                .sum();
+            live = prune(live);
+        }
+
+        Candidate best = live.get(0);
+        for (Candidate candidate : live) {
+            if (candidate.winRate() > best.winRate()) best = candidate;
+        }
+        return new Result(best.setups, best.winRate(), best.estimate.runs(), candidates,
+            candidates - live.size(), simulated);
+    }
+
+    private Estimate estimateFor(RaceField field) {
+        synchronized (cache) {
+            return cache.computeIfAbsent(field, key -> new Estimate(key.size()));
+        }
+    }
+
+    /**
+     * Drops every candidate that cannot plausibly beat the current leader
+     */
+    private static List<Candidate> prune(List<Candidate> live) {
+        double leaderFloor = 0.0;
+        for (Candidate candidate : live) {
+            leaderFloor = Math.max(leaderFloor, candidate.estimate.lowerBound(candidate.lane));
+        }
+        List<Candidate> kept = new ArrayList<>();
+        for (Candidate candidate : live) {
+            if (candidate.estimate.upperBound(candidate.lane) >= leaderFloor) kept.add(candidate);
+        }
+        return kept;
+    }
+
+    private static RaceField withLane(RaceField field, int lane, double moveChance, double fallChance, int steps) {
+        double[] move = new double[field.size()];
+        double[] fall = new double[field.size()];
+        int[] stepsPerMove = new int[field.size()];
+        for (int i = 0; i < field.size(); i++) {
+            move[i] = field.getMoveChance(i);
+            fall[i] = field.getFallChance(i);
+            stepsPerMove[i] = field.getStepsPerMove(i);
+        }
+        move[lane] = moveChance;
+        fall[lane] = fallChance;
+        stepsPerMove[lane] = steps;
+        return new RaceField(field.getRaceLength(), move, fall, stepsPerMove);
+    }
+
+    private static class Candidate {
+        final RaceField field;
+        final int lane;
+        final List<Setup> setups;
+        final Estimate estimate;
+
+        Candidate(RaceField field, int lane, List<Setup> setups, Estimate estimate) {
+            this.field = field;
+            this.lane = lane;
+            this.setups = setups;
+            this.estimate = estimate;
+        }
+
+        double winRate() {
+            return estimate.winRate(lane);
+        }
+    }
+
+    /**
+     * Wins per lane over all the races simulated for one field, so the
+     * cache serves whichever lane the horse is drawn in
+     */
+    private static class Estimate {
+        private final int[] wins;
+        private int runs;
+
+        Estimate(int lanes) {
+            this.wins = new int[lanes];
+        }
+
+        /**
+         * Simulates until there are at least target races behind the
+         * estimate, so cached runs are never repeated
+         *
+         * @return the number of races simulated
+         */
+        synchronized long runUntil(RaceField field, int target, SplittableRandom random) {
+            if (runs >= target) return 0;
+            RaceSimulator simulator = new RaceSimulator(field, random);
+            int needed = target - runs;
+            for (int i = 0; i < needed; i++) {
+                simulator.run();
+                int winner = simulator.getWinner();
+                if (winner >= 0) wins[winner]++;
+            }
+            runs = target;
+            return needed;
+        }
+
+        synchronized double winRate(int lane) {
+            return runs > 0 ? (double) wins[lane] / runs : 0.0;
+        }
+
+        synchronized int runs() {
+            return runs;
+        }
+
+        synchronized double lowerBound(int lane) {
+            return winRate(lane) - margin(lane);
+        }
+
+        synchronized double upperBound(int lane) {
+            return winRate(lane) + margin(lane);
+        }
+
+        private double margin(int lane) {
+            if (runs == 0) return 1.0;
+            // Half a win either way keeps the bound honest when nothing has been won yet
+            double rate = (wins[lane] + 0.5) / (runs + 1.0);
+            return BOUND_WIDTH * Math.sqrt(rate * (1.0 - rate) / runs);
+        }
+    }
+
+    /**
+     * One combination of breed and equipment
+     */
+    public static class Setup {
+        private final HorseTraits.Breed breed;
+        private final HorseTraits.Saddle saddle;
+        private final HorseTraits.Horseshoes horseshoes;
+        private final HorseTraits.Equipment equipment;
+
+        Setup(HorseTraits.Breed breed, HorseTraits.Saddle saddle, HorseTraits.Horseshoes horseshoes,
+              HorseTraits.Equipment equipment) {
+            this.breed = breed;
+            this.saddle = saddle;
+            this.horseshoes = horseshoes;
+            this.equipment = equipment;
+        }
+
+        public HorseTraits.Breed getBreed() {
+            return breed;
+        }
+
+        public HorseTraits.Saddle getSaddle() {
+            return saddle;
+        }
+
+        public HorseTraits.Horseshoes getHorseshoes() {
+            return horseshoes;
+        }
+
+        public HorseTraits.Equipment getEquipment() {
+            return equipment;
+        }
+
+        public void applyTo(HorseGUI horse) {
+            horse.setTraits(breed.toString(), saddle.toString(), horseshoes.toString(), equipment.toString());
+        }
+
+        @Override
+        public String toString() {
+            return breed + ", " + saddle + " saddle, " + horseshoes + " shoes, " + equipment + " equipment";
+        }
+    }
+
+    public static class Result {
+        private final List<Setup> setups;
+        private final double winProbability;
+        private final int runs;
+        private final int candidates;
+        private final int dropped;
+        private final long simulated;
+
+        Result(List<Setup> setups, double winProbability, int runs, int candidates, int dropped, long simulated) {
+            this.setups = setups;
+            this.winProbability = winProbability;
+            this.runs = runs;
+            this.candidates = candidates;
+            this.dropped = dropped;
+            this.simulated = simulated;
+        }
+
+        /**
+         * The best setup found
+         */
+        public Setup getBest() {
+            return setups.get(0);
+        }
+
+        /**
+         * Every setup that races exactly like the best one
+         */
+        public List<Setup> getEquivalentSetups() {
+            return setups;
+        }
+
+        public double getWinProbability() {
+            return winProbability;
+        }
+
+        /**
+         * Races behind the win probability
+         */
+        public int getRuns() {
+            return runs;
+        }
+
+        /**
+         * Setups that race differently from each other
+         */
+        public int getCandidates() {
+            return candidates;
+        }
+
+        /**
+         * Candidates dropped before the end of the search
+         */
+        public int getDropped() {
+            return dropped;
+        }
+
+        /**
+         * Races simulated by this search, not counting cached ones
+         */
+        public long getSimulatedRaces() {
+            return simulated;
+        }
+    }
+}
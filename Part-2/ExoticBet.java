@@ -0,0 +1,54 @@
+import java.util.List;
+
+/**
+ * An exotic bet with its odds locked in when it was placed.
+ */
+public class ExoticBet {
+    private final ExoticBetType type;
+    private final HorseGUI[] selection;
+    private final double amount;
+    private final double odds;
+
+    public ExoticBet(ExoticBetType type, HorseGUI[] selection, double amount, double odds) {
+        this.type = type;
+        this.selection = selection.clone();
+        this.amount = amount;
+        this.odds = odds;
+    }
+
+    public ExoticBetType getType() {
+        return type;
+    }
+
+    public HorseGUI[] getSelection() {
+        return selection.clone();
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public double getOdds() {
+        return odds;
+    }
+
+    /**
+     * Whether the finishing order starts with the selected horses in order
+     */
+    public boolean isWonBy(List<HorseGUI> finishingOrder) {
+        if (finishingOrder.size() < selection.length) return false;
+        for (int i = 0; i < selection.length; i++) {
+            if (finishingOrder.get(i) != selection[i]) return false;
+        }
+        return true;
+    }
+
+    public String describe() {
+        StringBuilder text = new StringBuilder(type.getLabel()).append(": ");
+        for (int i = 0; i < selection.length; i++) {
+            if (i > 0) text.append(" > ");
+            text.append(selection[i].getName().trim());
+        }
+        return text.toString();
+    }
+}
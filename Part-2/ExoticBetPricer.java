@@ -0,0 +1,103 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Prices exacta, trifecta and superfecta bets from the joint distribution
+ * of finishing orders.
+ *
+ * That distribution has no closed form, so it is estimated by running the
+ * field many times on every core with RaceSimulator. The resulting
+ * PlacingTable is cached per field, so only the first price for a field
+ * pays for the simulation.
+ */
+public class ExoticBetPricer {
+    private static final int DEFAULT_RUNS = 200_000;
+    private static final int CACHE_SIZE = 16;
+    // Exotic pools usually carry a bigger takeout than win bets
+    private static final double HOUSE_EDGE = 0.20;
+    private static final double MAX_ODDS = 9999.0;
+
+    private final int runs;
+    private final Map<RaceField, PlacingTable> cache;
+    private final SplittableRandom seeds;
+
+    public ExoticBetPricer() {
+        this(DEFAULT_RUNS, System.nanoTime());
+    }
+
+    public ExoticBetPricer(int runs, long seed) {
+        this.runs = runs;
+        this.seeds = new SplittableRandom(seed);
+        this.cache = new LinkedHashMap<RaceField, PlacingTable>(CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RaceField, PlacingTable> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Chance that the given lanes fill the first places in exactly this order.
+     */
+    public double probability(RaceField field, int[] lanes) {
+        return getTable(field).probability(lanes);
+    }
+
+    /**
+     * Odds in X:1 format for an ordered finish, with the house edge applied.
+     */
+    public double getOdds(RaceField field, int[] lanes) {
+        PlacingTable table = getTable(field);
+        // Never seen in simulation still is not impossible
+        double probability = Math.max(table.probability(lanes), 1.0 / table.getRuns());
+        double decimalOdds = (1.0 / probability) * (1.0 - HOUSE_EDGE);
+        return Math.max(0.0, Math.min(MAX_ODDS, decimalOdds - 1.0));
+    }
+
+    public PlacingTable getTable(RaceField field) {
+        if (field.size() < PlacingTable.MIN_DEPTH || field.size() > PlacingTable.MAX_LANES) {
+            throw new IllegalArgumentException("Exotic bets need between " + PlacingTable.MIN_DEPTH
+                + " and " + PlacingTable.MAX_LANES + " lanes");
+        }
+        synchronized (cache) {
+            PlacingTable table = cache.get(field);
+            if (table != null) return table;
+        }
+
+        PlacingTable table = simulate(field);
+        synchronized (cache) {
+            cache.put(field, table);
+        }
+        return table;
+    }
+
+    private PlacingTable simulate(RaceField field) {
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors());
+        SplittableRandom[] streams = new SplittableRandom[workers];
+        synchronized (seeds) {
+            for (int i = 0; i < workers; i++) {
+                streams[i] = seeds.split();
+            }
+        }
+
+        PlacingTable.Builder[] partials = new PlacingTable.Builder[workers];
+        IntStream.range(0, workers).parallel().forEach(worker -> {
+            int share = runs / workers + (worker < runs % workers ? 1 : 0);
+            RaceSimulator simulator = new RaceSimulator(field, streams[worker]);
+            PlacingTable.Builder builder = new PlacingTable.Builder();
+            for (int i = 0; i < share; i++) {
+                int placed = simulator.run();
+                builder.add(simulator.getPlacings(), placed);
+            }
+            partials[worker] = builder;
+        });
+
+        PlacingTable.Builder merged = partials[0];
+        for (int i = 1; i < workers; i++) {
+            merged.merge(partials[i]);
+        }
+        return merged.build();
+    }
+}
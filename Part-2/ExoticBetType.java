@@ -0,0 +1,32 @@
+/**
+ * Bets on the exact order of the first few finishers.
+ */
+public enum ExoticBetType {
+    EXACTA("Exacta", 2),
+    TRIFECTA("Trifecta", 3),
+    SUPERFECTA("Superfecta", 4);
+
+    private final String label;
+    private final int placings;
+
+    ExoticBetType(String label, int placings) {
+        this.label = label;
+        this.placings = placings;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * How many finishers the bet names, in order
+     */
+    public int getPlacings() {
+        return placings;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
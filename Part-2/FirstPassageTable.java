@@ -0,0 +1,133 @@
+/**
+ * Precomputed first-passage probabilities for a single horse: for every
+ * remaining distance, the chance that a horse which is still standing
+ * reaches the finish line within t more ticks.
+ *
+ * Each tick the horse moves with moveChance (covering stepsPerMove units)
+ * and then falls with fallChance, as Race.moveHorse does, so a horse that
+ * reaches the line on the tick it falls still counts as finished. Only
+ * landing exactly on the line wins (Race.raceWonBy), so a move that would
+ * carry the horse past it leaves the horse running but unable to finish.
+ */
+public class FirstPassageTable {
+    // Stop extending the table once the chance of still running is this small
+    private static final double TAIL_EPSILON = 1e-6;
+    private static final int MAX_HORIZON = 4096;
+
+    private final int raceLength;
+    private final int horizon;
+    private final int stride;
+    private final float[] cumulative; // [remaining * stride + t]
+    private final int[] settled; // Per remaining distance, the tick after which the row stops changing
+
+    public FirstPassageTable(int raceLength, double moveChance, double fallChance, int stepsPerMove) {
+        this.raceLength = Math.max(0, raceLength);
+        int rows = this.raceLength + 1;
+        int steps = Math.max(1, stepsPerMove);
+        double stay = (1.0 - moveChance) * (1.0 - fallChance);
+        double moveOn = moveChance * (1.0 - fallChance);
+
+        // Column t of the finished and still-running probabilities, built one tick at a time
+        double[] finished = new double[rows];
+        double[] running = new double[rows];
+        double[] nextFinished = new double[rows];
+        double[] nextRunning = new double[rows];
+        finished[0] = 1.0;
+        for (int r = 1; r < rows; r++) {
+            running[r] = 1.0;
+        }
+
+        float[] columns = new float[rows * 64];
+        int capacity = 64;
+        int t = 0;
+        storeColumn(columns, capacity, 0, finished);
+
+        while (t < MAX_HORIZON && running[rows - 1] > TAIL_EPSILON && rows > 1) {
+            nextFinished[0] = 1.0;
+            nextRunning[0] = 0.0;
+            for (int r = 1; r < rows; r++) {
+                if (r < steps) {
+                    // Moving would overshoot the line, so only standing still keeps a chance
+                    nextFinished[r] = stay * finished[r];
+                    nextRunning[r] = stay * running[r];
+                } else if (r == steps) {
+                    nextFinished[r] = moveChance + stay * finished[r];
+                    nextRunning[r] = stay * running[r];
+                } else {
+                    nextFinished[r] = moveOn * finished[r - steps] + stay * finished[r];
+                    nextRunning[r] = moveOn * running[r - steps] + stay * running[r];
+                }
+            }
+            double[] swap = finished;
+            finished = nextFinished;
+            nextFinished = swap;
+            swap = running;
+            running = nextRunning;
+            nextRunning = swap;
+            t++;
+
+            if (t >= capacity) {
+                int newCapacity = Math.min(MAX_HORIZON + 1, capacity * 2);
+                columns = regrow(columns, rows, capacity, newCapacity);
+                capacity = newCapacity;
+            }
+            storeColumn(columns, capacity, t, finished);
+        }
+
+        this.horizon = t;
+        this.stride = horizon + 1;
+        this.cumulative = capacity == stride ? columns : regrow(columns, rows, capacity, stride);
+        this.settled = new int[rows];
+        for (int r = 0; r < rows; r++) {
+            int last = horizon;
+            while (last > 0 && cumulative[r * stride + last - 1] == cumulative[r * stride + last]) {
+                last--;
+            }
+            settled[r] = last;
+        }
+    }
+
+    private static void storeColumn(float[] columns, int capacity, int t, double[] column) {
+        for (int r = 0; r < column.length; r++) {
+            columns[r * capacity + t] = (float) column[r];
+        }
+    }
+
+    private static float[] regrow(float[] columns, int rows, int oldCapacity, int newCapacity) {
+        float[] resized = new float[rows * newCapacity];
+        int copy = Math.min(oldCapacity, newCapacity);
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(columns, r * oldCapacity, resized, r * newCapacity, copy);
+        }
+        return resized;
+    }
+
+    /**
+     * Chance that a standing horse with the given distance still to run
+     * has finished within the given number of ticks. A horse already past
+     * the line (remaining below 0) can never finish.
+     */
+    public double cumulative(int remaining, int ticks) {
+        if (remaining < 0) return 0.0;
+        if (remaining == 0) return 1.0;
+        if (ticks <= 0) return 0.0;
+        int row = Math.min(remaining, raceLength);
+        return cumulative[row * stride + Math.min(ticks, horizon)];
+    }
+
+    /**
+     * The number of ticks after which cumulative(remaining, t) stops
+     * changing, 0 for a horse that is home or past the line.
+     */
+    public int settledBy(int remaining) {
+        if (remaining <= 0) return 0;
+        return settled[Math.min(remaining, raceLength)];
+    }
+
+    /**
+     * The number of ticks after which the table stops changing.
+     */
+    public int getHorizon() {
+        return horizon;
+    }
+}
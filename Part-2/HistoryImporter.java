@@ -0,0 +1,648 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Loads race histories and horse rosters produced elsewhere.
+ *
+ * Histories are read in either format RaceResultExporter writes, CSV or
+ * columnar, and appended to a Statistics. Rosters are CSV with the header
+ * ROSTER_HEADER, confidence being the horse's natural confidence and the
+ * traits given by their labels.
+ *
+ * Files are memory-mapped and cut into chunks that are parsed in parallel,
+ * CSV chunks on line boundaries and columnar files on their blocks. The
+ * parser reads numbers straight from the mapped bytes and looks names up
+ * by their bytes, so a row costs no allocation; only a name not seen
+ * before in the chunk becomes a String. Each chunk fills its own table,
+ * and the tables are added to Statistics in file order once every chunk
+ * is parsed.
+ *
+ * Horse ids in a history belong to whoever wrote it, so each distinct one
+ * is given a fresh id from HorseGUI.reserveIds; Result maps between them.
+ * Every import takes a new run of ids: importing the same file twice
+ * adds its horses, and their races, twice.
+ * CSV names may be quoted but must not contain line breaks.
+ */
+public class HistoryImporter {
+    static final String ROSTER_HEADER = "name,confidence,breed,coat_color,saddle,horseshoes";
+    private static final long CHUNK_BYTES = 32L << 20;
+    // Mapped past the end of each chunk, to finish its last line
+    private static final int MAX_LINE = 1 << 16;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private static final byte[][] BREEDS = labels(HorseTraits.Breed.values());
+    private static final byte[][] COATS = labels(HorseTraits.CoatColor.values());
+    private static final byte[][] SADDLES = labels(HorseTraits.Saddle.values());
+    private static final byte[][] SHOES = labels(HorseTraits.Horseshoes.values());
+
+    /**
+     * Appends every race in the file to statistics
+     */
+    public Result importHistory(Path file, Statistics statistics) throws IOException {
+        long start = System.nanoTime();
+        List<Chunk> chunks;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            byte[] magic = readMagic(channel);
+            if (Arrays.equals(magic, RaceResultExporter.MAGIC)) {
+                chunks = readColumnar(channel, false);
+            } else if (Arrays.equals(magic, RaceResultExporter.MAGIC_SHARED_NAMES)) {
+                chunks = readColumnar(channel, true);
+            } else {
+                chunks = readCsvHistory(channel);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // Give every horse in the file an id of our own
+        IntIntMap horseIds = new IntIntMap();
+        for (Chunk chunk : chunks) {
+            for (int fileId : chunk.horseNames.keys()) {
+                horseIds.put(fileId, 0);
+            }
+        }
+        int firstId = HorseGUI.reserveIds(horseIds.size());
+        int[] fileIds = horseIds.keys();
+        for (int i = 0; i < fileIds.length; i++) {
+            horseIds.put(fileIds[i], firstId + i);
+        }
+        // A horse's latest name in the file wins
+        IntObjectMap<String> names = new IntObjectMap<>(horseIds.size());
+        for (Chunk chunk : chunks) {
+            chunk.horseNames.forEach((fileId, nameCode) ->
+                names.put(horseIds.get(fileId, 0), chunk.dictionary.get(nameCode)));
+        }
+
+        long rows = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            statistics.importRaces(chunks.get(i).table, horseIds, names);
+            rows += chunks.get(i).table.size();
+            chunks.set(i, null);
+        }
+        return new Result(rows, horseIds, firstId, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Reads a roster CSV into a new roster, in file order
+     */
+    public HorseRoster importRoster(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = (int) ((size + CHUNK_BYTES - 1) / CHUNK_BYTES);
+            HorseRoster[] parts = new HorseRoster[count];
+            IntStream.range(0, count).parallel().forEach(i -> {
+                HorseRoster part = new HorseRoster(1024);
+                CsvCursor cursor = openChunk(channel, i, size, ROSTER_HEADER);
+                byte[] name = new byte[64];
+                while (cursor.nextLine()) {
+                    int length = cursor.nextField();
+                    if (length > name.length) name = new byte[length * 2];
+                    System.arraycopy(cursor.field, 0, name, 0, length);
+                    double base = cursor.nextDouble();
+                    int breed = cursor.nextLabel(BREEDS);
+                    int coat = cursor.nextLabel(COATS);
+                    int saddle = cursor.nextLabel(SADDLES);
+                    int shoes = cursor.nextLabel(SHOES);
+                    cursor.endLine();
+                    part.add(name, 0, length, base, breed, coat, saddle, shoes);
+                }
+                parts[i] = part;
+            });
+            int total = 0;
+            for (HorseRoster part : parts) {
+                total += part.size();
+            }
+            HorseRoster roster = new HorseRoster(total);
+            for (HorseRoster part : parts) {
+                roster.addAll(part);
+            }
+            return roster;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * The file's first bytes, as many as a columnar magic has or fewer
+     */
+    private static byte[] readMagic(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(RaceResultExporter.MAGIC.length);
+        while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+        }
+        return Arrays.copyOf(magic.array(), magic.position());
+    }
+
+    // CSV
+
+    private static List<Chunk> readCsvHistory(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int count = (int) Math.max(1, (size + CHUNK_BYTES - 1) / CHUNK_BYTES);
+        Chunk[] chunks = new Chunk[count];
+        String header = RaceResultExporter.CSV_HEADER.trim();
+        IntStream.range(0, count).parallel().forEach(i -> {
+            Chunk chunk = new Chunk(new ByteDictionary());
+            CsvCursor cursor = openChunk(channel, i, size, header);
+            ByteDictionary dictionary = (ByteDictionary) chunk.dictionary;
+            while (cursor.nextLine()) {
+                cursor.nextLong();
+                int horseId = (int) cursor.nextLong();
+                int name = cursor.nextName(dictionary);
+                int track = chunk.tableCode(cursor.nextName(dictionary));
+                int weather = chunk.tableCode(cursor.nextName(dictionary));
+                double finishingTime = cursor.nextDouble();
+                double averageSpeed = cursor.nextDouble();
+                double initialConfidence = cursor.nextDouble();
+                double finalConfidence = cursor.nextDouble();
+                boolean winner = cursor.nextLong() != 0;
+                cursor.endLine();
+                chunk.horseNames.put(horseId, name);
+                chunk.table.add(horseId, track, weather, finishingTime, averageSpeed, initialConfidence,
+                    finalConfidence, winner);
+            }
+            chunks[i] = chunk;
+        });
+        return Arrays.asList(chunks);
+    }
+
+    /**
+     * Maps one chunk of a CSV file and positions a cursor on its first
+     * line. A line belongs to the chunk its first byte is in.
+     */
+    private static CsvCursor openChunk(FileChannel channel, int index, long size, String header) {
+        long start = index * CHUNK_BYTES;
+        long end = Math.min(size, start + CHUNK_BYTES);
+        // One byte back, to tell whether the chunk starts on a new line
+        long mapStart = Math.max(0, start - 1);
+        long mapEnd = Math.min(size, end + MAX_LINE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+            CsvCursor cursor = new CsvCursor(buffer, mapStart, (int) (end - mapStart));
+            if (start == 0) {
+                cursor.expectHeader(header);
+            } else {
+                cursor.skipPastNewline();
+            }
+            return cursor;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads fields from mapped CSV bytes. Text fields are copied, unquoted,
+     * into a reused array rather than made into Strings.
+     */
+    private static class CsvCursor {
+        private final ByteBuffer buffer;
+        private final int limit;
+        private final long offset;
+        // Lines starting at or after this belong to the next chunk
+        private final int end;
+        private int position;
+        byte[] field = new byte[256];
+        // Hash of the bytes in field, worked out as they are copied
+        int fieldHash;
+
+        CsvCursor(ByteBuffer buffer, long offset, int end) {
+            this.buffer = buffer;
+            this.limit = buffer.limit();
+            this.offset = offset;
+            this.end = end;
+        }
+
+        void expectHeader(String header) {
+            skipPastNewline();
+            if (!decode(0, position).trim().equals(header)) {
+                throw malformed(0, "expected the header " + header);
+            }
+        }
+
+        void skipPastNewline() {
+            while (position < limit && buffer.get(position++) != '\n') {
+            }
+        }
+
+        /**
+         * Moves to the next line that belongs to this chunk, skipping blank
+         * ones
+         */
+        boolean nextLine() {
+            while (position < end && position < limit) {
+                byte b = buffer.get(position);
+                if (b != '\n' && b != '\r') return true;
+                position++;
+            }
+            return false;
+        }
+
+        void endLine() {
+            if (position < limit && buffer.get(position) == '\r') position++;
+            if (position < limit) {
+                if (buffer.get(position) != '\n') throw malformed(position, "expected the end of the line");
+                position++;
+            }
+        }
+
+        /**
+         * Copies the next field into field, without quotes, and steps past
+         * its comma
+         *
+         * @return the field's length in bytes
+         */
+        int nextField() {
+            int length = 0;
+            fieldHash = 1;
+            if (position < limit && buffer.get(position) == '"') {
+                position++;
+                while (true) {
+                    if (position >= limit) throw malformed(position, "unterminated quote");
+                    byte b = buffer.get(position++);
+                    if (b == '"') {
+                        if (position < limit && buffer.get(position) == '"') {
+                            position++;
+                        } else {
+                            break;
+                        }
+                    }
+                    length = put(length, b);
+                }
+            } else {
+                while (position < limit) {
+                    byte b = buffer.get(position);
+                    if (b == ',' || b == '\n' || b == '\r') break;
+                    length = put(length, b);
+                    position++;
+                }
+            }
+            skipComma();
+            return length;
+        }
+
+        private int put(int length, byte b) {
+            if (length == field.length) field = Arrays.copyOf(field, length * 2);
+            field[length] = b;
+            fieldHash = 31 * fieldHash + b;
+            return length + 1;
+        }
+
+        int nextName(ByteDictionary dictionary) {
+            int length = nextField();
+            return dictionary.code(field, length, fieldHash);
+        }
+
+        int nextLabel(byte[][] labels) {
+            int length = nextField();
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i].length == length && Arrays.equals(labels[i], 0, length, field, 0, length)) return i;
+            }
+            throw malformed(position, "unknown trait " + new String(field, 0, length, StandardCharsets.UTF_8));
+        }
+
+        long nextLong() {
+            int start = position;
+            boolean negative = position < limit && buffer.get(position) == '-';
+            if (negative) position++;
+            long value = 0;
+            int digits = 0;
+            while (position < limit) {
+                int digit = buffer.get(position) - '0';
+                if (digit < 0 || digit > 9) break;
+                value = value * 10 + digit;
+                digits++;
+                position++;
+            }
+            if (digits == 0 || digits > 18) throw malformed(start, "expected a whole number");
+            skipComma();
+            return negative ? -value : value;
+        }
+
+        /**
+         * Plain decimals with up to 15 digits are worked out here, exactly:
+         * both the digits and the power of ten are exact doubles, so the
+         * one division rounds correctly. Anything else, exponents, NaN or
+         * more digits, goes to Double.parseDouble.
+         */
+        double nextDouble() {
+            int start = position;
+            boolean negative = position < limit && buffer.get(position) == '-';
+            if (negative) position++;
+            long mantissa = 0;
+            int digits = 0;
+            int scale = -1;
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b == '.' && scale < 0) {
+                    scale = 0;
+                } else if (b >= '0' && b <= '9') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (scale >= 0) scale++;
+                } else {
+                    break;
+                }
+                position++;
+            }
+            boolean plain = digits > 0 && digits <= 15
+                && (position >= limit || isSeparator(buffer.get(position)));
+            double value;
+            if (plain) {
+                value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+                if (negative) value = -value;
+            } else {
+                while (position < limit && !isSeparator(buffer.get(position))) {
+                    position++;
+                }
+                try {
+                    value = Double.parseDouble(decode(start, position));
+                } catch (NumberFormatException e) {
+                    throw malformed(start, "expected a number");
+                }
+            }
+            skipComma();
+            return value;
+        }
+
+        private static boolean isSeparator(byte b) {
+            return b == ',' || b == '\n' || b == '\r';
+        }
+
+        private void skipComma() {
+            if (position < limit && buffer.get(position) == ',') position++;
+        }
+
+        private String decode(int from, int to) {
+            byte[] bytes = new byte[to - from];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(from + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private UncheckedIOException malformed(int at, String problem) {
+            return new UncheckedIOException(new IOException("Malformed row at byte " + (offset + at) + ": " + problem));
+        }
+    }
+
+    /**
+     * Names keyed by their UTF-8 bytes, so looking up a name already seen
+     * makes no String. Open addressing over hashes of the bytes.
+     */
+    private static class ByteDictionary extends AbstractList<String> {
+        private int[] slots = new int[64]; // code + 1, 0 when free
+        private byte[][] keys = new byte[16][];
+        private int[] hashes = new int[16];
+        private final List<String> values = new ArrayList<>();
+
+        /**
+         * @param hash the bytes' hash, as CsvCursor works it out
+         */
+        int code(byte[] bytes, int length, int hash) {
+            int mask = slots.length - 1;
+            for (int slot = IntDoubleMap.mix(hash) & mask; ; slot = (slot + 1) & mask) {
+                int code = slots[slot] - 1;
+                if (code < 0) {
+                    return insert(slot, hash, bytes, length);
+                }
+                if (hashes[code] == hash && keys[code].length == length
+                        && Arrays.equals(keys[code], 0, length, bytes, 0, length)) {
+                    return code;
+                }
+            }
+        }
+
+        private int insert(int slot, int hash, byte[] bytes, int length) {
+            int code = values.size();
+            if (code == keys.length) {
+                keys = Arrays.copyOf(keys, code * 2);
+                hashes = Arrays.copyOf(hashes, code * 2);
+            }
+            keys[code] = Arrays.copyOf(bytes, length);
+            hashes[code] = hash;
+            values.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+            slots[slot] = code + 1;
+            if (values.size() * 2 > slots.length) {
+                int[] larger = new int[slots.length * 2];
+                int mask = larger.length - 1;
+                for (int i = 0; i < values.size(); i++) {
+                    int free = IntDoubleMap.mix(hashes[i]) & mask;
+                    while (larger[free] != 0) {
+                        free = (free + 1) & mask;
+                    }
+                    larger[free] = i + 1;
+                }
+                slots = larger;
+            }
+            return code;
+        }
+
+        @Override
+        public String get(int code) {
+            return values.get(code);
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+    }
+
+    // Columnar
+
+    /**
+     * @param sharedNames whether name codes carry on from block to block,
+     *                    as in files written before each block had its own
+     */
+    private static List<Chunk> readColumnar(FileChannel channel, boolean sharedNames) throws IOException {
+        long size = channel.size();
+        int rowWidth = Arrays.stream(RaceResultExporter.COLUMN_WIDTHS).sum();
+        ByteBuffer header = ByteBuffer.allocate(8);
+        long position = RaceResultExporter.MAGIC.length;
+        readFully(channel, header, position, 4);
+        if (header.getInt(0) != RaceResultExporter.COLUMN_WIDTHS.length) {
+            throw new IOException("Unsupported column count " + header.getInt(0));
+        }
+        position += 4;
+
+        // Walk the block headers for the names and where each block's columns are;
+        // the columns themselves are left to the workers
+        List<String> dictionary = new ArrayList<>();
+        List<long[]> blocks = new ArrayList<>();
+        List<List<String>> dictionaries = new ArrayList<>();
+        while (position < size) {
+            readFully(channel, header, position, 8);
+            int rows = header.getInt(0);
+            int names = header.getInt(4);
+            position += 8;
+            if (!sharedNames) {
+                dictionary = new ArrayList<>();
+            }
+            for (int i = 0; i < names; i++) {
+                readFully(channel, header, position, 8);
+                int code = header.getInt(0);
+                ByteBuffer bytes = ByteBuffer.allocate(header.getInt(4));
+                readFully(channel, bytes, position + 8, bytes.capacity());
+                if (code != dictionary.size()) throw new IOException("Name codes out of order at byte " + position);
+                dictionary.add(new String(bytes.array(), StandardCharsets.UTF_8));
+                position += 8 + bytes.capacity();
+            }
+            if (position + (long) rows * rowWidth > size) throw new IOException("Truncated block at byte " + position);
+            blocks.add(new long[] {position, rows});
+            dictionaries.add(dictionary);
+            position += (long) rows * rowWidth;
+        }
+
+        Chunk[] chunks = new Chunk[blocks.size()];
+        IntStream.range(0, chunks.length).parallel().forEach(i -> {
+            long start = blocks.get(i)[0];
+            int rows = (int) blocks.get(i)[1];
+            Chunk chunk = new Chunk(dictionaries.get(i));
+            chunk.table.ensureCapacity(rows);
+            try {
+                ByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, start, (long) rows * rowWidth);
+                int[] columns = new int[RaceResultExporter.COLUMN_WIDTHS.length];
+                for (int c = 1; c < columns.length; c++) {
+                    columns[c] = columns[c - 1] + RaceResultExporter.COLUMN_WIDTHS[c - 1] * rows;
+                }
+                for (int row = 0; row < rows; row++) {
+                    int horseId = block.getInt(columns[0] + row * 4);
+                    chunk.horseNames.put(horseId, block.getInt(columns[1] + row * 4));
+                    chunk.table.add(horseId, chunk.tableCode(block.getInt(columns[2] + row * 4)),
+                        chunk.tableCode(block.getInt(columns[3] + row * 4)), block.getDouble(columns[4] + row * 8),
+                        block.getDouble(columns[5] + row * 8), block.getDouble(columns[6] + row * 8),
+                        block.getDouble(columns[7] + row * 8), block.get(columns[8] + row) != 0);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            chunks[i] = chunk;
+        });
+        return Arrays.asList(chunks);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length)
+            throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated file at byte " + position);
+            }
+        }
+    }
+
+    /**
+     * The rows one worker parsed, with track and weather coded by its own
+     * table and horse names by the dictionary
+     */
+    private static class Chunk {
+        final RaceStatsTable table = new RaceStatsTable();
+        final IntIntMap horseNames = new IntIntMap(); // file horse id to dictionary code
+        final List<String> dictionary;
+        private int[] tableCodes = new int[16];
+
+        Chunk(List<String> dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        int tableCode(int code) {
+            if (code >= tableCodes.length) tableCodes = Arrays.copyOf(tableCodes, Math.max(code + 1, code * 2));
+            if (tableCodes[code] == 0) tableCodes[code] = table.codeOf(dictionary.get(code)) + 1;
+            return tableCodes[code] - 1;
+        }
+    }
+
+    private static byte[][] labels(Object[] values) {
+        byte[][] labels = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            labels[i] = values[i].toString().getBytes(StandardCharsets.UTF_8);
+        }
+        return labels;
+    }
+
+    public static class Result {
+        private final long rows;
+        private final IntIntMap horseIds;
+        private final int firstHorseId;
+        private final long millis;
+
+        Result(long rows, IntIntMap horseIds, int firstHorseId, long millis) {
+            this.rows = rows;
+            this.horseIds = horseIds;
+            this.firstHorseId = firstHorseId;
+            this.millis = millis;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public int getHorseCount() {
+            return horseIds.size();
+        }
+
+        /**
+         * The id a horse from the file was recorded under, -1 if it was not
+         * in the file
+         */
+        public int getHorseId(int fileHorseId) {
+            return horseIds.get(fileHorseId, -1);
+        }
+
+        /**
+         * Imported horses have the ids from this one to this plus the horse count
+         */
+        public int getFirstHorseId() {
+            return firstHorseId;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    /**
+     * Writes a synthetic history in both formats and times importing it
+     */
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Path directory = Files.createTempDirectory("history");
+        Path csv = directory.resolve("history.csv");
+        Path columnar = directory.resolve("history.cols");
+        SplittableRandom random = new SplittableRandom(1);
+        try (RaceResultExporter csvOut = new RaceResultExporter(csv, RaceResultExporter.Format.CSV);
+             RaceResultExporter columnarOut = new RaceResultExporter(columnar, RaceResultExporter.Format.COLUMNAR)) {
+            for (int row = 0; row < rows; row++) {
+                int horse = random.nextInt(10_000);
+                String track = SeasonSimulator.TRACK_SHAPES[random.nextInt(SeasonSimulator.TRACK_SHAPES.length)];
+                String weather = SeasonSimulator.WEATHER[random.nextInt(SeasonSimulator.WEATHER.length)];
+                double time = 5 + random.nextDouble() * 20;
+                double confidence = 0.5 + random.nextDouble() * 0.4;
+                boolean winner = random.nextInt(8) == 0;
+                csvOut.write(horse, "Horse " + horse, track, weather, time, 50 / time, confidence, confidence, winner);
+                columnarOut.write(horse, "Horse " + horse, track, weather, time, 50 / time, confidence, confidence,
+                    winner);
+            }
+        }
+        for (Path file : new Path[] {csv, columnar}) {
+            Result result = new HistoryImporter().importHistory(file, new Statistics());
+            System.out.printf("%s: %d rows, %d horses, %.1f MB in %d ms%n", file.getFileName(), result.getRows(),
+                result.getHorseCount(), Files.size(file) / 1e6, result.getMillis());
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+}
@@ -1,7 +1,11 @@
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class HorseGUI extends Horse {
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private final int id;
     private String breed;
     private String coatColor;
     private String equipment;
@@ -22,6 +26,7 @@ public class HorseGUI extends Horse {
     
     public HorseGUI(char horseSymbol, String horseName, double horseConfidence) {
         super(horseSymbol, horseName, horseConfidence);
+        this.id = nextId.getAndIncrement();
         this.breed = "Thoroughbred"; // Default breed
         this.coatColor = "Brown"; // Default color
         this.equipment = "Standard"; // Default equipment
@@ -41,6 +46,41 @@ public class HorseGUI extends Horse {
         this.totalTime = 0;
     }
     
+    /**
+     * A horse whose attributes are already worked out, as HorseRoster
+     * stores them, so none of the setters has to run
+     */
+    HorseGUI(char horseSymbol, String horseName, double confidence, double speed, double stamina,
+             String breed, String coatColor, String saddle, String horseshoes) {
+        this(horseSymbol, horseName, confidence);
+        this.breed = breed;
+        this.coatColor = coatColor;
+        this.saddle = saddle;
+        this.horseshoes = horseshoes;
+        this.baseSpeed = speed;
+        this.baseStamina = stamina;
+        this.speed = speed;
+        this.stamina = stamina;
+    }
+
+    /**
+     * Sets aside a run of ids for horses that are not HorseGUI objects,
+     * such as imported ones, so they never clash with a HorseGUI's
+     *
+     * @return the first id of the run
+     */
+    static int reserveIds(int count) {
+        return nextId.getAndAdd(count);
+    }
+
+    /**
+     * Number that identifies this horse for the rest of the session,
+     * whatever its name, lane or attributes become
+     */
+    public int getId() {
+        return id;
+    }
+
     public void setBreed(String breed) {
         this.breed = breed;
         updateAttributes();
@@ -67,105 +107,71 @@ public class HorseGUI extends Horse {
     
     private void updateModifiers() {
         // Update speed and confidence modifiers based on breed and equipment
-        switch (breed) {
-            case "Thoroughbred":
-                speedModifier = 1.2;
-                confidenceModifier = 0.9;
-                break;
-            case "Arabian":
-                speedModifier = 1.1;
-                confidenceModifier = 1.1;
-                break;
-            case "Quarter Horse":
-                speedModifier = 1.0;
-                confidenceModifier = 1.0;
-                break;
-            default:
-                speedModifier = 1.0;
-                confidenceModifier = 1.0;
-        }
+        HorseTraits.Breed breedTraits = HorseTraits.Breed.of(breed);
+        speedModifier = breedTraits != null ? breedTraits.getSpeedModifier() : 1.0;
+        confidenceModifier = breedTraits != null ? breedTraits.getConfidenceModifier() : 1.0;
+
         // Adjust modifiers based on equipment
-        switch (equipment) {
-            case "Lightweight":
-                speedModifier *= 1.1;
-                confidenceModifier *= 0.9;
-                break;
-            case "Heavy":
-                speedModifier *= 0.9;
-                confidenceModifier *= 1.1;
-                break;
-            case "Standard":
-            default:
-                // No modification
-                break;
+        HorseTraits.Equipment equipmentTraits = HorseTraits.Equipment.of(equipment);
+        if (equipmentTraits != null) {
+            speedModifier *= equipmentTraits.getSpeedModifier();
+            confidenceModifier *= equipmentTraits.getConfidenceModifier();
         }
     }
+
+    /**
+     * Changes breed and equipment in one go. Unlike calling the setters one
+     * by one, the breed and horseshoe effects are applied to the horse's
+     * natural confidence once instead of compounding.
+     */
+    public void setTraits(String breed, String saddle, String horseshoes, String equipment) {
+        double natural = getNaturalConfidence();
+        this.breed = breed;
+        this.saddle = saddle;
+        this.horseshoes = horseshoes;
+        this.equipment = equipment;
+        updateModifiers();
+        applyTraits(natural);
+    }
+
+    /**
+     * Confidence with the current breed and horseshoe effects taken back out
+     */
+    public double getNaturalConfidence() {
+        HorseTraits.Breed breedTraits = HorseTraits.Breed.of(breed);
+        HorseTraits.Horseshoes shoeTraits = HorseTraits.Horseshoes.of(horseshoes);
+        double factor = (breedTraits != null ? breedTraits.getConfidence() : 1.0)
+            * (shoeTraits != null ? shoeTraits.getConfidence() : 1.0);
+        return Math.min(1.0, super.getConfidence() / factor);
+    }
     
     private void updateAttributes() {
+        applyTraits(getConfidence());
+    }
+
+    private void applyTraits(double confidence) {
         // Reset base attributes
         baseSpeed = 1.0;
-        baseConfidence = getConfidence();
+        baseConfidence = confidence;
         baseStamina = 1.0;
         
-        // Apply breed effects
-        switch (breed) {
-            case "Thoroughbred":
-                baseSpeed *= 1.2;
-                baseConfidence *= 0.9;
-                baseStamina *= 0.8;
-                break;
-            case "Arabian":
-                baseSpeed *= 1.1;
-                baseConfidence *= 1.1;
-                baseStamina *= 1.2;
-                break;
-            case "Quarter Horse":
-                baseSpeed *= 1.3;
-                baseConfidence *= 0.8;
-                baseStamina *= 0.9;
-                break;
-            case "Appaloosa":
-                baseSpeed *= 0.9;
-                baseConfidence *= 1.0;
-                baseStamina *= 1.1;
-                break;
-            case "Paint":
-                baseSpeed *= 1.0;
-                baseConfidence *= 1.0;
-                baseStamina *= 1.0;
-                break;
+        HorseTraits.Breed breedTraits = HorseTraits.Breed.of(breed);
+        if (breedTraits != null) {
+            baseSpeed *= breedTraits.getSpeed();
+            baseConfidence *= breedTraits.getConfidence();
+            baseStamina *= breedTraits.getStamina();
         }
-        
-        // Apply saddle effects
-        switch (saddle) {
-            case "Racing":
-                baseSpeed *= 1.1;
-                baseStamina *= 0.9;
-                break;
-            case "Lightweight":
-                baseSpeed *= 1.05;
-                baseStamina *= 1.05;
-                break;
-            case "Heavy":
-                baseSpeed *= 0.9;
-                baseStamina *= 1.1;
-                break;
+
+        HorseTraits.Saddle saddleTraits = HorseTraits.Saddle.of(saddle);
+        if (saddleTraits != null) {
+            baseSpeed *= saddleTraits.getSpeed();
+            baseStamina *= saddleTraits.getStamina();
         }
-        
-        // Apply horseshoe effects
-        switch (horseshoes) {
-            case "Racing":
-                baseSpeed *= 1.1;
-                baseConfidence *= 0.9;
-                break;
-            case "Lightweight":
-                baseSpeed *= 1.05;
-                baseConfidence *= 1.05;
-                break;
-            case "Heavy":
-                baseSpeed *= 0.9;
-                baseConfidence *= 1.1;
-                break;
+
+        HorseTraits.Horseshoes shoeTraits = HorseTraits.Horseshoes.of(horseshoes);
+        if (shoeTraits != null) {
+            baseSpeed *= shoeTraits.getSpeed();
+            baseConfidence *= shoeTraits.getConfidence();
         }
         
         // Update current attributes
@@ -264,6 +270,11 @@ public class HorseGUI extends Horse {
             super.moveForward();
         }
     }
+
+    public int getStepsPerMove() {
+        // Same number of units moveForward covers
+        return Math.max(1, (int) Math.ceil(speedModifier));
+    }
     
     @Override
     public double getConfidence() {
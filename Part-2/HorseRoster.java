@@ -0,0 +1,325 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * A registry of horses held as primitive columns instead of HorseGUI
+ * objects: a float per attribute and a byte per trait, about 20 bytes a
+ * horse, so a million horses take around 20MB.
+ *
+ * Horses are identified by their index. Attributes are worked out once
+ * when a horse is added, with the same breed and equipment rules HorseGUI
+ * applies, and toHorse() turns an entry into a HorseGUI when one is needed
+ * on the track.
+ *
+ * Horses are "Horse 1", "Horse 2" and so on unless given a name. Names
+ * are kept as UTF-8 bytes end to end in one array rather than as a String
+ * each, and the array is only made once the first name is added.
+ */
+public class HorseRoster {
+    private float[] baseConfidence;
+    private float[] confidence;
+    private float[] speed;
+    private float[] stamina;
+    private byte[] breed;
+    private byte[] coatColor;
+    private byte[] saddle;
+    private byte[] horseshoes;
+    private byte[] nameBytes;
+    // Where each horse's name ends in nameBytes; it starts where the one before ends
+    private int[] nameEnds;
+    private int size;
+
+    public HorseRoster() {
+        this(16);
+    }
+
+    public HorseRoster(int capacity) {
+        capacity = Math.max(1, capacity);
+        baseConfidence = new float[capacity];
+        confidence = new float[capacity];
+        speed = new float[capacity];
+        stamina = new float[capacity];
+        breed = new byte[capacity];
+        coatColor = new byte[capacity];
+        saddle = new byte[capacity];
+        horseshoes = new byte[capacity];
+    }
+
+    /**
+     * A roster of random horses, drawn the way Race fills new lanes
+     */
+    public static HorseRoster generate(int count, long seed) {
+        HorseRoster roster = new HorseRoster(count);
+        roster.addRandom(count, new SplittableRandom(seed));
+        return roster;
+    }
+
+    /**
+     * Adds random horses: confidence between 0.5 and 0.9 and any breed,
+     * coat and equipment
+     */
+    public void addRandom(int count, SplittableRandom random) {
+        ensureCapacity(size + count);
+        int breeds = HorseTraits.Breed.values().length;
+        int coats = HorseTraits.CoatColor.values().length;
+        int saddles = HorseTraits.Saddle.values().length;
+        int shoes = HorseTraits.Horseshoes.values().length;
+        for (int i = 0; i < count; i++) {
+            set(size++, 0.5 + random.nextDouble() * 0.4, random.nextInt(breeds), random.nextInt(coats),
+                random.nextInt(saddles), random.nextInt(shoes));
+        }
+    }
+
+    /**
+     * Adds one horse
+     *
+     * @return the new horse's index
+     */
+    public int add(double baseConfidence, HorseTraits.Breed breed, HorseTraits.CoatColor coatColor,
+                   HorseTraits.Saddle saddle, HorseTraits.Horseshoes horseshoes) {
+        ensureCapacity(size + 1);
+        set(size, baseConfidence, breed.ordinal(), coatColor.ordinal(), saddle.ordinal(), horseshoes.ordinal());
+        return size++;
+    }
+
+    /**
+     * Adds one horse with a name of its own
+     *
+     * @return the new horse's index
+     */
+    public int add(String name, double baseConfidence, HorseTraits.Breed breed, HorseTraits.CoatColor coatColor,
+                   HorseTraits.Saddle saddle, HorseTraits.Horseshoes horseshoes) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return add(bytes, 0, bytes.length, baseConfidence, breed.ordinal(), coatColor.ordinal(), saddle.ordinal(),
+            horseshoes.ordinal());
+    }
+
+    /**
+     * Adds one horse named by UTF-8 bytes, with traits by ordinal, so
+     * bulk loaders need not make a String or enum lookup per horse
+     */
+    int add(byte[] name, int offset, int length, double base, int breedOrdinal, int coatOrdinal,
+            int saddleOrdinal, int shoeOrdinal) {
+        ensureCapacity(size + 1);
+        set(size, base, breedOrdinal, coatOrdinal, saddleOrdinal, shoeOrdinal);
+        if (length > 0 || nameEnds != null) {
+            int start = startNames();
+            if (start + length > nameBytes.length) {
+                nameBytes = Arrays.copyOf(nameBytes, Math.max(start + length, nameBytes.length * 2));
+            }
+            System.arraycopy(name, offset, nameBytes, start, length);
+            nameEnds[size] = start + length;
+        }
+        return size++;
+    }
+
+    /**
+     * Appends every horse in another roster, names and all
+     */
+    public void addAll(HorseRoster other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.baseConfidence, 0, baseConfidence, size, other.size);
+        System.arraycopy(other.confidence, 0, confidence, size, other.size);
+        System.arraycopy(other.speed, 0, speed, size, other.size);
+        System.arraycopy(other.stamina, 0, stamina, size, other.size);
+        System.arraycopy(other.breed, 0, breed, size, other.size);
+        System.arraycopy(other.coatColor, 0, coatColor, size, other.size);
+        System.arraycopy(other.saddle, 0, saddle, size, other.size);
+        System.arraycopy(other.horseshoes, 0, horseshoes, size, other.size);
+        if (other.nameEnds != null) {
+            int start = startNames();
+            int length = other.size > 0 ? other.nameEnds[other.size - 1] : 0;
+            if (start + length > nameBytes.length) {
+                nameBytes = Arrays.copyOf(nameBytes, Math.max(start + length, nameBytes.length * 2));
+            }
+            System.arraycopy(other.nameBytes, 0, nameBytes, start, length);
+            for (int i = 0; i < other.size; i++) {
+                nameEnds[size + i] = start + other.nameEnds[i];
+            }
+        } else if (nameEnds != null) {
+            Arrays.fill(nameEnds, size, size + other.size, startNames());
+        }
+        size += other.size;
+    }
+
+    /**
+     * Makes the name arrays if there are none yet, with every horse so far
+     * unnamed, and returns where the next name starts
+     */
+    private int startNames() {
+        if (nameEnds == null) {
+            nameEnds = new int[confidence.length];
+            nameBytes = new byte[Math.max(64, size * 8)];
+            return 0;
+        }
+        return size > 0 ? nameEnds[size - 1] : 0;
+    }
+
+    private void set(int index, double base, int breedOrdinal, int coatOrdinal, int saddleOrdinal, int shoeOrdinal) {
+        HorseTraits.Breed breedTraits = HorseTraits.Breed.at(breedOrdinal);
+        HorseTraits.Saddle saddleTraits = HorseTraits.Saddle.at(saddleOrdinal);
+        HorseTraits.Horseshoes shoeTraits = HorseTraits.Horseshoes.at(shoeOrdinal);
+        baseConfidence[index] = (float) base;
+        confidence[index] = (float) Math.max(0.0, Math.min(1.0,
+            base * breedTraits.getConfidence() * shoeTraits.getConfidence()));
+        speed[index] = (float) (breedTraits.getSpeed() * saddleTraits.getSpeed() * shoeTraits.getSpeed());
+        stamina[index] = (float) (breedTraits.getStamina() * saddleTraits.getStamina());
+        breed[index] = (byte) breedOrdinal;
+        coatColor[index] = (byte) coatOrdinal;
+        saddle[index] = (byte) saddleOrdinal;
+        horseshoes[index] = (byte) shoeOrdinal;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= confidence.length) return;
+        int length = Math.max(capacity, confidence.length + (confidence.length >> 1));
+        baseConfidence = Arrays.copyOf(baseConfidence, length);
+        confidence = Arrays.copyOf(confidence, length);
+        speed = Arrays.copyOf(speed, length);
+        stamina = Arrays.copyOf(stamina, length);
+        breed = Arrays.copyOf(breed, length);
+        coatColor = Arrays.copyOf(coatColor, length);
+        saddle = Arrays.copyOf(saddle, length);
+        horseshoes = Arrays.copyOf(horseshoes, length);
+        if (nameEnds != null) {
+            nameEnds = Arrays.copyOf(nameEnds, length);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getName(int index) {
+        if (nameEnds != null) {
+            int start = index > 0 ? nameEnds[index - 1] : 0;
+            if (nameEnds[index] > start) {
+                return new String(nameBytes, start, nameEnds[index] - start, StandardCharsets.UTF_8);
+            }
+        }
+        return "Horse " + (index + 1);
+    }
+
+    /**
+     * Confidence before breed and horseshoes are applied
+     */
+    public double getBaseConfidence(int index) {
+        return baseConfidence[index];
+    }
+
+    public double getConfidence(int index) {
+        return confidence[index];
+    }
+
+    public double getSpeed(int index) {
+        return speed[index];
+    }
+
+    public double getStamina(int index) {
+        return stamina[index];
+    }
+
+    public HorseTraits.Breed getBreed(int index) {
+        return HorseTraits.Breed.at(breed[index]);
+    }
+
+    public HorseTraits.CoatColor getCoatColor(int index) {
+        return HorseTraits.CoatColor.at(coatColor[index]);
+    }
+
+    public HorseTraits.Saddle getSaddle(int index) {
+        return HorseTraits.Saddle.at(saddle[index]);
+    }
+
+    public HorseTraits.Horseshoes getHorseshoes(int index) {
+        return HorseTraits.Horseshoes.at(horseshoes[index]);
+    }
+
+    /**
+     * Every horse the filter accepts, in index order
+     */
+    public int[] select(IntPredicate filter) {
+        int[] matches = new int[16];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!filter.test(i)) continue;
+            if (count == matches.length) {
+                matches = Arrays.copyOf(matches, count * 2);
+            }
+            matches[count++] = i;
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * A random field of horses the filter accepts, in one pass over the
+     * roster. Returns fewer than asked for if there are not enough.
+     */
+    public int[] drawField(int fieldSize, IntPredicate filter, SplittableRandom random) {
+        int[] field = new int[fieldSize];
+        int seen = 0;
+        for (int i = 0; i < size; i++) {
+            if (!filter.test(i)) continue;
+            // Reservoir sampling: every match ends up in the field with equal chance
+            if (seen < fieldSize) {
+                field[seen] = i;
+            } else {
+                int slot = random.nextInt(seen + 1);
+                if (slot < fieldSize) field[slot] = i;
+            }
+            seen++;
+        }
+        return seen < fieldSize ? Arrays.copyOf(field, seen) : field;
+    }
+
+    /**
+     * The most confident horses the filter accepts, best first
+     */
+    public int[] strongest(int count, IntPredicate filter) {
+        if (count <= 0 || size == 0) {
+            return new int[0];
+        }
+        int[] best = new int[count];
+        int found = 0;
+        for (int i = 0; i < size; i++) {
+            if (!filter.test(i)) continue;
+            if (found == count && confidence[i] <= confidence[best[count - 1]]) continue;
+            // Insertion into a short sorted list beats a heap for field-sized counts
+            int position = Math.min(found, count - 1);
+            while (position > 0 && confidence[best[position - 1]] < confidence[i]) {
+                best[position] = best[position - 1];
+                position--;
+            }
+            best[position] = i;
+            if (found < count) found++;
+        }
+        return found < count ? Arrays.copyOf(best, found) : best;
+    }
+
+    /**
+     * The per-tick numbers for a field of these horses, without building
+     * any HorseGUI objects
+     */
+    public RaceField field(int[] horses, Track track, int raceLength) {
+        double[] moveChance = new double[horses.length];
+        double[] fallChance = new double[horses.length];
+        int[] stepsPerMove = new int[horses.length];
+        for (int lane = 0; lane < horses.length; lane++) {
+            moveChance[lane] = Race.moveChance(confidence[horses[lane]], track);
+            fallChance[lane] = Race.fallChance(confidence[horses[lane]], track);
+            stepsPerMove[lane] = 1;
+        }
+        return new RaceField(raceLength, moveChance, fallChance, stepsPerMove);
+    }
+
+    /**
+     * A HorseGUI with this horse's attributes, for racing it on screen
+     */
+    public HorseGUI toHorse(int index) {
+        return new HorseGUI((char) ('A' + index % 26), getName(index), confidence[index], speed[index],
+            stamina[index], getBreed(index).toString(), getCoatColor(index).toString(),
+            getSaddle(index).toString(), getHorseshoes(index).toString());
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * The breeds and equipment a horse can have, with how each one scales
+ * its speed, confidence and stamina.
+ *
+ * HorseGUI still exposes these as strings; the labels here are those
+ * strings. HorseRoster stores the ordinals, so the constant order is
+ * part of its format and new values go at the end.
+ */
+public final class HorseTraits {
+    private HorseTraits() {
+    }
+
+    public enum Breed {
+        THOROUGHBRED("Thoroughbred", 1.2, 0.9, 0.8, 1.2, 0.9),
+        ARABIAN("Arabian", 1.1, 1.1, 1.2, 1.1, 1.1),
+        QUARTER_HORSE("Quarter Horse", 1.3, 0.8, 0.9, 1.0, 1.0),
+        APPALOOSA("Appaloosa", 0.9, 1.0, 1.1, 1.0, 1.0),
+        PAINT("Paint", 1.0, 1.0, 1.0, 1.0, 1.0);
+
+        private static final Breed[] VALUES = values();
+
+        private final String label;
+        private final double speed;
+        private final double confidence;
+        private final double stamina;
+        private final double speedModifier;
+        private final double confidenceModifier;
+
+        Breed(String label, double speed, double confidence, double stamina,
+              double speedModifier, double confidenceModifier) {
+            this.label = label;
+            this.speed = speed;
+            this.confidence = confidence;
+            this.stamina = stamina;
+            this.speedModifier = speedModifier;
+            this.confidenceModifier = confidenceModifier;
+        }
+
+        public double getSpeed() {
+            return speed;
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+
+        public double getStamina() {
+            return stamina;
+        }
+
+        /**
+         * How the breed scales the stride once equipment is fitted
+         */
+        public double getSpeedModifier() {
+            return speedModifier;
+        }
+
+        public double getConfidenceModifier() {
+            return confidenceModifier;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+
+        /**
+         * The breed with this label, null if there is none
+         */
+        public static Breed of(String label) {
+            for (Breed breed : VALUES) {
+                if (breed.label.equals(label)) return breed;
+            }
+            return null;
+        }
+
+        static Breed at(int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+
+    public enum CoatColor {
+        BROWN("Brown"),
+        BLACK("Black"),
+        GREY("Grey"),
+        WHITE("White"),
+        CHESTNUT("Chestnut");
+
+        private static final CoatColor[] VALUES = values();
+
+        private final String label;
+
+        CoatColor(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+
+        public static CoatColor of(String label) {
+            for (CoatColor color : VALUES) {
+                if (color.label.equals(label)) return color;
+            }
+            return null;
+        }
+
+        static CoatColor at(int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+
+    public enum Saddle {
+        STANDARD("Standard", 1.0, 1.0),
+        RACING("Racing", 1.1, 0.9),
+        LIGHTWEIGHT("Lightweight", 1.05, 1.05),
+        HEAVY("Heavy", 0.9, 1.1);
+
+        private static final Saddle[] VALUES = values();
+
+        private final String label;
+        private final double speed;
+        private final double stamina;
+
+        Saddle(String label, double speed, double stamina) {
+            this.label = label;
+            this.speed = speed;
+            this.stamina = stamina;
+        }
+
+        public double getSpeed() {
+            return speed;
+        }
+
+        public double getStamina() {
+            return stamina;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+
+        public static Saddle of(String label) {
+            for (Saddle saddle : VALUES) {
+                if (saddle.label.equals(label)) return saddle;
+            }
+            return null;
+        }
+
+        static Saddle at(int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+
+    public enum Horseshoes {
+        STANDARD("Standard", 1.0, 1.0),
+        LIGHTWEIGHT("Lightweight", 1.05, 1.05),
+        HEAVY("Heavy", 0.9, 1.1),
+        RACING("Racing", 1.1, 0.9);
+
+        private static final Horseshoes[] VALUES = values();
+
+        private final String label;
+        private final double speed;
+        private final double confidence;
+
+        Horseshoes(String label, double speed, double confidence) {
+            this.label = label;
+            this.speed = speed;
+            this.confidence = confidence;
+        }
+
+        public double getSpeed() {
+            return speed;
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+
+        public static Horseshoes of(String label) {
+            for (Horseshoes shoes : VALUES) {
+                if (shoes.label.equals(label)) return shoes;
+            }
+            return null;
+        }
+
+        static Horseshoes at(int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+
+    public enum Equipment {
+        STANDARD("Standard", 1.0, 1.0),
+        LIGHTWEIGHT("Lightweight", 1.1, 0.9),
+        HEAVY("Heavy", 0.9, 1.1);
+
+        private static final Equipment[] VALUES = values();
+
+        private final String label;
+        private final double speedModifier;
+        private final double confidenceModifier;
+
+        Equipment(String label, double speedModifier, double confidenceModifier) {
+            this.label = label;
+            this.speedModifier = speedModifier;
+            this.confidenceModifier = confidenceModifier;
+        }
+
+        public double getSpeedModifier() {
+            return speedModifier;
+        }
+
+        public double getConfidenceModifier() {
+            return confidenceModifier;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+
+        public static Equipment of(String label) {
+            for (Equipment equipment : VALUES) {
+                if (equipment.label.equals(label)) return equipment;
+            }
+            return null;
+        }
+
+        static Equipment at(int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+
+    /**
+     * The confidence a horse races with, as HorseGUI.setTraits leaves it:
+     * breed and horseshoes scale the horse's natural confidence, then
+     * breed and equipment modify the result
+     */
+    public static double raceConfidence(double naturalConfidence, Breed breed, Horseshoes horseshoes,
+                                        Equipment equipment) {
+        double confidence = Math.max(0.0, Math.min(1.0,
+            naturalConfidence * breed.getConfidence() * horseshoes.getConfidence()));
+        return confidence * breed.getConfidenceModifier() * equipment.getConfidenceModifier();
+    }
+
+    /**
+     * Units covered per move, as HorseGUI.getStepsPerMove works it out
+     */
+    public static int stepsPerMove(Breed breed, Equipment equipment) {
+        return Math.max(1, (int) Math.ceil(breed.getSpeedModifier() * equipment.getSpeedModifier()));
+    }
+}
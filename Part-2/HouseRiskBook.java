@@ -0,0 +1,187 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the house's liability on every outcome up to date as bets come in,
+ * and holds it under a configurable limit.
+ *
+ * Liability is what the house would pay out (stakes plus winnings) if that
+ * outcome happens. Each outcome has its own counter, in cents, updated with
+ * a compare-and-set, so checking the limit and taking on a bet is O(1) and
+ * never locks anything but that one outcome.
+ */
+public class HouseRiskBook {
+    public enum Outcome { WIN, EXOTIC }
+
+    public enum Status { ACCEPTED, REPRICED, REJECTED }
+
+    /**
+     * The book's answer to a bet: the odds it was taken at, if any,
+     * and the liability it added so it can be released again.
+     */
+    public static class Decision {
+        private final Status status;
+        private final double odds;
+        private final Outcome outcome;
+        private final int key;
+        private final long liabilityCents;
+
+        private Decision(Status status, double odds, Outcome outcome, int key, long liabilityCents) {
+            this.status = status;
+            this.odds = odds;
+            this.outcome = outcome;
+            this.key = key;
+            this.liabilityCents = liabilityCents;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public boolean isAccepted() {
+            return status != Status.REJECTED;
+        }
+
+        public double getOdds() {
+            return odds;
+        }
+    }
+
+    private final AtomicLongArray winLiability = new AtomicLongArray(PlacingTable.MAX_LANES);
+    private final Map<Integer, AtomicLong> exoticLiability = new ConcurrentHashMap<>();
+    private volatile long winLimitCents;
+    private volatile long exoticLimitCents;
+    private volatile double minimumOdds;
+
+    public HouseRiskBook(double winLimit, double exoticLimit, double minimumOdds) {
+        setWinLimit(winLimit);
+        setExoticLimit(exoticLimit);
+        setMinimumOdds(minimumOdds);
+    }
+
+    public void setWinLimit(double limit) {
+        this.winLimitCents = toCents(limit);
+    }
+
+    public void setExoticLimit(double limit) {
+        this.exoticLimitCents = toCents(limit);
+    }
+
+    /**
+     * Bets that would have to be cut below these odds to fit are rejected
+     */
+    public void setMinimumOdds(double minimumOdds) {
+        this.minimumOdds = minimumOdds;
+    }
+
+    public double getWinLimit() {
+        return winLimitCents / 100.0;
+    }
+
+    public double getExoticLimit() {
+        return exoticLimitCents / 100.0;
+    }
+
+    /**
+     * Takes on a win bet on the given lane if it fits under the limit.
+     * A bet that does not fit at the quoted odds is re-priced to the
+     * best odds that do, or rejected if those fall below the minimum.
+     */
+    public Decision acceptWin(int lane, double stake, double odds) {
+        long limit = winLimitCents;
+        while (true) {
+            long current = winLiability.get(lane);
+            Decision decision = decide(Outcome.WIN, lane, current, limit, stake, odds);
+            if (!decision.isAccepted()
+                    || winLiability.compareAndSet(lane, current, current + decision.liabilityCents)) {
+                return decision;
+            }
+        }
+    }
+
+    /**
+     * Takes on an exotic bet on the given ordered lanes, as acceptWin does.
+     */
+    public Decision acceptExotic(int[] lanes, double stake, double odds) {
+        int key = PlacingTable.key(lanes);
+        AtomicLong liability = exoticLiability.computeIfAbsent(key, k -> new AtomicLong());
+        long limit = exoticLimitCents;
+        while (true) {
+            long current = liability.get();
+            Decision decision = decide(Outcome.EXOTIC, key, current, limit, stake, odds);
+            if (!decision.isAccepted() || liability.compareAndSet(current, current + decision.liabilityCents)) {
+                return decision;
+            }
+        }
+    }
+
+    private Decision decide(Outcome outcome, int key, long current, long limit, double stake, double odds) {
+        long wanted = toCents(stake * (1.0 + odds));
+        if (current + wanted <= limit) {
+            return new Decision(Status.ACCEPTED, odds, outcome, key, wanted);
+        }
+
+        // Offer whatever still fits under the limit
+        double room = (limit - current) / 100.0;
+        double repricedOdds = Math.floor((room / stake - 1.0) * 100.0) / 100.0;
+        if (repricedOdds < minimumOdds) {
+            return new Decision(Status.REJECTED, 0.0, outcome, key, 0);
+        }
+        return new Decision(Status.REPRICED, repricedOdds, outcome, key, toCents(stake * (1.0 + repricedOdds)));
+    }
+
+    /**
+     * Gives back the liability an accepted bet took on, for bets that end
+     * up not being placed after all.
+     */
+    public void release(Decision decision) {
+        if (!decision.isAccepted()) return;
+        if (decision.outcome == Outcome.WIN) {
+            winLiability.addAndGet(decision.key, -decision.liabilityCents);
+        } else {
+            AtomicLong liability = exoticLiability.get(decision.key);
+            if (liability != null) {
+                liability.addAndGet(-decision.liabilityCents);
+            }
+        }
+    }
+
+    public double getWinLiability(int lane) {
+        return winLiability.get(lane) / 100.0;
+    }
+
+    public double getExoticLiability(int[] lanes) {
+        AtomicLong liability = exoticLiability.get(PlacingTable.key(lanes));
+        return liability == null ? 0.0 : liability.get() / 100.0;
+    }
+
+    /**
+     * The most the house could have to pay out on any single outcome
+     */
+    public double getWorstCaseLiability() {
+        long worst = 0;
+        for (int lane = 0; lane < winLiability.length(); lane++) {
+            worst = Math.max(worst, winLiability.get(lane));
+        }
+        for (AtomicLong liability : exoticLiability.values()) {
+            worst = Math.max(worst, liability.get());
+        }
+        return worst / 100.0;
+    }
+
+    /**
+     * Empties the book once the race has been settled
+     */
+    public void clear() {
+        for (int lane = 0; lane < winLiability.length(); lane++) {
+            winLiability.set(lane, 0);
+        }
+        exoticLiability.clear();
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100.0);
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Win probabilities for a running race, conditioned on where every horse
+ * is right now and whether it has fallen.
+ *
+ * The per-horse FirstPassageTables are built once per field, so each tick
+ * only looks up the finishing-time distributions for the current distances
+ * and combines them. That still walks every lane over the ticks the race
+ * can last from here: the lanes' chances depend on each other, so the
+ * combined result cannot be tabulated up front. Dead heats go to the
+ * lowest lane, the same way Race.raceWonBy picks its winner, and a horse
+ * that has run past the line cannot win.
+ */
+public class InRunningOdds {
+    private final RaceField field;
+    private final FirstPassageTable[] tables;
+    private final double[] winProbability;
+    private final double[] current;
+    private final double[] previous;
+    private final double[] leftProduct;
+
+    public InRunningOdds(RaceField field) {
+        this.field = field;
+        this.tables = new FirstPassageTable[field.size()];
+        this.winProbability = new double[field.size()];
+        this.current = new double[field.size()];
+        this.previous = new double[field.size()];
+        this.leftProduct = new double[field.size()];
+
+        // Horses with identical chances share a table
+        Map<String, FirstPassageTable> shared = new HashMap<>();
+        for (int lane = 0; lane < field.size(); lane++) {
+            double move = field.getMoveChance(lane);
+            double fall = field.getFallChance(lane);
+            int steps = field.getStepsPerMove(lane);
+            String key = move + "/" + fall + "/" + steps;
+            FirstPassageTable table = shared.get(key);
+            if (table == null) {
+                table = new FirstPassageTable(field.getRaceLength(), move, fall, steps);
+                shared.put(key, table);
+            }
+            tables[lane] = table;
+        }
+    }
+
+    public RaceField getField() {
+        return field;
+    }
+
+    /**
+     * Updates the win probability of every lane for the current race state.
+     * The returned array is reused by the next call.
+     *
+     * @param distance distance travelled so far, per lane
+     * @param fallen whether each lane's horse has fallen
+     * @return the chance each lane wins from here
+     */
+    public double[] update(int[] distance, boolean[] fallen) {
+        int size = field.size();
+        int raceLength = field.getRaceLength();
+
+        // Past the tick where every lane's table has settled nobody can finish any more
+        int last = 0;
+        for (int lane = 0; lane < size; lane++) {
+            winProbability[lane] = 0.0;
+            previous[lane] = 0.0;
+            if (!fallen[lane]) {
+                last = Math.max(last, tables[lane].settledBy(raceLength - distance[lane]));
+            }
+        }
+
+        for (int t = 1; t <= last; t++) {
+            for (int lane = 0; lane < size; lane++) {
+                current[lane] = fallen[lane] ? 0.0 : tables[lane].cumulative(raceLength - distance[lane], t);
+            }
+
+            // Lanes to the left win ties, so they must not have finished by this tick;
+            // lanes to the right only need to still be running at the end of the last one
+            double product = 1.0;
+            for (int lane = 0; lane < size; lane++) {
+                leftProduct[lane] = product;
+                product *= 1.0 - current[lane];
+            }
+            product = 1.0;
+            for (int lane = size - 1; lane >= 0; lane--) {
+                double finishingNow = current[lane] - previous[lane];
+                if (finishingNow > 0) {
+                    winProbability[lane] += finishingNow * leftProduct[lane] * product;
+                }
+                product *= 1.0 - previous[lane];
+            }
+
+            System.arraycopy(current, 0, previous, 0, size);
+        }
+        return winProbability;
+    }
+}
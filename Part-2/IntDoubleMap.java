@@ -0,0 +1,178 @@
+import java.util.Arrays;
+
+/**
+ * Hash map from int keys to double values that never boxes.
+ *
+ * Keys and values sit in parallel arrays with linear probing, so a lookup
+ * is a few array reads and the map holds no objects per entry. Not thread
+ * safe; publish a copy to share it between threads.
+ */
+public class IntDoubleMap {
+    public interface Visitor {
+        void visit(int key, double value);
+    }
+
+    private int[] keys;
+    private double[] values;
+    private boolean[] used;
+    private int size;
+
+    public IntDoubleMap() {
+        this(8);
+    }
+
+    public IntDoubleMap(int expectedSize) {
+        int capacity = 4;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new double[capacity];
+        used = new boolean[capacity];
+    }
+
+    public IntDoubleMap(IntDoubleMap other) {
+        keys = other.keys.clone();
+        values = other.values.clone();
+        used = other.used.clone();
+        size = other.size;
+    }
+
+    public double get(int key, double defaultValue) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    public void put(int key, double value) {
+        int slot = slotFor(key);
+        values[slot] = value;
+    }
+
+    /**
+     * Adds amount to the key's value, starting from 0 if it is absent
+     */
+    public double add(int key, double amount) {
+        int slot = slotFor(key);
+        values[slot] += amount;
+        return values[slot];
+    }
+
+    public void remove(int key) {
+        int slot = find(key);
+        if (slot < 0) return;
+        used[slot] = false;
+        size--;
+
+        // Shift later entries of the probe chain back so lookups still find them
+        int mask = keys.length - 1;
+        int next = (slot + 1) & mask;
+        while (used[next]) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                used[slot] = true;
+                used[next] = false;
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * The keys in ascending order
+     */
+    public int[] keys() {
+        int[] sorted = new int[size];
+        int n = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot]) sorted[n++] = keys[slot];
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    public double sum() {
+        double total = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot]) total += values[slot];
+        }
+        return total;
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (used[slot]) visitor.visit(keys[slot], values[slot]);
+        }
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slotFor(int key) {
+        int slot = find(key);
+        if (slot >= 0) return slot;
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        slot = mix(key) & mask;
+        while (used[slot]) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = 0.0;
+        used[slot] = true;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        double[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new int[oldKeys.length * 2];
+        values = new double[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (!oldUsed[i]) continue;
+            int slot = mix(oldKeys[i]) & mask;
+            while (used[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+            used[slot] = true;
+        }
+    }
+
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -2,11 +2,19 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import javax.swing.BoxLayout;
 import javax.swing.SpinnerNumberModel;
 import javax.swing.BorderFactory;
 import java.util.List;
+import javax.swing.table.DefaultTableModel;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 
 public class MainGUI extends JFrame {
     private Race race;
@@ -14,16 +22,22 @@ public class MainGUI extends JFrame {
     private JButton startButton;
     private JButton pauseButton;
     private JButton resetButton;
+    private JCheckBox turboCheck;
     private JComboBox<String> trackShapeCombo;
     private JComboBox<String> weatherCombo;
     private JTextField betAmount;
     private JButton placeBetButton;
     private JLabel balanceLabel;
+    private JLabel oddsLabel;
     private JComboBox<HorseGUI> horseCombo;
+    private JComboBox<String> betTypeCombo;
     private JTextArea currentBetsArea;
     private JSpinner laneSpinner;
     private JSpinner lengthSpinner;
     private JComboBox<String> shapeCombo;
+    private RaceBroadcastServer[] broadcast;
+    private BetHistoryStore betHistory;
+    private RaceResultExporter resultStream;
     
     // Add missing field declarations
     private JButton applyButton;
@@ -39,6 +53,13 @@ public class MainGUI extends JFrame {
     private JTextArea bettingInfoArea;
     private JTextArea statisticsArea;
     private JTextArea trackInfoArea;
+
+    private DefaultTableModel performanceModel;
+    private DefaultTableModel trackRecordsModel;
+    private RaceHistoryTableModel raceHistoryModel;
+    private JLabel bettingSummaryLabel;
+    private DefaultListModel<String> recentBetsModel;
+    private BetHistoryListModel betHistoryModel;
     
     public MainGUI() {
         setTitle("Horse Race Simulator");
@@ -47,12 +68,22 @@ public class MainGUI extends JFrame {
         setMinimumSize(new Dimension(1000, 1000));
         setLocationRelativeTo(null);
         setResizable(true);
+        SimulatorMetrics.register();
+        SimulatorMetrics.startEdtLagProbe(100);
         
         // Initialize race first
         raceDisplay = new JTextArea();
         raceDisplay.setEditable(false);
         raceDisplay.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        race = new Race(50, raceDisplay);
+        betHistory = openBetHistory();
+        race = new Race(50, raceDisplay, betHistory);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                closeResultStream();
+                closeBetHistory();
+            }
+        });
         
         // Initialize betting system with race
         race.setBettingSystem(new BettingSystem(race.getStatistics(), race));
@@ -60,9 +91,13 @@ public class MainGUI extends JFrame {
         JPanel mainPanel = new JPanel(new BorderLayout());
         mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
+        // Graphical track on top, race text and results underneath
         JScrollPane raceScrollPane = new JScrollPane(raceDisplay);
-        raceScrollPane.setPreferredSize(new Dimension(600, 400));
-        mainPanel.add(raceScrollPane, BorderLayout.CENTER);
+        raceScrollPane.setPreferredSize(new Dimension(600, 150));
+        JSplitPane racePane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new TrackCanvas(race), raceScrollPane);
+        racePane.setResizeWeight(0.7);
+        racePane.setPreferredSize(new Dimension(600, 400));
+        mainPanel.add(racePane, BorderLayout.CENTER);
         
         // Create control panels
         JPanel bottomPanel = new JPanel();
@@ -75,14 +110,17 @@ public class MainGUI extends JFrame {
         
         // Add race controls to bottom panel
         JPanel raceControls = new JPanel();
-        raceControls.setLayout(new GridLayout(1, 3));
+        raceControls.setLayout(new GridLayout(1, 4));
         raceControls.setMaximumSize(new Dimension(Integer.MAX_VALUE, 40));
         startButton = new JButton("Start Race");
         pauseButton = new JButton("Pause");
         resetButton = new JButton("Reset");
+        turboCheck = new JCheckBox("Turbo");
+        turboCheck.setToolTipText("Finish races instantly; times are recorded as for a normal race");
         raceControls.add(startButton);
         raceControls.add(pauseButton);
         raceControls.add(resetButton);
+        raceControls.add(turboCheck);
         bottomPanel.add(raceControls);
         
         // Add betting panel to bottom panel
@@ -126,6 +164,26 @@ public class MainGUI extends JFrame {
         JButton bettingInfoButton = new JButton("Bet Info");
         bettingInfoButton.addActionListener(e -> showBettingInfoDialog());
         menuBar.add(bettingInfoButton);
+
+        JButton exportButton = new JButton("Export");
+        exportButton.addActionListener(e -> exportResults());
+        menuBar.add(exportButton);
+
+        JToggleButton streamButton = new JToggleButton("Stream Results");
+        streamButton.addActionListener(e -> toggleResultStream(streamButton));
+        menuBar.add(streamButton);
+
+        JButton importButton = new JButton("Import");
+        importButton.addActionListener(e -> importHistory());
+        menuBar.add(importButton);
+
+        JButton dashboardButton = new JButton("Dashboard");
+        dashboardButton.addActionListener(e -> RaceDashboard.open(16).setVisible(true));
+        menuBar.add(dashboardButton);
+
+        JToggleButton broadcastButton = new JToggleButton("Broadcast");
+        broadcastButton.addActionListener(e -> toggleBroadcast(broadcastButton));
+        menuBar.add(broadcastButton);
         
         setJMenuBar(menuBar);
         
@@ -160,6 +218,8 @@ public class MainGUI extends JFrame {
             }
         });
         
+        turboCheck.addActionListener(e -> race.setTurbo(turboCheck.isSelected()));
+
         resetButton.addActionListener(e -> {
             race.resetRace();
             enableCustomizationControls(true);   // Re-enable customization when race is reset
@@ -169,13 +229,10 @@ public class MainGUI extends JFrame {
             enableBettingControls();
         });
 
-        // Add race end listener
-        race.addRaceEndListener(() -> {
-            enableCustomizationControls(true);
-            horseCombo.setEnabled(true);
-            betAmount.setEnabled(true);
-            placeBetButton.setEnabled(true);
-        });
+        // Follow the race's events on the EDT, at the GUI's own pace
+        RaceEventBus.Subscription raceEvents = race.getEventBus().subscribe();
+        RaceEvent raceEvent = new RaceEvent();
+        new Timer(50, e -> raceEvents.drain(raceEvent, this::onRaceEvent, 1024)).start();
         
         // Initial display
         race.printRace();
@@ -191,11 +248,17 @@ public class MainGUI extends JFrame {
                 betsText.append(String.format("%s: $%.2f at %.2f:1 odds\n", 
                     entry.getKey().getName(),
                     entry.getValue(),
-                    race.getBettingSystem().getOdds(entry.getKey())));
+                    race.getBettingSystem().getPotentialPayout(entry.getKey()) / entry.getValue()));
                 hasBets = true;
             }
         }
         
+        for (ExoticBet bet : race.getBettingSystem().getExoticBets()) {
+            betsText.append(String.format("%s: $%.2f at %.2f:1 odds\n",
+                bet.describe(), bet.getAmount(), bet.getOdds()));
+            hasBets = true;
+        }
+        
         if (!hasBets) {
             betsText.append("No bets placed yet");
         }
@@ -237,6 +300,25 @@ public class MainGUI extends JFrame {
         }
     }
     
+    private void onRaceEvent(RaceEvent event) {
+        switch (event.getType()) {
+            case FINISH:
+                enableCustomizationControls(true);
+                horseCombo.setEnabled(true);
+                betAmount.setEnabled(true);
+                placeBetButton.setEnabled(true);
+                break;
+            case SETTLEMENT:
+                updateBalanceLabel();
+                clearBettingUI();
+                enableBettingControls();
+                updateStatistics();
+                break;
+            default:
+                break;
+        }
+    }
+
     public void updateBalanceLabel() {
         balanceLabel.setText("Balance: $" + String.format("%.2f", race.getBettingSystem().getPlayerBalance()));
     }
@@ -274,6 +356,145 @@ public class MainGUI extends JFrame {
         JOptionPane.showMessageDialog(this, helpText, "Help Information", JOptionPane.INFORMATION_MESSAGE);
     }
     
+    private void exportResults() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export race results (.csv for CSV, anything else for columnar)");
+        chooser.setSelectedFile(new File("race-results.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+
+        // Long histories take a while, so keep the EDT free
+        Thread export = new Thread(() -> {
+            String message;
+            try (RaceResultExporter exporter = new RaceResultExporter(file, RaceResultExporter.Format.forFile(file))) {
+                long rows = exporter.exportStatistics(race.getStatistics());
+                message = String.format("Exported %d results to %s", rows, file);
+            } catch (IOException ex) {
+                message = "Export failed: " + ex.getMessage();
+            }
+            String result = message;
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, result));
+        }, "result-export");
+        export.setDaemon(true);
+        export.start();
+    }
+
+    /**
+     * Writes every horse's result to a file as each race is settled,
+     * until toggled off again
+     */
+    private void toggleResultStream(JToggleButton button) {
+        if (resultStream != null) {
+            closeResultStream();
+        } else {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Stream results as races finish (.csv for CSV, anything else for columnar)");
+            chooser.setSelectedFile(new File("race-results-live.csv"));
+            if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                Path file = chooser.getSelectedFile().toPath();
+                try {
+                    resultStream = new RaceResultExporter(file, RaceResultExporter.Format.forFile(file));
+                    race.setResultExporter(resultStream);
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(this, "Could not stream results: " + ex.getMessage());
+                }
+            }
+        }
+        button.setSelected(resultStream != null);
+    }
+
+    private void closeResultStream() {
+        if (resultStream == null) {
+            return;
+        }
+        race.setResultExporter(null);
+        try {
+            resultStream.close();
+        } catch (IOException e) {
+            System.err.println("Result stream did not close cleanly: " + e.getMessage());
+        }
+        resultStream = null;
+    }
+
+    /**
+     * Streams this race to spectators, over TCP on port 7070 and WebSocket on 7071
+     */
+    private void toggleBroadcast(JToggleButton button) {
+        try {
+            if (broadcast == null) {
+                RaceBroadcastServer tcp = new RaceBroadcastServer(race, 7070, RaceBroadcastServer.Protocol.TCP);
+                try {
+                    broadcast = new RaceBroadcastServer[] {
+                        tcp, new RaceBroadcastServer(race, 7071, RaceBroadcastServer.Protocol.WEBSOCKET)
+                    };
+                } catch (IOException ex) {
+                    tcp.close();
+                    throw ex;
+                }
+            } else {
+                RaceBroadcastServer[] servers = broadcast;
+                broadcast = null;
+                for (RaceBroadcastServer server : servers) {
+                    server.close();
+                }
+            }
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Broadcast failed: " + ex.getMessage());
+        }
+        button.setSelected(broadcast != null);
+    }
+
+    private static BetHistoryStore openBetHistory() {
+        try {
+            return BetHistoryStore.openDefault();
+        } catch (IOException e) {
+            // The race still runs, just without a persistent history
+            System.err.println("Bet history unavailable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void closeBetHistory() {
+        if (betHistory == null) {
+            return;
+        }
+        try {
+            betHistory.close();
+        } catch (IOException e) {
+            System.err.println("Bet history did not close cleanly: " + e.getMessage());
+        }
+        betHistory = null;
+    }
+
+    private void importHistory() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import race history (CSV or columnar, as exported)");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+
+        Thread history = new Thread(() -> {
+            String message;
+            try {
+                HistoryImporter.Result result = new HistoryImporter().importHistory(file, race.getStatistics());
+                message = String.format("Imported %d results for %d horses in %.1f s", result.getRows(),
+                    result.getHorseCount(), result.getMillis() / 1000.0);
+            } catch (IOException ex) {
+                message = "Import failed: " + ex.getMessage();
+            }
+            String result = message;
+            SwingUtilities.invokeLater(() -> {
+                updateStatistics();
+                JOptionPane.showMessageDialog(this, result);
+            });
+        }, "history-import");
+        history.setDaemon(true);
+        history.start();
+    }
+
     private void showBettingInfoDialog() {
         String bettingInfo = 
             "How Betting Works:\n\n" +
@@ -371,7 +592,7 @@ public class MainGUI extends JFrame {
             race.setTrackShape(shape);
             race.setWeatherCondition(weather);
             
-            updateHorseCombo();
+            race.invokeWhenApplied(this::updateHorseCombo);
         });
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
@@ -492,93 +713,79 @@ public class MainGUI extends JFrame {
 
         JTabbedPane tabbedPane = new JTabbedPane();
 
-        JPanel performancePanel = new JPanel();
-        performancePanel.setLayout(new BoxLayout(performancePanel, BoxLayout.Y_AXIS));
-        JTextArea performanceText = new JTextArea();
-        performanceText.setEditable(false);
-        performanceText.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        JScrollPane performanceScroll = new JScrollPane(performanceText);
-        performancePanel.add(performanceScroll);
-        tabbedPane.addTab("Performance", performancePanel);
-
-        JPanel trackPanel = new JPanel();
-        trackPanel.setLayout(new BoxLayout(trackPanel, BoxLayout.Y_AXIS));
-        JTextArea trackText = new JTextArea();
-        trackText.setEditable(false);
-        trackText.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        JScrollPane trackScroll = new JScrollPane(trackText);
-        trackPanel.add(trackScroll);
-        tabbedPane.addTab("Track Records", trackPanel);
-
-        JPanel historyPanel = new JPanel();
-        historyPanel.setLayout(new BoxLayout(historyPanel, BoxLayout.Y_AXIS));
-        JTextArea historyText = new JTextArea();
-        historyText.setEditable(false);
-        historyText.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        JScrollPane historyScroll = new JScrollPane(historyText);
-        historyPanel.add(historyScroll);
-        tabbedPane.addTab("History", historyPanel);
-
-        JPanel bettingPanel = new JPanel();
-        bettingPanel.setLayout(new BoxLayout(bettingPanel, BoxLayout.Y_AXIS));
-        JTextArea bettingText = new JTextArea();
-        bettingText.setEditable(false);
-        bettingText.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        JScrollPane bettingScroll = new JScrollPane(bettingText);
-        bettingPanel.add(bettingScroll);
+        performanceModel = new DefaultTableModel(new String[]{"Horse", "Avg Speed", "Win %", "Confidence"}, 0);
+        tabbedPane.addTab("Performance", new JScrollPane(new JTable(performanceModel)));
+
+        trackRecordsModel = new DefaultTableModel(new String[]{"Track", "Best Time (s)"}, 0);
+        tabbedPane.addTab("Track Records", new JScrollPane(new JTable(trackRecordsModel)));
+
+        // Only the rows on screen are read from the statistics
+        raceHistoryModel = new RaceHistoryTableModel(race.getStatistics());
+        tabbedPane.addTab("History", new JScrollPane(new JTable(raceHistoryModel)));
+
+        JPanel bettingPanel = new JPanel(new BorderLayout());
+        bettingSummaryLabel = new JLabel();
+        bettingPanel.add(bettingSummaryLabel, BorderLayout.NORTH);
+        recentBetsModel = new DefaultListModel<>();
+        JList<String> recentBetsList = new JList<>(recentBetsModel);
+        recentBetsList.setBorder(BorderFactory.createTitledBorder("Recent Bets"));
+        bettingPanel.add(recentBetsList, BorderLayout.CENTER);
+        betHistoryModel = new BetHistoryListModel(race.getBetHistory());
+        JList<String> betHistoryList = new JList<>(betHistoryModel);
+        // A fixed cell size keeps the list from reading every bet to lay itself out
+        betHistoryList.setFixedCellHeight(16);
+        betHistoryList.setFixedCellWidth(400);
+        JScrollPane betHistoryScroll = new JScrollPane(betHistoryList);
+        betHistoryScroll.setBorder(BorderFactory.createTitledBorder("All Settled Bets"));
+        betHistoryScroll.setPreferredSize(new Dimension(250, 120));
+        bettingPanel.add(betHistoryScroll, BorderLayout.SOUTH);
         tabbedPane.addTab("Betting Analytics", bettingPanel);
 
         JButton updateButton = new JButton("Update Statistics");
-        updateButton.addActionListener(e -> {
-            updateStatistics(performanceText, trackText, historyText, bettingText);
-        });
+        updateButton.addActionListener(e -> updateStatistics());
 
         panel.add(tabbedPane, BorderLayout.CENTER);
         panel.add(updateButton, BorderLayout.SOUTH);
 
+        updateStatistics();
         return panel;
     }
 
-    private void updateStatistics(JTextArea performanceText, JTextArea trackText, 
-                                JTextArea historyText, JTextArea bettingText) {
-        StringBuilder performance = new StringBuilder();
+    private void updateStatistics() {
+        long start = System.nanoTime();
+        try {
+            renderStatistics();
+        } finally {
+            SimulatorMetrics.STATISTICS_VIEW.recordSince(start);
+        }
+    }
+
+    private void renderStatistics() {
+        performanceModel.setRowCount(0);
         for (HorseGUI horse : race.getHorses()) {
-            performance.append(String.format("%s:\n", horse.getName()));
-            performance.append(String.format("  Average Speed: %.2f m/s\n", horse.getAverageSpeed()));
-            performance.append(String.format("  Win Ratio: %.1f%%\n", horse.getWinRatio() * 100));
-            performance.append(String.format("  Confidence: %.2f\n", horse.getConfidence()));
-            performance.append("\n");
+            performanceModel.addRow(new Object[]{
+                horse.getName().trim(),
+                String.format("%.2f", horse.getAverageSpeed()),
+                String.format("%.1f", horse.getWinRatio() * 100),
+                String.format("%.2f", horse.getConfidence())
+            });
         }
-        performanceText.setText(performance.toString());
 
-        StringBuilder track = new StringBuilder();
-        track.append("Best Times:\n");
+        trackRecordsModel.setRowCount(0);
         for (String shape : new String[]{"Oval", "Figure-eight", "Straight", "Zigzag"}) {
-            track.append(String.format("%s: %.2f seconds\n", shape, 
-                race.getBestTimeForTrack(shape)));
+            trackRecordsModel.addRow(new Object[]{shape, String.format("%.2f", race.getBestTimeForTrack(shape))});
         }
-        trackText.setText(track.toString());
 
-        StringBuilder history = new StringBuilder();
-        for (HorseGUI horse : race.getHorses()) {
-            history.append(String.format("%s's Race History:\n", horse.getName()));
-            for (String race : horse.getRaceHistory()) {
-                history.append("  ").append(race).append("\n");
-            }
-            history.append("\n");
-        }
-        historyText.setText(history.toString());
+        raceHistoryModel.refresh();
 
-        StringBuilder betting = new StringBuilder();
-        betting.append("Betting Statistics:\n");
-        betting.append(String.format("Total Bets Placed: %d\n", race.getTotalBets()));
-        betting.append(String.format("Win Rate: %.1f%%\n", race.getBettingWinRate() * 100));
-        betting.append(String.format("Average Bet Amount: $%.2f\n", race.getAverageBetAmount()));
-        betting.append("\nRecent Bets:\n");
+        bettingSummaryLabel.setText(String.format(
+            "<html>Total Bets Placed: %d<br>Win Rate: %.1f%%<br>Average Bet Amount: $%.2f</html>",
+            race.getTotalBets(), race.getBettingWinRate() * 100, race.getAverageBetAmount()));
+        recentBetsModel.clear();
         for (String bet : race.getRecentBets()) {
-            betting.append("  ").append(bet).append("\n");
+            recentBetsModel.addElement(bet);
         }
-        bettingText.setText(betting.toString());
+        betHistoryModel.refresh();
     }
     
     private JPanel createBettingPanel() {
@@ -605,7 +812,7 @@ public class MainGUI extends JFrame {
         JPanel infoPanel = new JPanel(new GridLayout(2, 1));
         balanceLabel = new JLabel("Balance: $1000.00");
         balanceLabel.setFont(new Font("Arial", Font.BOLD, 14));
-        JLabel oddsLabel = new JLabel("Current Odds: -");
+        oddsLabel = new JLabel("Current Odds: -");
         oddsLabel.setFont(new Font("Arial", Font.BOLD, 14));
         infoPanel.add(balanceLabel);
         infoPanel.add(oddsLabel);
@@ -622,6 +829,14 @@ public class MainGUI extends JFrame {
                 oddsLabel.setText(String.format("Current Odds: %.2f:1", odds));
             }
         });
+        // In-running quotes arrive on the publisher thread
+        race.getBettingSystem().getOddsPublisher().subscribe(quotes ->
+            SwingUtilities.invokeLater(() -> {
+                HorseGUI selectedHorse = (HorseGUI) horseCombo.getSelectedItem();
+                if (selectedHorse != null && quotes.containsKey(selectedHorse.getId())) {
+                    oddsLabel.setText(String.format("Current Odds: %.2f:1", quotes.get(selectedHorse.getId(), 0.0)));
+                }
+            }));
         bettingControls.add(horseCombo);
         
         // Bet amount input
@@ -635,6 +850,11 @@ public class MainGUI extends JFrame {
         betAmountPanel.add(betAmount, BorderLayout.CENTER);
         bettingControls.add(betAmountPanel);
         
+        // Bet type selection
+        betTypeCombo = new JComboBox<>(new String[]{"Win", "Exacta", "Trifecta", "Superfecta"});
+        betTypeCombo.setFont(new Font("Arial", Font.PLAIN, 14));
+        bettingControls.add(betTypeCombo);
+        
         // Place bet button
         placeBetButton = new JButton("Place Bet");
         placeBetButton.setFont(new Font("Arial", Font.BOLD, 14));
@@ -647,6 +867,10 @@ public class MainGUI extends JFrame {
         placeBetButton.addActionListener(e -> {
             try {
                 double amount = Double.parseDouble(betAmount.getText());
+                if (betTypeCombo.getSelectedIndex() > 0) {
+                    placeExoticBet(ExoticBetType.values()[betTypeCombo.getSelectedIndex() - 1], amount);
+                    return;
+                }
                 HorseGUI selectedHorse = (HorseGUI) horseCombo.getSelectedItem();
                 if (selectedHorse != null) {
                     if (race.getBettingSystem().placeBet(selectedHorse, amount)) {
@@ -665,6 +889,107 @@ public class MainGUI extends JFrame {
         return panel;
     }
     
+    private void placeExoticBet(ExoticBetType type, double amount) {
+        if (race.getHorses().size() < type.getPlacings()) {
+            JOptionPane.showMessageDialog(this, "Not enough horses for a " + type.getLabel() + " bet.");
+            return;
+        }
+
+        // Pick the horses in finishing order
+        String[] positions = {"1st:", "2nd:", "3rd:", "4th:"};
+        JPanel selectionPanel = new JPanel(new GridLayout(type.getPlacings(), 2, 5, 5));
+        List<JComboBox<HorseGUI>> combos = new ArrayList<>();
+        for (int i = 0; i < type.getPlacings(); i++) {
+            JComboBox<HorseGUI> combo = new JComboBox<>();
+            updateHorseCombo(combo);
+            combo.setSelectedIndex(i);
+            selectionPanel.add(new JLabel(positions[i]));
+            selectionPanel.add(combo);
+            combos.add(combo);
+        }
+        int choice = JOptionPane.showConfirmDialog(this, selectionPanel, type.getLabel() + " Bet",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        HorseGUI[] selection = new HorseGUI[combos.size()];
+        for (int i = 0; i < selection.length; i++) {
+            selection[i] = (HorseGUI) combos.get(i).getSelectedItem();
+            for (int j = 0; j < i; j++) {
+                if (selection[j] == selection[i]) {
+                    JOptionPane.showMessageDialog(this, "Each position needs a different horse.");
+                    return;
+                }
+            }
+        }
+
+        // The first price for a field runs the simulation, far too slow for the EDT
+        placeBetButton.setEnabled(false);
+        BettingSystem betting = race.getBettingSystem();
+        new SwingWorker<double[], Void>() {
+            @Override
+            protected double[] doInBackground() {
+                return new double[] {
+                    betting.getExoticOdds(type, selection), betting.getExoticProbability(type, selection)
+                };
+            }
+
+            @Override
+            protected void done() {
+                placeBetButton.setEnabled(true);
+                try {
+                    double[] price = get();
+                    confirmExoticBet(type, selection, amount, price[0], price[1]);
+                } catch (InterruptedException | ExecutionException ex) {
+                    JOptionPane.showMessageDialog(MainGUI.this, "Could not price the bet: " + ex.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void confirmExoticBet(ExoticBetType type, HorseGUI[] selection, double amount,
+                                  double odds, double probability) {
+        if (odds <= 0) {
+            JOptionPane.showMessageDialog(this, probability > 0
+                ? "That finishing order is so likely that it would pay nothing back after the house edge."
+                : "Those horses are no longer all in the race.");
+            return;
+        }
+
+        String quote = String.format("%s at %.2f:1 odds for $%.2f?", type.getLabel(), odds, amount);
+        if (probability == 0) {
+            quote += "\nThat order never came up in simulation, so it is priced at the longest odds.";
+        }
+        int choice = JOptionPane.showConfirmDialog(this, quote, "Confirm Bet", JOptionPane.YES_NO_OPTION);
+        if (choice != JOptionPane.YES_OPTION) {
+            return;
+        }
+        BetResult result = race.getBettingSystem().submitExoticBet(type, selection, amount);
+        if (result.isAccepted()) {
+            updateBalanceLabel();
+            updateCurrentBets();
+            JOptionPane.showMessageDialog(this, result.getStatus() == BetResult.Status.REPRICED
+                ? String.format("Bet placed at %.2f:1, shortened by the house.", result.getOdds())
+                : "Bet placed successfully!");
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to place bet. " + describeRejection(result.getStatus()));
+        }
+    }
+
+    private static String describeRejection(BetResult.Status status) {
+        switch (status) {
+            case RACE_RUNNING:
+                return "Exotic bets must be placed before the race starts.";
+            case INSUFFICIENT_FUNDS:
+                return "Your balance does not cover that stake.";
+            case LIMIT_EXCEEDED:
+                return "The house is not taking any more on that finishing order.";
+            default:
+                return "Bets start at $2.00 and every horse picked must be in the race.";
+        }
+    }
+    
     private void updateAllHorseCombos() {
         // Update the horse selection combo in the horse customization panel
         Component[] components = getContentPane().getComponents();
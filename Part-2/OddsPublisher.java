@@ -0,0 +1,86 @@
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes odds quotes to subscribers at a fixed rate.
+ *
+ * The race only hands over its latest quotes, which never blocks; a
+ * background thread delivers the most recent set once per period and drops
+ * any that were superseded in between. Subscribers are called on that
+ * thread, so Swing subscribers should hop onto the EDT themselves.
+ */
+public class OddsPublisher {
+    public interface Subscriber {
+        void onQuotes(IntDoubleMap quotes);
+    }
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicReference<IntDoubleMap> latest = new AtomicReference<>();
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> task;
+    private long periodMillis;
+
+    public OddsPublisher(long periodMillis) {
+        this.periodMillis = Math.max(1, periodMillis);
+    }
+
+    public synchronized void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "odds-publisher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            schedule();
+        }
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    public synchronized void setPublishRate(long periodMillis) {
+        this.periodMillis = Math.max(1, periodMillis);
+        if (executor != null) {
+            task.cancel(false);
+            schedule();
+        }
+    }
+
+    public synchronized long getPublishRate() {
+        return periodMillis;
+    }
+
+    /**
+     * Hands over the latest quotes, odds by horse id. Only the newest set
+     * waiting at the next publish is delivered, and it must not be changed
+     * after it is offered.
+     */
+    public void offer(IntDoubleMap quotes) {
+        latest.set(quotes);
+    }
+
+    private void schedule() {
+        task = executor.scheduleAtFixedRate(this::publishLatest, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void publishLatest() {
+        IntDoubleMap quotes = latest.getAndSet(null);
+        if (quotes == null) return;
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.onQuotes(quotes);
+            } catch (RuntimeException e) {
+                // A failing subscriber must not stop the others from getting quotes
+                System.err.println("Odds subscriber failed:");
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.util.Arrays;
+
+/**
+ * Sparse table of the probabilities of ordered finishes (first two, three
+ * or four lanes in order) for one field.
+ *
+ * Only orders that actually came up in simulation are stored, as a sorted
+ * array of packed keys with a parallel array of probabilities, so even a
+ * 25-lane field stays small and a lookup is a binary search.
+ */
+public class PlacingTable {
+    public static final int MIN_DEPTH = 2;
+    public static final int MAX_DEPTH = 4;
+    private static final int LANE_BITS = 5;
+    public static final int MAX_LANES = 1 << LANE_BITS;
+
+    private final int[] keys;
+    private final float[] probabilities;
+    private final int runs;
+
+    private PlacingTable(int[] keys, float[] probabilities, int runs) {
+        this.keys = keys;
+        this.probabilities = probabilities;
+        this.runs = runs;
+    }
+
+    /**
+     * Chance that the given lanes finish first, second, ... in that order.
+     */
+    public double probability(int[] lanes) {
+        if (lanes.length < MIN_DEPTH || lanes.length > MAX_DEPTH) {
+            throw new IllegalArgumentException("Placings must name " + MIN_DEPTH + " to " + MAX_DEPTH + " lanes");
+        }
+        int index = Arrays.binarySearch(keys, key(lanes));
+        return index >= 0 ? probabilities[index] : 0.0;
+    }
+
+    /**
+     * Number of simulated races behind the table
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * Number of distinct finishing orders stored
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Packs an ordered selection of lanes into the key the table uses
+     */
+    public static int key(int[] lanes) {
+        return pack(lanes, lanes.length);
+    }
+
+    private static int pack(int[] lanes, int depth) {
+        int key = depth;
+        for (int i = 0; i < MAX_DEPTH; i++) {
+            key = (key << LANE_BITS) | (i < depth ? lanes[i] : 0);
+        }
+        return key;
+    }
+
+    /**
+     * Counts finishing orders from simulated races. Each worker fills its
+     * own builder; they are merged once at the end.
+     */
+    public static class Builder {
+        private int[] keys = new int[1024];
+        private int[] counts = new int[1024];
+        private int size;
+        private int runs;
+
+        public void add(int[] placings, int placed) {
+            runs++;
+            for (int depth = MIN_DEPTH; depth <= Math.min(MAX_DEPTH, placed); depth++) {
+                increment(pack(placings, depth), 1);
+            }
+        }
+
+        public void merge(Builder other) {
+            runs += other.runs;
+            for (int slot = 0; slot < other.keys.length; slot++) {
+                if (other.keys[slot] != 0) {
+                    increment(other.keys[slot], other.counts[slot]);
+                }
+            }
+        }
+
+        private void increment(int key, int amount) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                size++;
+            }
+            counts[slot] += amount;
+            if (size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new int[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == 0) continue;
+                int slot = mix(oldKeys[i]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        public PlacingTable build() {
+            int[] sortedKeys = new int[size];
+            int n = 0;
+            for (int key : keys) {
+                if (key != 0) sortedKeys[n++] = key;
+            }
+            Arrays.sort(sortedKeys);
+
+            float[] probabilities = new float[size];
+            int mask = keys.length - 1;
+            for (int i = 0; i < size; i++) {
+                int slot = mix(sortedKeys[i]) & mask;
+                while (keys[slot] != sortedKeys[i]) {
+                    slot = (slot + 1) & mask;
+                }
+                probabilities[i] = runs > 0 ? (float) ((double) counts[slot] / runs) : 0f;
+            }
+            return new PlacingTable(sortedKeys, probabilities, runs);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+public class PrimitiveMapTest {
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        System.out.println("Testing IntDoubleMap, IntObjectMap and IntIntMap");
+        System.out.println("------------------------------------------------");
+
+        // Test 1: Basic put, get, add and remove
+        System.out.println("\nTest 1: Basic Operations");
+        IntDoubleMap doubles = new IntDoubleMap();
+        doubles.put(7, 1.5);
+        doubles.add(7, 2.0);
+        doubles.add(-3, 4.0);
+        check("get after put and add", doubles.get(7, 0.0) == 3.5);
+        check("add to a missing key starts from 0", doubles.get(-3, 0.0) == 4.0);
+        check("missing key gives the default", doubles.get(99, -1.0) == -1.0);
+        doubles.remove(7);
+        check("removed key is gone", !doubles.containsKey(7) && doubles.size() == 1);
+        check("keys come back sorted", Arrays.equals(doubles.keys(), new int[] {-3}));
+
+        IntObjectMap<String> objects = new IntObjectMap<>();
+        objects.put(1, "one");
+        check("putIfAbsent keeps the first value", "one".equals(objects.putIfAbsent(1, "uno")));
+        objects.put(1, null);
+        check("putting null removes the key", !objects.containsKey(1) && objects.isEmpty());
+
+        // Test 2: Removing from a probe chain that wraps past the end of the table
+        System.out.println("\nTest 2: Delete Across a Wrapped Cluster");
+        // A fresh map has 16 slots; these keys all want the last one, so
+        // they fill slots 15, 0 and 1, and a key wanting slot 0 lands in 2
+        int[] wantLast = keysWithHome(15, 3);
+        int wantFirst = keysWithHome(0, 1)[0];
+        IntDoubleMap wrapped = new IntDoubleMap();
+        IntObjectMap<String> wrappedObjects = new IntObjectMap<>();
+        for (int key : wantLast) {
+            wrapped.put(key, key);
+            wrappedObjects.put(key, "v" + key);
+        }
+        wrapped.put(wantFirst, wantFirst);
+        wrappedObjects.put(wantFirst, "v" + wantFirst);
+
+        wrapped.remove(wantLast[0]);
+        wrappedObjects.remove(wantLast[0]);
+        check("IntDoubleMap finds every key left after the head is removed",
+            wrapped.get(wantLast[1], -1) == wantLast[1] && wrapped.get(wantLast[2], -1) == wantLast[2]
+                && wrapped.get(wantFirst, -1) == wantFirst && !wrapped.containsKey(wantLast[0]));
+        check("IntObjectMap finds every key left after the head is removed",
+            ("v" + wantLast[1]).equals(wrappedObjects.get(wantLast[1]))
+                && ("v" + wantLast[2]).equals(wrappedObjects.get(wantLast[2]))
+                && ("v" + wantFirst).equals(wrappedObjects.get(wantFirst))
+                && wrappedObjects.get(wantLast[0]) == null);
+
+        wrapped.remove(wantLast[2]);
+        wrappedObjects.remove(wantLast[2]);
+        check("IntDoubleMap still finds the key that wrapped furthest",
+            wrapped.get(wantFirst, -1) == wantFirst && wrapped.get(wantLast[1], -1) == wantLast[1]
+                && wrapped.size() == 2);
+        check("IntObjectMap still finds the key that wrapped furthest",
+            ("v" + wantFirst).equals(wrappedObjects.get(wantFirst))
+                && ("v" + wantLast[1]).equals(wrappedObjects.get(wantLast[1])) && wrappedObjects.size() == 2);
+
+        // Test 3: Growing and removing at random, checked against HashMap
+        System.out.println("\nTest 3: Resize Against HashMap");
+        SplittableRandom random = new SplittableRandom(31);
+        IntDoubleMap growingDoubles = new IntDoubleMap();
+        IntObjectMap<Integer> growingObjects = new IntObjectMap<>();
+        IntIntMap growingInts = new IntIntMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Map<Integer, Integer> expectedInts = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(-50_000, 50_000);
+            if (random.nextInt(3) == 0) {
+                growingDoubles.remove(key);
+                growingObjects.remove(key);
+                expected.remove(key);
+            } else {
+                growingDoubles.put(key, i);
+                growingObjects.put(key, i);
+                expected.put(key, i);
+            }
+            growingInts.put(key, i);
+            expectedInts.put(key, i);
+        }
+        boolean same = growingDoubles.size() == expected.size() && growingObjects.size() == expected.size();
+        for (int key = -50_000; key < 50_000 && same; key++) {
+            Integer value = expected.get(key);
+            same = value == null
+                ? !growingDoubles.containsKey(key) && growingObjects.get(key) == null
+                : growingDoubles.get(key, -1) == value && value.equals(growingObjects.get(key));
+        }
+        check("IntDoubleMap and IntObjectMap match HashMap after " + expected.size() + " keys", same);
+        boolean sameInts = growingInts.size() == expectedInts.size();
+        for (Map.Entry<Integer, Integer> entry : expectedInts.entrySet()) {
+            sameInts &= growingInts.get(entry.getKey(), -1) == entry.getValue();
+        }
+        check("IntIntMap matches HashMap after " + expectedInts.size() + " keys", sameInts);
+
+        // Test 4: Copies are independent
+        System.out.println("\nTest 4: Copy Testing");
+        IntDoubleMap copy = new IntDoubleMap(growingDoubles);
+        copy.put(123_456, 1.0);
+        check("a copy does not change the original", !growingDoubles.containsKey(123_456) && copy.containsKey(123_456));
+
+        System.out.println(failures == 0 ? "\nAll tests passed!" : "\n" + failures + " test(s) failed!");
+        if (failures > 0) System.exit(1);
+    }
+
+    /**
+     * The first keys from 0 up whose home slot in a 16-slot table is home
+     */
+    private static int[] keysWithHome(int home, int count) {
+        int[] found = new int[count];
+        int n = 0;
+        for (int key = 0; n < count; key++) {
+            if ((IntDoubleMap.mix(key) & 15) == home) found[n++] = key;
+        }
+        return found;
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS: " : "FAIL: ") + name);
+        if (!passed) failures++;
+    }
+}
@@ -1,14 +1,18 @@
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.lang.Math;
 import java.util.ArrayList;
+import java.util.Arrays;
 import javax.swing.JTextArea;
 import javax.swing.*;
-import javax.swing.Timer;
-import java.awt.Container;
 import java.util.Map;
+import java.util.function.DoubleSupplier;
 
 /**
  * A three-horse race, each horse running in its own lane
@@ -19,26 +23,45 @@ import java.util.Map;
  */
 public class Race
 {
-    private int raceLength;
-    private HashMap<Integer, Horse> horseMap;
+    static final int TICK_MILLIS = 100;
+    // Race time is counted in ticks, so pauses and thread lag do not show up in it
+    static final double TICK_SECONDS = TICK_MILLIS / 1000.0;
+    // Ticks run per turn on the engine thread in turbo mode
+    private static final int TURBO_BATCH = 1000;
+
+    // The field and track are only changed on the engine thread, and
+    // replaced rather than changed in place so other threads can read them
+    private volatile int raceLength;
+    private IntObjectMap<Horse> horseMap; // By lane
+    private volatile Horse[] lanes; // horseMap's horses in lane order
+    private volatile int[] laneNumbers;
     private Horse winnerHorse;
-    private Track track;
+    private volatile Track track;
     private Statistics statistics;
     private BettingSystem bettingSystem;
-    private List<HorseGUI> horses;
-    private long raceStartTime;
+    private volatile List<HorseGUI> horses;
     private JTextArea raceDisplay;
-    private Timer raceTimer;
+    private final ScheduledExecutorService engine;
+    private ScheduledFuture<?> ticking; // Only touched on the engine thread
+    private final AtomicReference<RaceFrame> pendingFrame = new AtomicReference<>();
+    private volatile RaceFrame frame;
     private int laneCount;
     private int trackLength;
     private Map<String, Double> bestTimes;
-    private List<String> recentBets;
+    private RecentBetsLog recentBets;
+    private final BetHistoryStore betHistory;
+    private volatile RaceResultExporter resultExporter;
     private int totalBets;
     private double totalBetAmount;
     private int winningBets;
-    private boolean raceRunning = false;
-    private boolean racePaused = false;
-    private Runnable raceEndListener = null;
+    private volatile boolean raceRunning = false;
+    private volatile boolean racePaused = false;
+    private volatile boolean turbo = false;
+    private RaceEventBus eventBus;
+    private int tick;
+    private boolean raceFinished; // Since the last tick, until the race is begun again or reset
+    private int leaderLane;
+    private int[] fallTicks; // By lane index, 0 while standing
 
     /**
      * Constructor for objects of class Race
@@ -47,12 +70,39 @@ public class Race
      * @param distance the length of the racetrack (in metres/yards...)
      */
     public Race(int distance, JTextArea raceDisplay)
+    {
+        this(distance, raceDisplay, (BetHistoryStore) null);
+    }
+
+    /**
+     * A race that keeps its settled bets in the given store. The caller
+     * still owns the store and closes it.
+     *
+     * @param betHistory where settled bets are kept, null for none
+     */
+    public Race(int distance, JTextArea raceDisplay, BetHistoryStore betHistory)
+    {
+        this(distance, raceDisplay, newEngine(), betHistory);
+    }
+
+    /**
+     * A race run on a given engine, so several races can share one.
+     * The engine must have a single thread: a race only touches its
+     * state from the engine.
+     *
+     * @param raceDisplay where the text view goes, null for races only
+     *                    drawn from their frames
+     * @param betHistory where settled bets are kept, null for none
+     */
+    Race(int distance, JTextArea raceDisplay, ScheduledExecutorService engine, BetHistoryStore betHistory)
     {
         // initialise instance variables
         raceLength = distance;
         this.raceDisplay = raceDisplay;
+        this.engine = engine;
+        this.betHistory = betHistory;
 
-        horseMap  = new HashMap<>();
+        horseMap  = new IntObjectMap<>();
 
         // Adjusted confidence values for more balanced races
         // Using simple ASCII special characters that work in all terminals
@@ -65,28 +115,36 @@ public class Race
         this.statistics = new Statistics();
         this.bettingSystem = new BettingSystem(statistics, this);
         this.horses = new ArrayList<>();
+        rebuildLanes();
         
-        for (Horse horse : horseMap.values()) {
+        for (Horse horse : lanes) {
             if (horse != null && horse instanceof HorseGUI) {
                 horses.add((HorseGUI) horse);
             }
         }
 
-        // Create timer for race updates
-        raceTimer = new Timer(100, e -> {
-            if (raceRunning && !racePaused) {
-                updateRace();
-            }
-        });
+        this.eventBus = new RaceEventBus(4096);
 
         this.laneCount = 4;
         this.bestTimes = new HashMap<>();
-        this.recentBets = new ArrayList<>();
+        this.recentBets = new RecentBetsLog(10);
         this.totalBets = 0;
         this.totalBetAmount = 0;
         this.winningBets = 0;
     }
 
+    /**
+     * A thread for races to run, settle and record their results on;
+     * the EDT only ever sees finished frames
+     */
+    static ScheduledExecutorService newEngine() {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "race-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     /**
      * Adds a horse to the race in a given lane
      * 
@@ -99,7 +157,18 @@ public class Race
             return;
         }
 
-        horseMap.putIfAbsent(laneNumber, theHorse);
+        engine.execute(() -> {
+            horseMap.putIfAbsent(laneNumber, theHorse);
+            rebuildLanes();
+        });
+    }
+
+    private void rebuildLanes() {
+        laneNumbers = horseMap.keys();
+        lanes = new Horse[laneNumbers.length];
+        for (int i = 0; i < laneNumbers.length; i++) {
+            lanes[i] = horseMap.get(laneNumbers[i]);
+        }
     }
     
     /**
@@ -113,96 +182,246 @@ public class Race
         if (!raceRunning) {
             raceRunning = true;
             racePaused = false;
-            raceStartTime = System.nanoTime();
-            // Reset horse positions but preserve their attributes
-            for (Horse horse : horseMap.values()) {
-                if (horse != null) {
-                    horse.setIsWinner(false);
-                    horse.goBackToStart();
-                }
-            }
-            winnerHorse = null;
-            raceTimer.start();
+            engine.execute(this::beginRace);
         } else if (racePaused) {
             racePaused = false;
-            raceTimer.start();
+            engine.execute(this::resumeRace);
         }
     }
 
-    private void updateRace() {
-        // Move horses
-        for (Horse horse : horseMap.values()) {
+    /**
+     * Starts a race straight away, for callers already on the engine
+     * thread. Package-private so SimulatorBenchmarks can drive ticks
+     * itself.
+     */
+    void beginRaceOnEngine() {
+        raceRunning = true;
+        racePaused = false;
+        beginRace();
+    }
+
+    private void beginRace() {
+        fallTicks = new int[lanes.length];
+        // Reset horse positions but preserve their attributes
+        for (Horse horse : lanes) {
             if (horse != null) {
-                moveHorse(horse);
+                horse.setIsWinner(false);
+                horse.goBackToStart();
             }
         }
+        winnerHorse = null;
+        raceFinished = false;
+        tick = 0;
+        leaderLane = -1;
+        SimulatorEvents.RaceStart event = new SimulatorEvents.RaceStart();
+        if (event.shouldCommit()) {
+            event.fieldSize = lanes.length;
+            event.raceLength = raceLength;
+            event.trackShape = track.getShape();
+            event.weather = track.getWeatherCondition();
+            event.commit();
+        }
+        bettingSystem.prepareInRunningOdds(horses, track, raceLength);
+        scheduleTicks();
+    }
 
-        // Update display
-        printRace();
+    private void resumeRace() {
+        // Horses may have been customised, or lanes added, while paused
+        if (fallTicks.length != lanes.length) {
+            fallTicks = Arrays.copyOf(fallTicks, lanes.length);
+        }
+        bettingSystem.prepareInRunningOdds(horses, track, raceLength);
+        scheduleTicks();
+    }
 
-        // Check for winner
-        if (raceWonBy()) {
-            raceRunning = false;
-            raceTimer.stop();
-            processRaceResults();
-            if (raceEndListener != null) {
-                raceEndListener.run();
-            }
+    private void scheduleTicks() {
+        cancelTicks();
+        if (turbo) {
+            engine.execute(this::runTurbo);
             return;
         }
-        // Check if all horses have fallen
-        else if (isAllHorsesFallen()) {
+        ticking = engine.scheduleAtFixedRate(() -> {
+            try {
+                if (raceRunning && !racePaused) {
+                    updateRace();
+                }
+            } catch (RuntimeException e) {
+                // An exception would silently cancel every later tick
+                e.printStackTrace();
+            }
+        }, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs ticks back to back. Works in batches so that pause and reset,
+     * which are queued on the same thread, still get a turn.
+     */
+    private void runTurbo() {
+        try {
+            for (int i = 0; i < TURBO_BATCH && turbo && raceRunning && !racePaused; i++) {
+                updateRace();
+            }
+        } catch (RuntimeException e) {
+            // As for paced ticks, one bad tick does not end the race
+            e.printStackTrace();
+        }
+        if (turbo && raceRunning && !racePaused) {
+            engine.execute(this::runTurbo);
+        }
+    }
+
+    /**
+     * Turbo mode runs races as fast as possible instead of one tick every
+     * TICK_MILLIS. Times are counted in ticks either way, so results
+     * are recorded exactly as they would be for a paced race.
+     */
+    public void setTurbo(boolean turbo) {
+        this.turbo = turbo;
+        engine.execute(() -> {
+            if (raceRunning && !racePaused) {
+                scheduleTicks();
+            }
+        });
+    }
+
+    public boolean isTurbo() {
+        return turbo;
+    }
+
+    private void cancelTicks() {
+        if (ticking != null) {
+            ticking.cancel(false);
+            ticking = null;
+        }
+    }
+
+    // Package-private so SimulatorBenchmarks can drive ticks without the timer
+    void updateRace() {
+        SimulatorEvents.RaceTick event = new SimulatorEvents.RaceTick();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            advanceRace();
+        } finally {
+            SimulatorMetrics.TICK.recordSince(start);
+        }
+        if (event.shouldCommit()) {
+            event.tick = tick;
+            event.fieldSize = lanes.length;
+            event.trackShape = track.getShape();
+            event.weather = track.getWeatherCondition();
+            event.commit();
+        }
+    }
+
+    private void advanceRace() {
+        tick++;
+        eventBus.publish(RaceEvent.Type.TICK, tick, -1, -1, -1, 0);
+
+        // Move horses
+        int leader = -1;
+        int leaderDistance = -1;
+        for (int i = 0; i < lanes.length; i++) {
+            Horse horse = lanes[i];
+            if (horse == null) continue;
+            int before = horse.getDistanceTravelled();
+            boolean wasDown = horse.hasFallen();
+            moveHorse(horse);
+
+            int horseId = horse instanceof HorseGUI ? ((HorseGUI) horse).getId() : -1;
+            if (horse.getDistanceTravelled() != before) {
+                eventBus.publish(RaceEvent.Type.MOVE, tick, laneNumbers[i], horseId, horse.getDistanceTravelled(), 0);
+            }
+            if (horse.hasFallen() && !wasDown) {
+                if (fallTicks != null && i < fallTicks.length) {
+                    fallTicks[i] = tick;
+                }
+                eventBus.publish(RaceEvent.Type.FALL, tick, laneNumbers[i], horseId, horse.getDistanceTravelled(), 0);
+            }
+            if (!horse.hasFallen() && horse.getDistanceTravelled() > leaderDistance) {
+                leader = i;
+                leaderDistance = horse.getDistanceTravelled();
+            }
+        }
+        if (leader >= 0 && laneNumbers[leader] != leaderLane) {
+            leaderLane = laneNumbers[leader];
+            Horse horse = lanes[leader];
+            eventBus.publish(RaceEvent.Type.LEAD_CHANGE, tick, leaderLane,
+                horse instanceof HorseGUI ? ((HorseGUI) horse).getId() : -1, leaderDistance, 0);
+        }
+
+        // Turbo races are only drawn once they are over
+        boolean finished = raceWonBy() || isAllHorsesFallen();
+        raceFinished = finished;
+        if (!turbo || finished) {
+            printRace();
+        }
+
+        if (finished) {
             raceRunning = false;
-            raceTimer.stop();
+            cancelTicks();
+            publishFinish();
             processRaceResults();
-            if (raceEndListener != null) {
-                raceEndListener.run();
-            }
             return;
         }
+
+        if (!turbo) {
+            bettingSystem.updateOddsDuringRace(horses.toArray(new HorseGUI[0]), track);
+        }
     }
 
     public void stopRace() {
         if (raceRunning) {
             racePaused = true;
-            raceTimer.stop();
+            engine.execute(this::cancelTicks);
         }
     }
 
     public void resetRace() {
         raceRunning = false;
         racePaused = false;
-        raceTimer.stop();
-        // Reset all horses
-        for (Horse horse : horseMap.values()) {
-            if (horse != null) {
-                horse.setIsWinner(false);
-                horse.goBackToStart();
+        engine.execute(() -> {
+            cancelTicks();
+            // Reset all horses
+            for (Horse horse : lanes) {
+                if (horse != null) {
+                    horse.setIsWinner(false);
+                    horse.goBackToStart();
+                }
             }
-        }
-        winnerHorse = null;
-        printRace();
+            winnerHorse = null;
+            raceFinished = false;
+            // As beginRace does, so the frame and race time start from zero again
+            tick = 0;
+            fallTicks = new int[lanes.length];
+            leaderLane = -1;
+            printRace();
+        });
     }
 
     private void processRaceResults() {
+        long start = System.nanoTime();
+        try {
+            settleRace();
+        } finally {
+            SimulatorMetrics.SETTLEMENT.recordSince(start);
+        }
+    }
+
+    private void settleRace() {
         // Calculate race statistics
-        double raceTime = (System.nanoTime() - raceStartTime) / 1_000_000_000.0;
+        double raceTime = getRaceTime();
         
         // Record stats for all horses
-        for (Horse horse : horseMap.values()) {
+        for (int lane = 0; lane < lanes.length; lane++) {
+            Horse horse = lanes[lane];
             if (horse != null && horse instanceof HorseGUI) {
                 HorseGUI horseGUI = (HorseGUI) horse;
                 
                 // Calculate individual horse time
-                double horseTime = raceTime;
-                if (horse.hasFallen()) {
-                    // If horse fell, use the actual time it fell
-                    horseTime = raceTime;
-                } else if (horse.getDistanceTravelled() < raceLength) {
-                    // If horse didn't finish, calculate time based on distance covered
-                    double completionRatio = (double)horse.getDistanceTravelled() / raceLength;
-                    horseTime = raceTime / completionRatio;
-                }
+                boolean timedFall = horse.hasFallen() && fallTicks != null && lane < fallTicks.length;
+                int fallTick = timedFall ? fallTicks[lane] : 0;
+                double horseTime = horseTime(raceTime, horse.getDistanceTravelled(), raceLength, fallTick);
                 
                 double horseSpeed = raceLength / horseTime;
                 
@@ -229,13 +448,17 @@ public class Race
                 );
                 
                 statistics.recordRace(horseGUI, stats);
+                exportResult(horseGUI, stats);
             }
         }
         
         // Update track records
         String trackKey = track.getShape() + "_" + track.getWeatherCondition();
-        if (!bestTimes.containsKey(trackKey) || raceTime < bestTimes.get(trackKey)) {
-            bestTimes.put(trackKey, raceTime);
+        if (winnerHorse != null) {
+            if (!bestTimes.containsKey(trackKey) || raceTime < bestTimes.get(trackKey)) {
+                bestTimes.put(trackKey, raceTime);
+            }
+            track.updateAverageTime(track.getShape(), raceTime);
         }
         
         // Process betting results
@@ -243,14 +466,18 @@ public class Race
             HorseGUI winningHorse = (HorseGUI) winnerHorse;
             
             // Record betting statistics
-            double totalBets = bettingSystem.getBets().values().stream().mapToDouble(Double::doubleValue).sum();
-            double winningBet = bettingSystem.getBets().getOrDefault(winningHorse, 0.0);
-            double winningOdds = bettingSystem.getOdds(winningHorse);
-            double payout = winningBet * winningOdds;
+            double totalBets = bettingSystem.getPlayerTotalStaked();
+            double winningBet = bettingSystem.getPlayerStake(winningHorse);
+            double payout = bettingSystem.getPotentialPayout(winningHorse);
+            double winningOdds = winningBet > 0 ? payout / winningBet : 0.0;
+            
+            List<HorseGUI> finishingOrder = getFinishingOrder();
+            boolean hasExoticBets = !bettingSystem.getExoticBets().isEmpty();
+            double exoticReturn = bettingSystem.exoticReturnFor(finishingOrder);
             
             recordBet(totalBets, winningBet > 0);
             
-            bettingSystem.processRaceResult(winningHorse);
+            bettingSystem.processRaceResult(winningHorse, finishingOrder);
             
             // Print winner and statistics
             StringBuilder results = new StringBuilder();
@@ -260,6 +487,11 @@ public class Race
             results.append(String.format("Average Speed: %.2f units/second\n", raceLength / raceTime));
             results.append("Track Shape: ").append(track.getShape()).append("\n");
             results.append("Weather: ").append(track.getWeatherCondition()).append("\n");
+            results.append("Placings:");
+            for (int i = 0; i < finishingOrder.size(); i++) {
+                results.append(String.format(" %d. %s", i + 1, finishingOrder.get(i).getName().trim()));
+            }
+            results.append("\n");
             results.append("\nBetting Results:\n");
             
             if (winningBet > 0) {
@@ -269,16 +501,19 @@ public class Race
             } else {
                 results.append("You didn't bet on the winning horse.\n");
             }
+            if (hasExoticBets) {
+                results.append(String.format("Exotic bets returned $%.2f\n", exoticReturn));
+            }
             
             results.append("\nBetting Summary:\n");
             results.append("----------------\n");
             results.append(String.format("Your Balance: $%.2f\n", bettingSystem.getPlayerBalance()));
             results.append(String.format("Total Bets Placed: $%.2f\n", totalBets));
             
-            raceDisplay.append(results.toString());
+            appendToDisplay(results.toString());
         } else if (isAllHorsesFallen()) {
             // Store total bets before processing results
-            double totalBets = bettingSystem.getBets().values().stream().mapToDouble(Double::doubleValue).sum();
+            double totalBets = bettingSystem.getPlayerTotalStaked();
             
             // Record betting statistics for no winner
             recordBet(totalBets, false);
@@ -298,48 +533,82 @@ public class Race
             results.append(String.format("Your Balance: $%.2f\n", bettingSystem.getPlayerBalance()));
             results.append(String.format("Total Bets Placed: $%.2f\n", totalBets));
             
-            raceDisplay.append(results.toString());
+            appendToDisplay(results.toString());
         }
         
-        // Update the GUI balance label and re-enable betting controls
-        SwingUtilities.invokeLater(() -> {
-            if (raceDisplay instanceof JTextArea) {
-                JTextArea textArea = (JTextArea) raceDisplay;
-                Container parent = textArea.getParent();
-                while (parent != null && !(parent instanceof MainGUI)) {
-                    parent = parent.getParent();
-                }
-                if (parent instanceof MainGUI) {
-                    MainGUI mainGUI = (MainGUI) parent;
-                    mainGUI.updateBalanceLabel();
-                    mainGUI.clearBettingUI();
-                    mainGUI.enableBettingControls();
-                }
+        // Lets the GUI update the balance and re-enable betting
+        eventBus.publish(RaceEvent.Type.SETTLEMENT, tick, -1, -1, -1, bettingSystem.getPlayerBalance());
+    }
+
+    private void exportResult(HorseGUI horse, RaceStats stats) {
+        RaceResultExporter exporter = resultExporter;
+        if (exporter == null) return;
+        try {
+            exporter.write(horse, stats);
+        } catch (IOException e) {
+            // Keep racing, just stop exporting
+            System.err.println("Result export stopped: " + e.getMessage());
+            resultExporter = null;
+        }
+    }
+
+    /**
+     * A horse's time over the full distance. Horses that did not finish
+     * are timed at the pace they kept until the race ended, or until the
+     * tick they fell on.
+     *
+     * @param fallTick the tick the horse fell on, 0 if it stayed up
+     */
+    static double horseTime(double raceTime, int distance, int raceLength, int fallTick) {
+        double completionRatio = raceLength > 0 ? (double) distance / raceLength : 0.0;
+        if (completionRatio <= 0) {
+            return raceTime;
+        }
+        if (fallTick > 0) {
+            return fallTick * TICK_SECONDS / completionRatio;
+        }
+        return completionRatio < 1 ? raceTime / completionRatio : raceTime;
+    }
+
+    private void publishFinish() {
+        int winnerLane = -1;
+        for (int i = 0; i < lanes.length; i++) {
+            if (lanes[i] != null && lanes[i] == winnerHorse) {
+                winnerLane = laneNumbers[i];
             }
-        });
-        
-        // Notify race end listener if set
-        if (raceEndListener != null) {
-            raceEndListener.run();
+        }
+        int horseId = winnerHorse instanceof HorseGUI ? ((HorseGUI) winnerHorse).getId() : -1;
+        eventBus.publish(RaceEvent.Type.FINISH, tick, winnerLane, horseId,
+            winnerHorse != null ? winnerHorse.getDistanceTravelled() : -1, 0);
+
+        SimulatorEvents.RaceFinish event = new SimulatorEvents.RaceFinish();
+        if (event.shouldCommit()) {
+            event.fieldSize = lanes.length;
+            event.trackShape = track.getShape();
+            event.weather = track.getWeatherCondition();
+            event.ticks = tick;
+            event.winner = winnerHorse != null ? winnerHorse.getName().trim() : "";
+            event.raceSeconds = getRaceTime();
+            event.commit();
         }
     }
 
     //new introduced method to print all fallen horses and informing there is no winner.
     private void printNoWinner() {
         StringBuilder sb = new StringBuilder();
-        for (Horse horse : horseMap.values()) {
+        for (Horse horse : lanes) {
             if (horse == null) continue;
             sb.append(horse.getSymbol()).append(" ").append(horse.getName()).append(" has fallen\n");
         }
         sb.append("All Horses have fallen! no Winner!\n");
-        raceDisplay.append(sb.toString());
+        appendToDisplay(sb.toString());
     }
 
     private boolean isAllHorsesFallen(){
         int fallenCount = 0;
         int nullCount = 0;
 
-        for(Horse horse: horseMap.values()){
+        for(Horse horse: lanes){
             if(horse == null){
                 nullCount++;
                 continue;
@@ -349,7 +618,7 @@ public class Race
             }
         }
 
-        return (fallenCount + nullCount) == horseMap.size();
+        return (fallenCount + nullCount) == lanes.length;
     }
 
     /**
@@ -360,26 +629,59 @@ public class Race
      * @param theHorse the horse to be moved
      */
     private void moveHorse(Horse theHorse)
+    {
+        moveHorse(theHorse, track, Math::random);
+    }
+
+    /**
+     * The tick rule itself, with the source of randomness passed in so
+     * other engines can be checked against it with seeded generators
+     */
+    static void moveHorse(Horse theHorse, Track track, DoubleSupplier random)
     {
         if (!theHorse.hasFallen()) {
-            // Apply weather and track condition modifiers
-            double moveChance = theHorse.getConfidence() * 0.95;  // Increased base move chance
-            moveChance *= track.getWeatherConfidenceModifier();
-            moveChance *= track.getTrackShapeModifier();
-            
-            // Reduced fall chance and made it more dependent on confidence
-            double fallChance = 0.01 * (1.3 - theHorse.getConfidence());
-            fallChance *= track.getWeatherFallChanceModifier();
-            
-            if (Math.random() < moveChance) {
+            if (random.getAsDouble() < moveChance(theHorse, track)) {
                 theHorse.moveForward();
             }
-            
-            if (Math.random() < fallChance) {
+
+            if (random.getAsDouble() < fallChance(theHorse, track)) {
                 theHorse.fall();
             }
         }
     }
+
+    /**
+     * The chance each tick that a standing horse moves forward
+     */
+    static double moveChance(Horse theHorse, Track track)
+    {
+        return moveChance(theHorse.getConfidence(), track);
+    }
+
+    static double moveChance(double confidence, Track track)
+    {
+        // Apply weather and track condition modifiers
+        double moveChance = confidence * 0.95;  // Increased base move chance
+        moveChance *= track.getWeatherConfidenceModifier();
+        moveChance *= track.getTrackShapeModifier();
+        return moveChance;
+    }
+
+    /**
+     * The chance each tick that a standing horse falls
+     */
+    static double fallChance(Horse theHorse, Track track)
+    {
+        return fallChance(theHorse.getConfidence(), track);
+    }
+
+    static double fallChance(double confidence, Track track)
+    {
+        // Reduced fall chance and made it more dependent on confidence
+        double fallChance = 0.01 * (1.3 - confidence);
+        fallChance *= track.getWeatherFallChanceModifier();
+        return fallChance;
+    }
         
     /** 
      * Determines if a horse has won the race
@@ -393,7 +695,7 @@ public class Race
             return false;
         }
 
-        for(Horse horse: horseMap.values()){
+        for(Horse horse: lanes){
             if(horse == null){
                 continue;
             }
@@ -426,7 +728,17 @@ public class Race
     /***
      * Print the race on the terminal with animation effect
      */
-    public void printRace()
+    public synchronized void printRace()
+    {
+        long start = System.nanoTime();
+        try {
+            renderRace();
+        } finally {
+            SimulatorMetrics.RENDER.recordSince(start);
+        }
+    }
+
+    private void renderRace()
     {
         StringBuilder raceState = new StringBuilder();
         raceState.append("HORSE RACE IN PROGRESS!\n");
@@ -437,17 +749,56 @@ public class Race
         raceState.append("\n");
 
         // Print each horse's lane
-        for (Horse horse : horseMap.values()) {
+        for (Horse horse : lanes) {
             printLane(raceState, horse);
             raceState.append("\n");
         }
 
         multiplePrint(raceState, '=', raceLength + 3); //bottom edge of track
         raceState.append("\n");
-        
-        // Update the GUI display
-        raceDisplay.setText(raceState.toString());
-        raceDisplay.setCaretPosition(0); // Scroll to top
+
+        int[] distances = new int[lanes.length];
+        boolean[] fallen = new boolean[lanes.length];
+        String[] names = new String[lanes.length];
+        int winner = -1;
+        for (int i = 0; i < lanes.length; i++) {
+            names[i] = "";
+            if (lanes[i] == null) continue;
+            if (lanes[i] == winnerHorse) winner = i;
+            distances[i] = lanes[i].getDistanceTravelled();
+            fallen[i] = lanes[i].hasFallen();
+            names[i] = lanes[i].getName().trim();
+        }
+        showFrame(new RaceFrame(tick, raceLength, raceState.toString(), distances, fallen, names,
+            raceFinished, winner));
+    }
+
+    private synchronized void appendToDisplay(String text) {
+        if (frame == null) {
+            renderRace();
+        }
+        showFrame(frame.withText(text));
+    }
+
+    /**
+     * Hands a frame to the EDT. Only one hand-off is queued at a time; if
+     * the EDT falls behind, frames it has not drawn yet are replaced by
+     * the newest one instead of piling up. Races with no text view just
+     * keep the frame for whoever polls getFrame.
+     */
+    private void showFrame(RaceFrame next) {
+        frame = next;
+        if (raceDisplay != null && pendingFrame.getAndSet(next) == null) {
+            SwingUtilities.invokeLater(this::drawPendingFrame);
+        }
+    }
+
+    private void drawPendingFrame() {
+        RaceFrame next = pendingFrame.getAndSet(null);
+        if (next != null) {
+            raceDisplay.setText(next.getText());
+            raceDisplay.setCaretPosition(0); // Scroll to top
+        }
     }
 
     /**
@@ -502,7 +853,7 @@ public class Race
             return;
 
         String winnerText = "And the winner is................  " + theHorse.getName() + "!\n";
-        raceDisplay.append(winnerText);
+        appendToDisplay(winnerText);
     }
 
 
@@ -521,19 +872,62 @@ public class Race
     }
 
     public void setTrackShape(String shape) {
-        track.setShape(shape);
-        printRace();
+        engine.execute(() -> {
+            track.setShape(shape);
+            printRace();
+        });
     }
     
     public void setWeatherCondition(String weather) {
-        track.setWeatherCondition(weather);
-        printRace();
+        engine.execute(() -> {
+            track.setWeatherCondition(weather);
+            printRace();
+        });
+    }
+
+    /**
+     * Runs then on the EDT once the changes asked for so far have been
+     * made. Setters only queue their change on the engine, so that it
+     * never lands in the middle of a tick.
+     */
+    public void invokeWhenApplied(Runnable then) {
+        engine.execute(() -> SwingUtilities.invokeLater(then));
     }
 
     public Track getTrack() {
         return track;
     }
 
+    public int getRaceLength() {
+        return raceLength;
+    }
+
+    /**
+     * The placings of the last race: the winner, then every horse still
+     * standing by distance covered (ties to the lower lane).
+     * Fallen horses are unplaced and there are no placings without a winner.
+     */
+    public List<HorseGUI> getFinishingOrder() {
+        List<HorseGUI> order = new ArrayList<>();
+        int winnerLane = horses.indexOf(winnerHorse);
+        if (winnerLane < 0) {
+            return order;
+        }
+
+        int[] distance = new int[horses.size()];
+        boolean[] fallen = new boolean[horses.size()];
+        for (int lane = 0; lane < horses.size(); lane++) {
+            distance[lane] = horses.get(lane).getDistanceTravelled();
+            fallen[lane] = horses.get(lane).hasFallen();
+        }
+        int[] placings = new int[horses.size()];
+        int placed = RaceSimulator.placeLanes(distance, fallen, winnerLane, placings);
+        for (int i = 0; i < placed; i++) {
+            order.add(horses.get(placings[i]));
+        }
+        return order;
+    }
+
     public List<HorseGUI> getHorses() {
         return horses;
     }
@@ -543,72 +937,62 @@ public class Race
     }
 
     public void setLaneCount(int count) {
+        engine.execute(() -> applyLaneCount(count));
+    }
+
+    private void applyLaneCount(int count) {
         if (count >= 2 && count <= 25) {
             this.laneCount = count;
             // Update track with new lane count
             track = new Track(trackLength, laneCount);
             
-            // Create a temporary map to store existing horses
-            HashMap<Integer, Horse> tempMap = new HashMap<>();
-            
-            // Copy existing horses to temporary map
-            for (Map.Entry<Integer, Horse> entry : horseMap.entrySet()) {
-                if (entry.getKey() < count) {  // Only keep horses that fit in new lane count
-                    tempMap.put(entry.getKey(), entry.getValue());
+            // Drop horses in lanes that no longer exist
+            for (int lane : horseMap.keys()) {
+                if (lane >= count) {
+                    horseMap.remove(lane);
                 }
             }
+            List<HorseGUI> field = new ArrayList<>();
             
-            // Clear and update the main maps
-            horseMap.clear();
-            horses.clear();
-            
-            // Restore existing horses
-            for (Map.Entry<Integer, Horse> entry : tempMap.entrySet()) {
-                horseMap.put(entry.getKey(), entry.getValue());
-                if (entry.getValue() instanceof HorseGUI) {
-                    horses.add((HorseGUI) entry.getValue());
+            // Keep the existing horses
+            for (int lane : horseMap.keys()) {
+                Horse horse = horseMap.get(lane);
+                if (horse instanceof HorseGUI) {
+                    field.add((HorseGUI) horse);
                 }
             }
             
-            // Add new horses only if needed
-            for (int i = horseMap.size(); i < count; i++) {
-                // Generate random stats within reasonable limits
-                double confidence = 0.5 + (Math.random() * 0.4); // Random between 0.5 and 0.9
-                double speed = 0.6 + (Math.random() * 0.3);     // Random between 0.6 and 0.9
-                double stamina = 0.5 + (Math.random() * 0.4);   // Random between 0.5 and 0.9
-                
-                HorseGUI horse = new HorseGUI((char)('@' + i), "Horse " + (i + 1), confidence);
-                horse.setSpeed(speed);
-                horse.setStamina(stamina);
-                
-                // Randomly assign breed and coat color
-                String[] breeds = {"Thoroughbred", "Arabian", "Quarter Horse", "Appaloosa", "Paint"};
-                String[] colors = {"Brown", "Black", "Grey", "White", "Chestnut"};
-                horse.setBreed(breeds[(int)(Math.random() * breeds.length)]);
-                horse.setCoatColor(colors[(int)(Math.random() * colors.length)]);
-                
-                // Randomly assign equipment
-                String[] saddles = {"Standard", "Racing", "Lightweight", "Heavy"};
-                String[] horseshoes = {"Standard", "Lightweight", "Heavy", "Racing"};
-                horse.setSaddle(saddles[(int)(Math.random() * saddles.length)]);
-                horse.setHorseshoes(horseshoes[(int)(Math.random() * horseshoes.length)]);
-                
-                horseMap.put(i, horse);
-                horses.add(horse);
+            // Add new horses only if needed, drawn in one go
+            int missing = count - horseMap.size();
+            if (missing > 0) {
+                HorseRoster newcomers = HorseRoster.generate(missing, (long) (Math.random() * Long.MAX_VALUE));
+                for (int i = horseMap.size(), j = 0; i < count; i++, j++) {
+                    HorseGUI horse = newcomers.toHorse(j);
+                    horse.setSymbol((char)('@' + i));
+                    horse.setName("Horse " + (i + 1));
+                    horseMap.put(i, horse);
+                    field.add(horse);
+                }
             }
+            rebuildLanes();
             
             // Ensure all horses are in the horses list
-            for (Horse horse : horseMap.values()) {
-                if (horse != null && horse instanceof HorseGUI && !horses.contains(horse)) {
-                    horses.add((HorseGUI) horse);
+            for (Horse horse : lanes) {
+                if (horse != null && horse instanceof HorseGUI && !field.contains(horse)) {
+                    field.add((HorseGUI) horse);
                 }
             }
+            horses = field;
             
             printRace();
         }
     }
     
     public void setTrackLength(int length) {
+        engine.execute(() -> applyTrackLength(length));
+    }
+
+    private void applyTrackLength(int length) {
         if (length >= 20 && length <= 200) {
             this.trackLength = length;
             this.raceLength = length;
@@ -623,45 +1007,62 @@ public class Race
     }
     
     public double getAverageTimeForShape(String shape) {
-        // This is a simplified implementation
-        // In a real application, you'd track all times and calculate the average
-        return getBestTimeForTrack(shape) * 1.2;
+        return track.getAverageTimeForShape(shape);
+    }
+
+    /**
+     * Simulated time since the start of the current or last race
+     */
+    public double getRaceTime() {
+        return tick * TICK_SECONDS;
     }
     
-    public int getTotalBets() {
+    public synchronized int getTotalBets() {
         return totalBets;
     }
     
-    public double getTotalBetAmount() {
+    public synchronized double getTotalBetAmount() {
         return totalBetAmount;
     }
     
-    public int getWinningBets() {
+    public synchronized int getWinningBets() {
         return winningBets;
     }
     
-    public double getBettingWinRate() {
+    public synchronized double getBettingWinRate() {
         return totalBets > 0 ? (double) winningBets / totalBets : 0.0;
     }
     
-    public double getAverageBetAmount() {
+    public synchronized double getAverageBetAmount() {
         return totalBets > 0 ? totalBetAmount / totalBets : 0.0;
     }
     
     public List<String> getRecentBets() {
-        return new ArrayList<>(recentBets);
+        return recentBets.toList();
+    }
+
+    /**
+     * Persistent history of settled bets, or null if it could not be opened
+     */
+    public BetHistoryStore getBetHistory() {
+        return betHistory;
     }
     
-    public void recordBet(double amount, boolean won) {
+    public synchronized void recordBet(double amount, boolean won) {
         totalBets++;
         totalBetAmount += amount;
         if (won) winningBets++;
         
         String betRecord = String.format("$%.2f - %s", amount, won ? "Won" : "Lost");
         recentBets.add(betRecord);
-        if (recentBets.size() > 10) {
-            recentBets.remove(0);
-        }
+    }
+
+    /**
+     * Streams every horse's result to the exporter as races are settled,
+     * null to stop. The caller still owns and closes the exporter.
+     */
+    public void setResultExporter(RaceResultExporter resultExporter) {
+        this.resultExporter = resultExporter;
     }
 
     public Statistics getStatistics() {
@@ -676,8 +1077,30 @@ public class Race
         return raceRunning;
     }
 
-    public void addRaceEndListener(Runnable listener) {
-        this.raceEndListener = listener;
+    public boolean isRacePaused() {
+        return racePaused;
+    }
+
+    /**
+     * Events from the race as it runs. Published on the thread running
+     * the race; consumers subscribe and read at their own pace.
+     */
+    public RaceEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * The newest frame the engine has produced, null before the first
+     */
+    public RaceFrame getFrame() {
+        return frame;
+    }
+
+    /**
+     * Time between race ticks
+     */
+    public int getTickMillis() {
+        return TICK_MILLIS;
     }
 }
 
@@ -0,0 +1,479 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams a race to spectators over local TCP or WebSocket connections.
+ *
+ * A new spectator gets a keyframe, the whole state of the race, and after
+ * that a delta for every frame the race produces, holding only the lanes
+ * whose distance or fallen state changed. A keyframe goes to everyone
+ * when a new race starts or the field changes.
+ *
+ * One thread runs a Selector for every connection. It polls the race's
+ * latest RaceFrame, so the race never knows the server is there, encodes
+ * each message once and queues the same bytes for every spectator.
+ * Everything sent is read from the immutable frame, never from the race
+ * the engine is changing.
+ * Writes never block: whatever a socket will not take stays in that
+ * spectator's queue. A queue is bounded, and a spectator that falls that
+ * far behind has its queue replaced by a keyframe of the current state,
+ * so a slow viewer costs itself frames and nothing else.
+ *
+ * Messages are big-endian. A keyframe is the byte KEYFRAME, the tick as an
+ * int, a running byte, the race length as a short and the lane count as a
+ * byte, then for each lane its distance as a short, a fallen byte and the
+ * horse's name as a short length and UTF-8 bytes. A delta is the byte
+ * DELTA, the tick, the running byte and the number of lanes changed as a
+ * byte, then for each a lane byte, distance short and fallen byte. Over
+ * TCP each message is preceded by its length as an int; over WebSocket
+ * each is one binary frame. Anything spectators send is ignored, apart
+ * from a WebSocket close.
+ */
+public class RaceBroadcastServer implements Closeable {
+    public enum Protocol {
+        TCP,
+        WEBSOCKET
+    }
+
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+    private static final int DEFAULT_MAX_QUEUED = 256;
+    // Kept small so a stalled spectator backs up into its own queue quickly
+    private static final int SEND_BUFFER = 64 * 1024;
+    private static final long POLL_MILLIS = Race.TICK_MILLIS / 4;
+    private static final int MAX_HANDSHAKE = 8192;
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private final Race race;
+    private final Protocol protocol;
+    private final int maxQueued;
+    private final int sendBuffer;
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private volatile boolean open = true;
+    private volatile int spectators;
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Only touched on the server thread
+    private final List<Spectator> connected = new ArrayList<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(4096);
+    private RaceFrame sent;
+    private boolean sentRunning;
+    private int sentLanes = -1;
+    private Message keyframe; // Of sent, made when first needed
+
+    /**
+     * Starts serving on the loopback address
+     *
+     * @param port the port, or 0 for any free one
+     */
+    public RaceBroadcastServer(Race race, int port, Protocol protocol) throws IOException {
+        this(race, port, protocol, DEFAULT_MAX_QUEUED, SEND_BUFFER);
+    }
+
+    RaceBroadcastServer(Race race, int port, Protocol protocol, int maxQueued, int sendBuffer) throws IOException {
+        this.race = race;
+        this.protocol = protocol;
+        this.maxQueued = maxQueued;
+        this.sendBuffer = sendBuffer;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.thread = new Thread(this::serve, "race-broadcast-" + getPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    public Protocol getProtocol() {
+        return protocol;
+    }
+
+    public int getSpectatorCount() {
+        return spectators;
+    }
+
+    /**
+     * Messages thrown away because a spectator fell behind
+     */
+    public long getDroppedMessages() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        open = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void serve() {
+        try {
+            while (open) {
+                selector.select(POLL_MILLIS);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Spectator spectator = (Spectator) key.attachment();
+                    try {
+                        if (key.isReadable()) spectator.read();
+                        if (key.isValid() && key.isWritable()) spectator.flush();
+                    } catch (RuntimeException e) {
+                        // Only this spectator is dropped
+                        System.err.println("Race broadcast dropped a spectator: " + e);
+                        spectator.close();
+                    }
+                }
+                selector.selectedKeys().clear();
+                try {
+                    poll();
+                } catch (RuntimeException e) {
+                    // Skip this frame; the next poll starts afresh with a keyframe
+                    System.err.println("Race broadcast skipped a frame: " + e);
+                    sent = null;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Only the server goes down; the race carries on
+            System.err.println("Race broadcast stopped: " + e);
+        } finally {
+            for (Spectator spectator : new ArrayList<>(connected)) {
+                spectator.close();
+            }
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Race broadcast did not close cleanly: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, sendBuffer);
+            Spectator spectator = new Spectator(channel);
+            spectator.key = channel.register(selector, SelectionKey.OP_READ, spectator);
+            connected.add(spectator);
+            spectators = connected.size();
+            if (protocol == Protocol.TCP) {
+                spectator.welcome();
+            }
+        }
+    }
+
+    /**
+     * Sends whatever has changed since the last message
+     */
+    private void poll() {
+        RaceFrame frame = race.getFrame();
+        boolean running = race.isRaceRunning();
+        if (frame == null || (frame == sent && running == sentRunning)) return;
+
+        // A new race, or a different field, starts everyone afresh
+        boolean fresh = sent == null || frame.getTick() < sent.getTick() || frame.getLaneCount() != sentLanes;
+        Message message = fresh ? null : delta(sent, frame, running);
+        sent = frame;
+        sentRunning = running;
+        sentLanes = frame.getLaneCount();
+        keyframe = null;
+        if (message == null) {
+            message = currentKeyframe();
+        }
+        for (Spectator spectator : new ArrayList<>(connected)) {
+            if (spectator.welcomed) spectator.send(message);
+        }
+    }
+
+    private Message currentKeyframe() {
+        if (keyframe == null) {
+            int lanes = sent.getLaneCount();
+            byte[][] names = new byte[lanes][];
+            int size = 1 + 4 + 1 + 2 + 1;
+            for (int lane = 0; lane < lanes; lane++) {
+                names[lane] = sent.getName(lane).getBytes(StandardCharsets.UTF_8);
+                size += 2 + 1 + 2 + names[lane].length;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(size);
+            payload.put(KEYFRAME).putInt(sent.getTick()).put(sentRunning ? (byte) 1 : 0)
+                .putShort((short) sent.getRaceLength()).put((byte) lanes);
+            for (int lane = 0; lane < lanes; lane++) {
+                payload.putShort((short) sent.getDistance(lane)).put(sent.hasFallen(lane) ? (byte) 1 : 0)
+                    .putShort((short) names[lane].length).put(names[lane]);
+            }
+            keyframe = new Message(payload.array());
+        }
+        return keyframe;
+    }
+
+    private static Message delta(RaceFrame before, RaceFrame after, boolean running) {
+        int changed = 0;
+        for (int lane = 0; lane < after.getLaneCount(); lane++) {
+            if (after.getDistance(lane) != before.getDistance(lane) || after.hasFallen(lane) != before.hasFallen(lane)) {
+                changed++;
+            }
+        }
+        ByteBuffer payload = ByteBuffer.allocate(1 + 4 + 1 + 1 + changed * 4);
+        payload.put(DELTA).putInt(after.getTick()).put(running ? (byte) 1 : 0).put((byte) changed);
+        for (int lane = 0; lane < after.getLaneCount(); lane++) {
+            if (after.getDistance(lane) != before.getDistance(lane) || after.hasFallen(lane) != before.hasFallen(lane)) {
+                payload.put((byte) lane).putShort((short) after.getDistance(lane))
+                    .put(after.hasFallen(lane) ? (byte) 1 : 0);
+            }
+        }
+        return new Message(payload.array());
+    }
+
+    /**
+     * One encoded message, framed for each protocol when first asked for
+     * and then shared by every spectator using that protocol
+     */
+    private static class Message {
+        private final byte[] payload;
+        private ByteBuffer framed;
+
+        Message(byte[] payload) {
+            this.payload = payload;
+        }
+
+        /**
+         * A view of the framed bytes with its own position, for one spectator
+         */
+        ByteBuffer framed(Protocol protocol) {
+            if (framed == null) {
+                int length = payload.length;
+                if (protocol == Protocol.TCP) {
+                    framed = ByteBuffer.allocate(4 + length).putInt(length);
+                } else if (length < 126) {
+                    framed = ByteBuffer.allocate(2 + length).put((byte) 0x82).put((byte) length);
+                } else if (length < 65536) {
+                    framed = ByteBuffer.allocate(4 + length).put((byte) 0x82).put((byte) 126).putShort((short) length);
+                } else {
+                    framed = ByteBuffer.allocate(10 + length).put((byte) 0x82).put((byte) 127).putLong(length);
+                }
+                framed.put(payload).flip();
+            }
+            return framed.duplicate();
+        }
+    }
+
+    private class Spectator {
+        final SocketChannel channel;
+        SelectionKey key;
+        boolean welcomed;
+        private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+        private ByteBuffer current; // Part-written, always finished before anything else
+        private ByteBuffer handshake;
+        // WebSocket frames from the spectator are skipped over
+        private ByteBuffer incoming;
+        private long skipping;
+
+        Spectator(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Starts the stream with a keyframe, if the race has produced a frame yet
+         */
+        void welcome() {
+            welcomed = true;
+            if (sent != null) send(currentKeyframe());
+        }
+
+        void send(Message message) {
+            if (queue.size() >= maxQueued) {
+                // Too far behind: skip to the present
+                dropped.addAndGet(queue.size() + 1);
+                queue.clear();
+                queue.add(currentKeyframe().framed(protocol));
+            } else {
+                queue.add(message.framed(protocol));
+            }
+            flush();
+        }
+
+        void flush() {
+            try {
+                while (current != null || !queue.isEmpty()) {
+                    if (current == null) current = queue.poll();
+                    channel.write(current);
+                    if (current.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    current = null;
+                }
+                key.interestOps(SelectionKey.OP_READ);
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void read() {
+            try {
+                scratch.clear();
+                int read = channel.read(scratch);
+                if (read < 0) {
+                    close();
+                    return;
+                }
+                scratch.flip();
+                if (protocol == Protocol.TCP) {
+                    return;
+                }
+                if (!welcomed) {
+                    readHandshake();
+                } else {
+                    skipFrames();
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        private void readHandshake() throws IOException {
+            if (handshake == null) handshake = ByteBuffer.allocate(MAX_HANDSHAKE);
+            if (scratch.remaining() > handshake.remaining()) {
+                close();
+                return;
+            }
+            handshake.put(scratch);
+            String request = new String(handshake.array(), 0, handshake.position(), StandardCharsets.ISO_8859_1);
+            int end = request.indexOf("\r\n\r\n");
+            if (end < 0) return;
+
+            String key = null;
+            for (String line : request.substring(0, end).split("\r\n")) {
+                int colon = line.indexOf(':');
+                if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                    key = line.substring(colon + 1).trim();
+                }
+            }
+            if (!request.startsWith("GET ") || key == null) {
+                close();
+                return;
+            }
+            String response = "HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + accept(key) + "\r\n\r\n";
+            queue.add(ByteBuffer.wrap(response.getBytes(StandardCharsets.ISO_8859_1)));
+            incoming = ByteBuffer.allocate(16);
+            // Anything after the request is the start of the first frame
+            handshake.flip().position(end + 4);
+            scratch.clear();
+            scratch.put(handshake).flip();
+            handshake = null;
+            welcome();
+            flush();
+            skipFrames();
+        }
+
+        /**
+         * Reads just enough of each frame header to skip its payload and to
+         * notice a close
+         */
+        private void skipFrames() {
+            while (scratch.hasRemaining()) {
+                if (skipping > 0) {
+                    int skip = (int) Math.min(skipping, scratch.remaining());
+                    scratch.position(scratch.position() + skip);
+                    skipping -= skip;
+                    continue;
+                }
+                incoming.put(scratch.get());
+                if (incoming.position() < 2) continue;
+                int opcode = incoming.get(0) & 0x0F;
+                int length = incoming.get(1) & 0x7F;
+                boolean masked = (incoming.get(1) & 0x80) != 0;
+                int headerLength = 2 + (length == 126 ? 2 : length == 127 ? 8 : 0) + (masked ? 4 : 0);
+                if (incoming.position() < headerLength) continue;
+                if (opcode == 0x8) {
+                    close();
+                    return;
+                }
+                skipping = length == 126 ? incoming.getShort(2) & 0xFFFF : length == 127 ? incoming.getLong(2) : length;
+                incoming.clear();
+            }
+        }
+
+        void close() {
+            if (connected.remove(this)) {
+                spectators = connected.size();
+            }
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Going anyway
+            }
+        }
+    }
+
+    private static String accept(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            byte[] digest = sha1.digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.ISO_8859_1));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Runs races back to back and broadcasts them, over TCP on the given
+     * port and over WebSocket on the next one
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        Race race = new Race(50, null, Race.newEngine(), null);
+        try (RaceBroadcastServer tcp = new RaceBroadcastServer(race, port, Protocol.TCP);
+             RaceBroadcastServer websocket = new RaceBroadcastServer(race, port + 1, Protocol.WEBSOCKET)) {
+            System.out.printf("Broadcasting on tcp://localhost:%d and ws://localhost:%d%n", tcp.getPort(),
+                websocket.getPort());
+            while (true) {
+                race.startRace();
+                do {
+                    Thread.sleep(1000);
+                } while (race.isRaceRunning());
+                System.out.printf("%d spectators, %d messages dropped%n",
+                    tcp.getSpectatorCount() + websocket.getSpectatorCount(),
+                    tcp.getDroppedMessages() + websocket.getDroppedMessages());
+                Thread.sleep(2000);
+            }
+        }
+    }
+}
@@ -0,0 +1,357 @@
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Many races at once, drawn as a grid of small tracks.
+ *
+ * One Timer drives every tile. On each frame it picks out the races that
+ * have produced a new frame since their tile was last drawn, draws just
+ * those tiles into one back buffer kept for the whole grid, and asks
+ * Swing to copy the changed area to the screen. Races that have not
+ * moved cost a reference comparison. At most MAX_TILES_PER_FRAME tiles
+ * are drawn on a frame, starting where the last frame stopped, so the
+ * work on the EDT has a ceiling however many races are showing: past
+ * that, each tile is just refreshed less often.
+ *
+ * Races have no text view and no bet history, and they share a few
+ * engine threads, one per core at most, rather than having one each.
+ */
+public class RaceDashboard extends JComponent {
+    private static final long serialVersionUID = 1L;
+    private static final int FRAME_MILLIS = 33;
+    private static final int MAX_TILES_PER_FRAME = 24;
+    private static final int GAP = 4;
+    private static final int HEADER = 16;
+    private static final int MARGIN = 10;
+    // How long a finished race stays on screen before it is run again
+    private static final long LOOP_DELAY_NANOS = 2_000_000_000L;
+    private static final Color BACKGROUND = new Color(30, 30, 30);
+    private static final Color HEADER_TEXT = new Color(230, 230, 230);
+    private static final Font HEADER_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 11);
+
+    private final List<Race> races = new ArrayList<>();
+    private final ScheduledExecutorService[] engines;
+    private final int columns;
+    private final Timer frameTimer;
+
+    // The frame each tile was last drawn from, null if it needs drawing anyway
+    private final RaceFrame[] drawn;
+    private final long[] finishedSince;
+    private int nextTile;
+    private volatile boolean looping = true;
+
+    private BufferedImage buffer;
+    private BufferedImage[] trackImages = new BufferedImage[PlacingTable.MAX_LANES + 1]; // By lane count
+    private final IntObjectMap<SpriteAtlas> sprites = new IntObjectMap<>(); // By sprite height
+
+    /**
+     * @param count how many races to show
+     * @param raceLength how long each one is
+     */
+    public RaceDashboard(int count, int raceLength, long seed) {
+        engines = new ScheduledExecutorService[Math.max(1, Math.min(count,
+            Runtime.getRuntime().availableProcessors()))];
+        for (int i = 0; i < engines.length; i++) {
+            engines[i] = Race.newEngine();
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < count; i++) {
+            Race race = new Race(raceLength, null, engines[i % engines.length], null);
+            race.setTrackLength(raceLength);
+            race.setLaneCount(4 + random.nextInt(5));
+            race.setTrackShape(SeasonSimulator.TRACK_SHAPES[random.nextInt(SeasonSimulator.TRACK_SHAPES.length)]);
+            race.setWeatherCondition(SeasonSimulator.WEATHER[random.nextInt(SeasonSimulator.WEATHER.length)]);
+            races.add(race);
+        }
+        columns = Math.max(1, (int) Math.ceil(Math.sqrt(count)));
+        drawn = new RaceFrame[count];
+        finishedSince = new long[count];
+        frameTimer = new Timer(FRAME_MILLIS, e -> renderFrame());
+        setPreferredSize(new Dimension(columns * 300, ((count + columns - 1) / columns) * 150));
+        setOpaque(true);
+    }
+
+    /**
+     * A window with the dashboard and buttons to run every race at once
+     */
+    public static JFrame open(int count) {
+        RaceDashboard dashboard = new RaceDashboard(count, 50, System.nanoTime());
+        JFrame frame = new JFrame("Race Dashboard");
+        frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+
+        JPanel controls = new JPanel();
+        JButton start = new JButton("Start All");
+        start.addActionListener(e -> dashboard.startAll());
+        JButton pause = new JButton("Pause All");
+        pause.addActionListener(e -> dashboard.pauseAll());
+        JButton reset = new JButton("Reset All");
+        reset.addActionListener(e -> dashboard.resetAll());
+        JCheckBox loop = new JCheckBox("Loop", dashboard.isLooping());
+        loop.setToolTipText("Run each race again a couple of seconds after it finishes");
+        loop.addActionListener(e -> dashboard.setLooping(loop.isSelected()));
+        controls.add(start);
+        controls.add(pause);
+        controls.add(reset);
+        controls.add(loop);
+
+        frame.add(controls, BorderLayout.NORTH);
+        frame.add(dashboard, BorderLayout.CENTER);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                dashboard.shutdown();
+            }
+        });
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        return frame;
+    }
+
+    public List<Race> getRaces() {
+        return races;
+    }
+
+    public void startAll() {
+        for (Race race : races) {
+            race.startRace();
+        }
+    }
+
+    public void pauseAll() {
+        for (Race race : races) {
+            race.stopRace();
+        }
+    }
+
+    public void resetAll() {
+        for (Race race : races) {
+            race.resetRace();
+        }
+    }
+
+    public boolean isLooping() {
+        return looping;
+    }
+
+    public void setLooping(boolean looping) {
+        this.looping = looping;
+    }
+
+    /**
+     * Stops drawing and the engine threads; the races cannot be run again
+     */
+    public void shutdown() {
+        frameTimer.stop();
+        for (ScheduledExecutorService engine : engines) {
+            engine.shutdownNow();
+        }
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        frameTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        frameTimer.stop();
+        super.removeNotify();
+    }
+
+    /**
+     * One pass of the frame timer. Package-private so the EDT cost can be
+     * measured without a screen.
+     */
+    void renderFrame() {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) return;
+        if (buffer == null || buffer.getWidth() != width || buffer.getHeight() != height) {
+            newBuffer(width, height);
+        }
+
+        long now = System.nanoTime();
+        Rectangle changed = null;
+        Graphics2D g = buffer.createGraphics();
+        try {
+            int tiles = races.size();
+            int budget = MAX_TILES_PER_FRAME;
+            int looked = 0;
+            for (; looked < tiles && budget > 0; looked++) {
+                int tile = (nextTile + looked) % tiles;
+                Race race = races.get(tile);
+                RaceFrame frame = race.getFrame();
+                if (frame != drawn[tile]) {
+                    Rectangle bounds = tileBounds(tile);
+                    // Horses at the start poke out of their tile otherwise
+                    g.setClip(bounds);
+                    drawTile(g, race, frame, bounds);
+                    drawn[tile] = frame;
+                    changed = changed == null ? bounds : changed.union(bounds);
+                    budget--;
+                }
+                if (looping) {
+                    loop(tile, race, frame, now);
+                }
+            }
+            // The next frame starts after the last tile looked at, so a busy grid
+            // shares out the budget instead of always favouring the first tiles
+            nextTile = (nextTile + looked) % Math.max(1, tiles);
+        } finally {
+            g.dispose();
+        }
+        if (changed != null) {
+            repaint(changed);
+        }
+    }
+
+    private void loop(int tile, Race race, RaceFrame frame, long now) {
+        boolean finished = !race.isRaceRunning() && frame != null && frame.isFinished();
+        if (!finished) {
+            finishedSince[tile] = 0;
+        } else if (finishedSince[tile] == 0) {
+            finishedSince[tile] = now;
+        } else if (now - finishedSince[tile] > LOOP_DELAY_NANOS) {
+            finishedSince[tile] = 0;
+            race.startRace();
+        }
+    }
+
+    private void newBuffer(int width, int height) {
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        buffer = configuration != null
+            ? configuration.createCompatibleImage(width, height)
+            : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = buffer.createGraphics();
+        try {
+            g.setColor(BACKGROUND);
+            g.fillRect(0, 0, width, height);
+        } finally {
+            g.dispose();
+        }
+        trackImages = new BufferedImage[trackImages.length];
+        sprites.clear();
+        // Every tile has to go into the new buffer
+        Arrays.fill(drawn, null);
+    }
+
+    private Rectangle tileBounds(int tile) {
+        int rows = (races.size() + columns - 1) / columns;
+        int tileWidth = (getWidth() - GAP) / columns - GAP;
+        int tileHeight = (getHeight() - GAP) / rows - GAP;
+        return new Rectangle(GAP + (tile % columns) * (tileWidth + GAP), GAP + (tile / columns) * (tileHeight + GAP),
+            tileWidth, tileHeight);
+    }
+
+    private void drawTile(Graphics2D g, Race race, RaceFrame frame, Rectangle bounds) {
+        int trackHeight = bounds.height - HEADER;
+        if (bounds.width <= 2 * MARGIN || trackHeight <= 2 * MARGIN) return;
+        List<HorseGUI> horses = race.getHorses();
+        int lanes = Math.max(1, Math.min(horses.size(), PlacingTable.MAX_LANES));
+        int raceLength = Math.max(1, race.getRaceLength());
+
+        g.setColor(BACKGROUND);
+        g.fillRect(bounds.x, bounds.y, bounds.width, HEADER);
+        g.setColor(HEADER_TEXT);
+        g.setFont(HEADER_FONT);
+        g.drawString(header(race, frame), bounds.x + 2, bounds.y + HEADER - 4);
+
+        int top = bounds.y + HEADER;
+        g.drawImage(trackImage(lanes, bounds.width, trackHeight), bounds.x, top, null);
+        if (frame == null) return;
+
+        // Tiles with the same number of lanes share an atlas
+        double laneHeight = (double) (trackHeight - 2 * MARGIN) / lanes;
+        int spriteHeight = (int) Math.max(6, Math.min(laneHeight * 0.9, 48));
+        SpriteAtlas atlas = sprites.get(spriteHeight);
+        if (atlas == null) {
+            atlas = new SpriteAtlas(spriteHeight);
+            sprites.put(spriteHeight, atlas);
+        }
+        Image image = atlas.validImage(getGraphicsConfiguration());
+        double unit = (double) (bounds.width - 2 * MARGIN) / raceLength;
+        for (int lane = 0; lane < Math.min(lanes, frame.getLaneCount()); lane++) {
+            int x = (int) (bounds.x + MARGIN + Math.min(frame.getDistance(lane), raceLength) * unit)
+                - atlas.getSpriteWidth() / 2;
+            int y = (int) (top + MARGIN + lane * laneHeight + (laneHeight - spriteHeight) / 2);
+            atlas.draw(g, image, horses.get(lane), frame.hasFallen(lane), x, y);
+        }
+    }
+
+    private String header(Race race, RaceFrame frame) {
+        Track track = race.getTrack();
+        String conditions = track.getShape() + ", " + track.getWeatherCondition();
+        if (frame == null || frame.getTick() == 0) {
+            return conditions;
+        }
+        String time = String.format("%.1f s", frame.getTick() * Race.TICK_SECONDS);
+        if (!frame.isFinished()) {
+            return conditions + "  " + time;
+        }
+        if (frame.getWinner() >= 0) {
+            return conditions + "  " + frame.getName(frame.getWinner()) + " won in " + time;
+        }
+        return conditions + "  no winner";
+    }
+
+    private BufferedImage trackImage(int lanes, int width, int height) {
+        BufferedImage image = trackImages[lanes];
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            GraphicsConfiguration configuration = getGraphicsConfiguration();
+            image = configuration != null
+                ? configuration.createCompatibleImage(width, height)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            try {
+                TrackCanvas.drawTrack(g, width, height, lanes, MARGIN);
+            } finally {
+                g.dispose();
+            }
+            trackImages[lanes] = image;
+        }
+        return image;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (buffer == null) {
+            g.setColor(BACKGROUND);
+            g.fillRect(0, 0, getWidth(), getHeight());
+            return;
+        }
+        // Everything was drawn on the frame timer; painting is one copy
+        g.drawImage(buffer, 0, 0, null);
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        SwingUtilities.invokeLater(() -> {
+            JFrame frame = open(count);
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.setVisible(true);
+        });
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * One event read from a RaceEventBus.
+ *
+ * Consumers keep one instance and let the bus overwrite it on every poll,
+ * so reading events allocates nothing. Fields that do not apply to an
+ * event's type are -1.
+ */
+public class RaceEvent {
+    public enum Type {
+        /** A new tick of the race has started */
+        TICK,
+        /** A horse moved; distance is where it is now */
+        MOVE,
+        /** A horse fell */
+        FALL,
+        /** A different lane is now in front */
+        LEAD_CHANGE,
+        /** The race is over; lane is the winner, -1 if every horse fell */
+        FINISH,
+        /** Bets on the race are settled; value is the player's new balance */
+        SETTLEMENT
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    long sequence;
+    int type;
+    int tick;
+    int lane;
+    int horseId;
+    int distance;
+    double value;
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return TYPES[type];
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    public int getLane() {
+        return lane;
+    }
+
+    public int getHorseId() {
+        return horseId;
+    }
+
+    public int getDistance() {
+        return distance;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s tick=%d lane=%d horse=%d distance=%d value=%.2f",
+            sequence, getType(), tick, lane, horseId, distance, value);
+    }
+}
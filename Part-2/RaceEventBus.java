@@ -0,0 +1,149 @@
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stream of race events from the simulation to any number of consumers.
+ *
+ * Events go into a preallocated ring of primitive slots written by a
+ * single thread, the one running the race. Publishing never waits for
+ * anybody: each consumer has its own Subscription and cursor and reads at
+ * its own pace. A consumer that falls more than the ring's capacity behind
+ * skips ahead to the oldest event still held and is told how many it
+ * missed, instead of holding the race up.
+ */
+public class RaceEventBus {
+    public interface Handler {
+        void onEvent(RaceEvent event);
+    }
+
+    private final int mask;
+    // Sequence held in each slot, -1 while it is being overwritten
+    private final AtomicLongArray stamps;
+    private final int[] types;
+    private final int[] ticks;
+    private final int[] lanes;
+    private final int[] horseIds;
+    private final int[] distances;
+    private final double[] values;
+    // Sequence of the next event to publish
+    private final AtomicLong cursor = new AtomicLong();
+
+    public RaceEventBus(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.stamps = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            stamps.set(i, -1);
+        }
+        this.types = new int[size];
+        this.ticks = new int[size];
+        this.lanes = new int[size];
+        this.horseIds = new int[size];
+        this.distances = new int[size];
+        this.values = new double[size];
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Publishes an event. Must only be called from the race's own thread.
+     */
+    public void publish(RaceEvent.Type type, int tick, int lane, int horseId, int distance, double value) {
+        long sequence = cursor.get();
+        int slot = (int) sequence & mask;
+        stamps.set(slot, -1);
+        VarHandle.releaseFence();
+        types[slot] = type.ordinal();
+        ticks[slot] = tick;
+        lanes[slot] = lane;
+        horseIds[slot] = horseId;
+        distances[slot] = distance;
+        values[slot] = value;
+        stamps.set(slot, sequence);
+        cursor.set(sequence + 1);
+    }
+
+    /**
+     * A new consumer that sees every event published from now on
+     */
+    public Subscription subscribe() {
+        return new Subscription(cursor.get());
+    }
+
+    /**
+     * One consumer's position in the stream. Each subscription must only be
+     * read from one thread at a time.
+     */
+    public class Subscription {
+        private long next;
+        private long missed;
+
+        private Subscription(long next) {
+            this.next = next;
+        }
+
+        /**
+         * Reads the next event into the given holder.
+         *
+         * @return false if there is nothing new yet
+         */
+        public boolean poll(RaceEvent into) {
+            while (next < cursor.get()) {
+                long oldest = cursor.get() - capacity();
+                if (next < oldest) {
+                    missed += oldest - next;
+                    next = oldest;
+                    continue;
+                }
+
+                int slot = (int) next & mask;
+                if (stamps.get(slot) != next) {
+                    // Overwritten since we looked at the cursor
+                    continue;
+                }
+                into.sequence = next;
+                into.type = types[slot];
+                into.tick = ticks[slot];
+                into.lane = lanes[slot];
+                into.horseId = horseIds[slot];
+                into.distance = distances[slot];
+                into.value = values[slot];
+                VarHandle.acquireFence();
+                if (stamps.get(slot) != next) {
+                    continue;
+                }
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Hands up to max waiting events to the handler
+         *
+         * @return the number handled
+         */
+        public int drain(RaceEvent holder, Handler handler, int max) {
+            int handled = 0;
+            while (handled < max && poll(holder)) {
+                handler.onEvent(holder);
+                handled++;
+            }
+            return handled;
+        }
+
+        /**
+         * Events this consumer lost by falling too far behind
+         */
+        public long getMissed() {
+            return missed;
+        }
+
+        public long getBacklog() {
+            return cursor.get() - next;
+        }
+    }
+}
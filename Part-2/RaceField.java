@@ -0,0 +1,79 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable snapshot of a field of horses on a track, reduced to the
+ * per-tick numbers Race.moveHorse actually uses: the chance to move,
+ * the chance to fall and how many units a move covers.
+ * Lanes are indexed in race order.
+ */
+public class RaceField {
+    private final int raceLength;
+    private final double[] moveChance;
+    private final double[] fallChance;
+    private final int[] stepsPerMove;
+
+    public RaceField(int raceLength, double[] moveChance, double[] fallChance, int[] stepsPerMove) {
+        if (moveChance.length != fallChance.length || moveChance.length != stepsPerMove.length) {
+            throw new IllegalArgumentException("Field arrays must have one entry per lane");
+        }
+        this.raceLength = raceLength;
+        this.moveChance = moveChance.clone();
+        this.fallChance = fallChance.clone();
+        this.stepsPerMove = stepsPerMove.clone();
+    }
+
+    public static RaceField of(List<? extends Horse> horses, Track track, int raceLength) {
+        int size = horses.size();
+        double[] moveChance = new double[size];
+        double[] fallChance = new double[size];
+        int[] stepsPerMove = new int[size];
+        for (int lane = 0; lane < size; lane++) {
+            Horse horse = horses.get(lane);
+            moveChance[lane] = Race.moveChance(horse, track);
+            fallChance[lane] = Race.fallChance(horse, track);
+            stepsPerMove[lane] = horse instanceof HorseGUI ? ((HorseGUI) horse).getStepsPerMove() : 1;
+        }
+        return new RaceField(raceLength, moveChance, fallChance, stepsPerMove);
+    }
+
+    public int size() {
+        return moveChance.length;
+    }
+
+    public int getRaceLength() {
+        return raceLength;
+    }
+
+    public double getMoveChance(int lane) {
+        return moveChance[lane];
+    }
+
+    public double getFallChance(int lane) {
+        return fallChance[lane];
+    }
+
+    public int getStepsPerMove(int lane) {
+        return stepsPerMove[lane];
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof RaceField)) return false;
+        RaceField field = (RaceField) other;
+        return raceLength == field.raceLength
+            && Arrays.equals(moveChance, field.moveChance)
+            && Arrays.equals(fallChance, field.fallChance)
+            && Arrays.equals(stepsPerMove, field.stepsPerMove);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = raceLength;
+        result = 31 * result + Arrays.hashCode(moveChance);
+        result = 31 * result + Arrays.hashCode(fallChance);
+        result = 31 * result + Arrays.hashCode(stepsPerMove);
+        return result;
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * What the race looked like after one tick, as handed from the engine
+ * thread to the Event Dispatch Thread.
+ *
+ * Frames are immutable, so the EDT can draw one while the engine is
+ * already working on the next. Lanes are in the race's lane order.
+ */
+public final class RaceFrame {
+    private final int tick;
+    private final int raceLength;
+    private final String text;
+    private final int[] distances;
+    private final boolean[] fallen;
+    private final String[] names;
+    private final boolean finished;
+    private final int winner;
+
+    RaceFrame(int tick, int raceLength, String text, int[] distances, boolean[] fallen, String[] names,
+              boolean finished, int winner) {
+        this.tick = tick;
+        this.raceLength = raceLength;
+        this.text = text;
+        this.distances = distances.clone();
+        this.fallen = fallen.clone();
+        this.names = names.clone();
+        this.finished = finished;
+        this.winner = winner;
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * The text view of the race, including the results once it is settled
+     */
+    public String getText() {
+        return text;
+    }
+
+    public int getRaceLength() {
+        return raceLength;
+    }
+
+    public int getLaneCount() {
+        return distances.length;
+    }
+
+    public int getDistance(int lane) {
+        return distances[lane];
+    }
+
+    public boolean hasFallen(int lane) {
+        return fallen[lane];
+    }
+
+    /**
+     * The name of the horse in the lane, empty for an empty lane
+     */
+    public String getName(int lane) {
+        return names[lane];
+    }
+
+    /**
+     * Whether the race this frame shows has ended, won or with every
+     * horse down. A reset race is not finished, whatever its tick.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * The lane that won, -1 if nobody has
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * The same frame with text added to the end
+     */
+    RaceFrame withText(String more) {
+        return new RaceFrame(tick, raceLength, text + more, distances, fallen, names, finished, winner);
+    }
+}
@@ -0,0 +1,73 @@
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Every race in the statistics, newest first, for a JTable.
+ *
+ * Rows are read from the statistics only when the table asks for them,
+ * which it does just for the rows on screen, so the view costs the same
+ * with ten races recorded or a million.
+ */
+public class RaceHistoryTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"Horse", "Track", "Weather", "Time (s)", "Speed", "Result"};
+
+    private final Statistics statistics;
+    private int rowCount;
+    // The table reads a row one cell at a time, so keep the last row read
+    private int cachedRow = -1;
+    private RaceStats cachedRace;
+    private String cachedName;
+
+    public RaceHistoryTableModel(Statistics statistics) {
+        this.statistics = statistics;
+        this.rowCount = statistics.getRecordedRaceCount();
+    }
+
+    /**
+     * Picks up races recorded since the last refresh
+     */
+    public void refresh() {
+        rowCount = statistics.getRecordedRaceCount();
+        cachedRow = -1;
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (row != cachedRow) {
+            int recorded = rowCount - 1 - row;
+            cachedRace = statistics.getRecordedRace(recorded);
+            cachedName = statistics.getRecordedHorseName(recorded).trim();
+            cachedRow = row;
+        }
+        switch (column) {
+            case 0:
+                return cachedName;
+            case 1:
+                return cachedRace.getTrackName();
+            case 2:
+                return cachedRace.getWeatherCondition();
+            case 3:
+                return String.format("%.2f", cachedRace.getFinishingTime());
+            case 4:
+                return String.format("%.2f", cachedRace.getAverageSpeed());
+            default:
+                return cachedRace.isWinner() ? "Won" : "";
+        }
+    }
+}
@@ -0,0 +1,291 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams race results to a file, either as CSV or in a compact binary
+ * columnar format, one row per horse per race.
+ *
+ * Rows are encoded straight into large direct buffers and written through
+ * a FileChannel whenever a buffer fills, so memory use stays the same
+ * however many races are exported.
+ *
+ * The columnar file is an 8-byte magic, "HRCOLS02", and the column count,
+ * followed by blocks of up to BLOCK_ROWS rows. A block is its row count,
+ * the names used in it (count, then code, byte length and UTF-8 bytes for
+ * each), and then every column in turn: horse id, horse name, track and
+ * weather as ints (names as dictionary codes), finishing time, average
+ * speed, initial and final confidence as doubles, and a winner byte.
+ * Numbers are big-endian. Codes start again from 0 in every block, so the
+ * names held while writing never outgrow one block however large the
+ * roster; "HRCOLS01" files kept one dictionary for the whole file.
+ */
+public class RaceResultExporter implements Closeable, Statistics.RecordedRaceVisitor {
+    public enum Format {
+        CSV,
+        COLUMNAR;
+
+        /**
+         * CSV for .csv files, columnar for anything else
+         */
+        public static Format forFile(Path file) {
+            return file.getFileName().toString().toLowerCase().endsWith(".csv") ? CSV : COLUMNAR;
+        }
+    }
+
+    static final byte[] MAGIC = "HRCOLS02".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] MAGIC_SHARED_NAMES = "HRCOLS01".getBytes(StandardCharsets.US_ASCII);
+    static final int BLOCK_ROWS = 65_536;
+    static final int[] COLUMN_WIDTHS = {4, 4, 4, 4, 8, 8, 8, 8, 1};
+    static final String CSV_HEADER = "row,horse_id,horse,track,weather,finishing_time,average_speed,"
+        + "initial_confidence,final_confidence,winner\n";
+    private static final int TEXT_BUFFER_SIZE = 1 << 20;
+    // Longest fixed-width part of a CSV row: the numbers and separators
+    private static final int MAX_NUMBERS_WIDTH = 256;
+
+    private final FileChannel channel;
+    private final Format format;
+    private long rows;
+
+    private ByteBuffer text;
+
+    private ByteBuffer[] columns;
+    private ByteBuffer blockHeader;
+    private Map<String, Integer> codes; // Names used in the current block
+    private int blockRows;
+    private int blockNames;
+
+    public RaceResultExporter(Path file, Format format) throws IOException {
+        this.format = format;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        if (format == Format.CSV) {
+            text = ByteBuffer.allocateDirect(TEXT_BUFFER_SIZE);
+            text.put(CSV_HEADER.getBytes(StandardCharsets.US_ASCII));
+        } else {
+            columns = new ByteBuffer[COLUMN_WIDTHS.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = ByteBuffer.allocateDirect(COLUMN_WIDTHS[i] * BLOCK_ROWS);
+            }
+            blockHeader = ByteBuffer.allocate(4096);
+            blockHeader.putInt(0).putInt(0);
+            codes = new HashMap<>();
+            ByteBuffer fileHeader = ByteBuffer.allocate(MAGIC.length + 4);
+            fileHeader.put(MAGIC).putInt(COLUMN_WIDTHS.length).flip();
+            writeFully(fileHeader);
+        }
+    }
+
+    /**
+     * Writes one horse's result from a race just run
+     */
+    public void write(HorseGUI horse, RaceStats stats) throws IOException {
+        write(horse.getId(), horse.getName(), stats.getTrackName(), stats.getWeatherCondition(),
+            stats.getFinishingTime(), stats.getAverageSpeed(), stats.getInitialConfidence(),
+            stats.getFinalConfidence(), stats.isWinner());
+    }
+
+    /**
+     * Writes every race recorded up to now. Races can still be recorded
+     * while a long history is exported; they are just not part of it.
+     *
+     * @return the number of rows written
+     */
+    public long exportStatistics(Statistics statistics) throws IOException {
+        long before = rows;
+        Statistics.RecordedRaces recorded = statistics.getRecordedRaces();
+        recorded.visit(0, recorded.size(), this);
+        return rows - before;
+    }
+
+    @Override
+    public void visit(int row, int horseId, String horseName, String trackName, String weatherCondition,
+                      double finishingTime, double averageSpeed, double initialConfidence,
+                      double finalConfidence, boolean winner) throws IOException {
+        write(horseId, horseName, trackName, weatherCondition, finishingTime, averageSpeed,
+            initialConfidence, finalConfidence, winner);
+    }
+
+    public synchronized void write(int horseId, String horseName, String trackName, String weatherCondition,
+                                   double finishingTime, double averageSpeed, double initialConfidence,
+                                   double finalConfidence, boolean winner) throws IOException {
+        if (format == Format.CSV) {
+            if (text.remaining() < MAX_NUMBERS_WIDTH) flushText();
+            putLong(rows);
+            text.put((byte) ',');
+            putLong(horseId);
+            text.put((byte) ',');
+            putText(horseName);
+            putText(trackName);
+            putText(weatherCondition);
+            if (text.remaining() < MAX_NUMBERS_WIDTH) flushText();
+            putFixed(finishingTime);
+            putFixed(averageSpeed);
+            putFixed(initialConfidence);
+            putFixed(finalConfidence);
+            text.put(winner ? (byte) '1' : (byte) '0').put((byte) '\n');
+        } else {
+            columns[0].putInt(horseId);
+            columns[1].putInt(codeOf(horseName));
+            columns[2].putInt(codeOf(trackName));
+            columns[3].putInt(codeOf(weatherCondition));
+            columns[4].putDouble(finishingTime);
+            columns[5].putDouble(averageSpeed);
+            columns[6].putDouble(initialConfidence);
+            columns[7].putDouble(finalConfidence);
+            columns[8].put(winner ? (byte) 1 : (byte) 0);
+            if (++blockRows == BLOCK_ROWS) flushBlock();
+        }
+        rows++;
+    }
+
+    public synchronized long getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Writes out everything buffered so far. Columnar files get a short
+     * block, so flushing often makes them less compact.
+     */
+    public synchronized void flush() throws IOException {
+        if (format == Format.CSV) {
+            flushText();
+        } else if (blockRows > 0) {
+            flushBlock();
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    // CSV encoding, straight into the buffer with no per-row strings
+
+    private void putText(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quote) putByte((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"') putByte((byte) '"');
+                putByte((byte) c);
+            } else {
+                // Rare enough to take the slow path for the rest of the value
+                for (byte b : value.substring(i).replace("\"", "\"\"").getBytes(StandardCharsets.UTF_8)) {
+                    putByte(b);
+                }
+                break;
+            }
+        }
+        if (quote) putByte((byte) '"');
+        putByte((byte) ',');
+    }
+
+    private void putByte(byte b) throws IOException {
+        if (!text.hasRemaining()) flushText();
+        text.put(b);
+    }
+
+    private void putLong(long value) {
+        if (value < 0) {
+            text.put((byte) '-');
+            value = -value;
+        }
+        if (value >= 10) putLong(value / 10);
+        text.put((byte) ('0' + value % 10));
+    }
+
+    /**
+     * Four decimal places, plenty for times, speeds and confidence
+     */
+    private void putFixed(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= 1e14) {
+            text.put(Double.toString(value).getBytes(StandardCharsets.US_ASCII));
+        } else {
+            long scaled = Math.round(Math.abs(value) * 10_000);
+            if (value < 0 && scaled != 0) text.put((byte) '-');
+            putLong(scaled / 10_000);
+            text.put((byte) '.');
+            long fraction = scaled % 10_000;
+            for (long digit = 1000; digit > 0; digit /= 10) {
+                text.put((byte) ('0' + (fraction / digit) % 10));
+            }
+        }
+        text.put((byte) ',');
+    }
+
+    private void flushText() throws IOException {
+        text.flip();
+        writeFully(text);
+        text.clear();
+    }
+
+    // Columnar encoding
+
+    private int codeOf(String name) {
+        Integer code = codes.get(name);
+        if (code == null) {
+            code = codes.size();
+            codes.put(name, code);
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            if (blockHeader.remaining() < 8 + bytes.length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(blockHeader.capacity() * 2,
+                    blockHeader.position() + 8 + bytes.length));
+                blockHeader.flip();
+                larger.put(blockHeader);
+                blockHeader = larger;
+            }
+            blockHeader.putInt(code).putInt(bytes.length).put(bytes);
+            blockNames++;
+        }
+        return code;
+    }
+
+    private void flushBlock() throws IOException {
+        blockHeader.putInt(0, blockRows).putInt(4, blockNames).flip();
+        ByteBuffer[] block = new ByteBuffer[columns.length + 1];
+        block[0] = blockHeader;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].flip();
+            block[i + 1] = columns[i];
+        }
+        long remaining = 0;
+        for (ByteBuffer buffer : block) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(block);
+        }
+
+        for (ByteBuffer column : columns) {
+            column.clear();
+        }
+        blockHeader.clear();
+        blockHeader.putInt(0).putInt(0);
+        codes.clear();
+        blockRows = 0;
+        blockNames = 0;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+import java.util.SplittableRandom;
+
+/**
+ * Headless version of the Part-2 race rules for running many races quickly.
+ *
+ * Works on a RaceField's per-lane chances instead of Horse objects and draws
+ * from its own SplittableRandom, so each worker thread can own a simulator
+ * and run independent races without sharing any state.
+ */
+public class RaceSimulator {
+    // Guards against fields where nobody can ever move or fall
+    private static final int MAX_TICKS = 100_000;
+
+    private final RaceField field;
+    private final SplittableRandom random;
+    private final int[] distance;
+    private final boolean[] fallen;
+    private final int[] fallTick;
+    private final int[] placings;
+    private int placed;
+    private int ticks;
+
+    public RaceSimulator(RaceField field, SplittableRandom random) {
+        this.field = field;
+        this.random = random;
+        this.distance = new int[field.size()];
+        this.fallen = new boolean[field.size()];
+        this.fallTick = new int[field.size()];
+        this.placings = new int[field.size()];
+    }
+
+    /**
+     * Runs one race to the end under the same rules as Race.updateRace:
+     * every standing horse tries to move and then may fall, and the first
+     * lane sitting exactly on the finish line wins.
+     *
+     * @return the number of placed lanes, 0 if every horse fell
+     */
+    public int run() {
+        return run(null, null);
+    }
+
+    /**
+     * Runs the rest of a race from the given position, with ticks counted
+     * from there. Falling is memoryless, so nothing else needs carrying over.
+     *
+     * @param startDistance distance each lane has already covered, null for the start
+     * @param startFallen which lanes are already down, null for none
+     * @return the number of placed lanes, 0 if every horse fell
+     */
+    public int run(int[] startDistance, boolean[] startFallen) {
+        int size = field.size();
+        int raceLength = field.getRaceLength();
+        for (int lane = 0; lane < size; lane++) {
+            distance[lane] = startDistance != null ? startDistance[lane] : 0;
+            fallen[lane] = startFallen != null && startFallen[lane];
+            fallTick[lane] = sampleFallTick(field.getFallChance(lane));
+        }
+        placed = 0;
+        ticks = 0;
+
+        while (ticks < MAX_TICKS) {
+            ticks++;
+            int standing = 0;
+            for (int lane = 0; lane < size; lane++) {
+                if (fallen[lane]) continue;
+                if (random.nextDouble() < field.getMoveChance(lane)) {
+                    distance[lane] += field.getStepsPerMove(lane);
+                }
+                if (ticks == fallTick[lane]) {
+                    fallen[lane] = true;
+                } else {
+                    standing++;
+                }
+            }
+
+            if (raceLength > 0) {
+                for (int lane = 0; lane < size; lane++) {
+                    if (distance[lane] == raceLength) {
+                        placed = placeLanes(distance, fallen, lane, placings);
+                        return placed;
+                    }
+                }
+            }
+            if (standing == 0) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Draws the tick on which a horse will fall. Falling is an independent
+     * check each tick, so this is geometric and one draw replaces one per tick.
+     */
+    private int sampleFallTick(double fallChance) {
+        if (fallChance <= 0) return Integer.MAX_VALUE;
+        if (fallChance >= 1) return 1;
+        double tick = 1 + Math.floor(Math.log(1.0 - random.nextDouble()) / Math.log(1.0 - fallChance));
+        return tick >= MAX_TICKS ? Integer.MAX_VALUE : (int) tick;
+    }
+
+    /**
+     * Orders a finished race: the winner first, then every horse still
+     * standing by distance covered. Equal distances go to the lower lane and
+     * fallen horses are unplaced.
+     *
+     * @return the number of lanes written to placings
+     */
+    public static int placeLanes(int[] distance, boolean[] fallen, int winner, int[] placings) {
+        placings[0] = winner;
+        int count = 1;
+        for (int lane = 0; lane < distance.length; lane++) {
+            if (lane == winner || fallen[lane]) continue;
+            // Insertion sort, fields are at most a couple of dozen lanes
+            int position = count;
+            while (position > 1 && distance[placings[position - 1]] < distance[lane]) {
+                placings[position] = placings[position - 1];
+                position--;
+            }
+            placings[position] = lane;
+            count++;
+        }
+        return count;
+    }
+
+    public RaceField getField() {
+        return field;
+    }
+
+    /**
+     * Lanes in finishing order after the last run; only the first
+     * getPlaced() entries are meaningful.
+     */
+    public int[] getPlacings() {
+        return placings;
+    }
+
+    public int getPlaced() {
+        return placed;
+    }
+
+    public int getWinner() {
+        return placed > 0 ? placings[0] : -1;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public int getDistance(int lane) {
+        return distance[lane];
+    }
+
+    public boolean hasFallen(int lane) {
+        return fallen[lane];
+    }
+
+    /**
+     * The tick a lane fell on in the last run, 0 if it stayed up
+     */
+    public int getFallTick(int lane) {
+        return fallen[lane] ? fallTick[lane] : 0;
+    }
+}
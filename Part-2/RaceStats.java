@@ -0,0 +1,53 @@
+class RaceStats {
+    private String trackName;
+    private String weatherCondition;
+    private double finishingTime;
+    private double averageSpeed;
+    private double initialConfidence;
+    private double finalConfidence;
+    private boolean isWinner;
+    
+    public RaceStats(String trackName, String weatherCondition, double finishingTime,
+                    double averageSpeed, double initialConfidence, double finalConfidence,
+                    boolean isWinner) {
+        this.trackName = trackName;
+        this.weatherCondition = weatherCondition;
+        this.finishingTime = finishingTime;
+        this.averageSpeed = averageSpeed;
+        this.initialConfidence = initialConfidence;
+        this.finalConfidence = finalConfidence;
+        this.isWinner = isWinner;
+    }
+    
+    public String getTrackName() {
+        return trackName;
+    }
+    
+    public String getWeatherCondition() {
+        return weatherCondition;
+    }
+    
+    public double getFinishingTime() {
+        return finishingTime;
+    }
+    
+    public double getAverageSpeed() {
+        return averageSpeed;
+    }
+    
+    public double getInitialConfidence() {
+        return initialConfidence;
+    }
+    
+    public double getFinalConfidence() {
+        return finalConfidence;
+    }
+    
+    public boolean isWinner() {
+        return isWinner;
+    }
+    
+    public void setFinalConfidence(double finalConfidence) {
+        this.finalConfidence = finalConfidence;
+    }
+}
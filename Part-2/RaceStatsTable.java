@@ -0,0 +1,170 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every recorded RaceStats, stored column by column.
+ *
+ * Each race is one row spread over primitive arrays, with track and
+ * weather names stored once in a dictionary, so a million races cost a
+ * few tens of megabytes and no objects per row. RaceStats objects are
+ * only created when a row is actually read.
+ */
+class RaceStatsTable {
+    private int size;
+    private int[] horseIds = new int[64];
+    private int[] trackNames = new int[64];
+    private int[] weatherConditions = new int[64];
+    private double[] finishingTimes = new double[64];
+    private double[] averageSpeeds = new double[64];
+    private double[] initialConfidences = new double[64];
+    private double[] finalConfidences = new double[64];
+    private boolean[] winners = new boolean[64];
+    // Set while a view shares finalConfidences, the one column written after a row is added
+    private boolean finalConfidencesShared;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * @return the new row's number
+     */
+    int add(int horseId, RaceStats stats) {
+        return add(horseId, codeOf(stats.getTrackName()), codeOf(stats.getWeatherCondition()),
+            stats.getFinishingTime(), stats.getAverageSpeed(), stats.getInitialConfidence(),
+            stats.getFinalConfidence(), stats.isWinner());
+    }
+
+    /**
+     * Adds a row with track and weather already turned into codes by codeOf
+     */
+    int add(int horseId, int trackCode, int weatherCode, double finishingTime, double averageSpeed,
+            double initialConfidence, double finalConfidence, boolean winner) {
+        if (size == horseIds.length) {
+            grow(size * 2);
+        }
+        horseIds[size] = horseId;
+        trackNames[size] = trackCode;
+        weatherConditions[size] = weatherCode;
+        finishingTimes[size] = finishingTime;
+        averageSpeeds[size] = averageSpeed;
+        initialConfidences[size] = initialConfidence;
+        finalConfidences[size] = finalConfidence;
+        winners[size] = winner;
+        return size++;
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity > horseIds.length) {
+            grow(Math.max(capacity, horseIds.length * 2));
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getHorseId(int row) {
+        return horseIds[row];
+    }
+
+    int getTrackCode(int row) {
+        return trackNames[row];
+    }
+
+    int getWeatherCode(int row) {
+        return weatherConditions[row];
+    }
+
+    String nameOf(int code) {
+        return names.get(code);
+    }
+
+    String getTrackName(int row) {
+        return names.get(trackNames[row]);
+    }
+
+    String getWeatherCondition(int row) {
+        return names.get(weatherConditions[row]);
+    }
+
+    double getFinishingTime(int row) {
+        return finishingTimes[row];
+    }
+
+    double getAverageSpeed(int row) {
+        return averageSpeeds[row];
+    }
+
+    double getInitialConfidence(int row) {
+        return initialConfidences[row];
+    }
+
+    double getFinalConfidence(int row) {
+        return finalConfidences[row];
+    }
+
+    boolean isWinner(int row) {
+        return winners[row];
+    }
+
+    void setFinalConfidence(int row, double finalConfidence) {
+        if (finalConfidencesShared) {
+            finalConfidences = finalConfidences.clone();
+            finalConfidencesShared = false;
+        }
+        finalConfidences[row] = finalConfidence;
+    }
+
+    RaceStats get(int row) {
+        return new RaceStats(getTrackName(row), getWeatherCondition(row), finishingTimes[row],
+            averageSpeeds[row], initialConfidences[row], finalConfidences[row], winners[row]);
+    }
+
+    /**
+     * The rows added so far, sharing this table's columns rather than
+     * copying them. A growing table moves to new arrays, so later rows
+     * never show up in the view, and the final confidence column is
+     * copied before it is next changed, so later changes do not either.
+     * Only read it.
+     */
+    RaceStatsTable view() {
+        finalConfidencesShared = true;
+        RaceStatsTable view = new RaceStatsTable();
+        view.size = size;
+        view.horseIds = horseIds;
+        view.trackNames = trackNames;
+        view.weatherConditions = weatherConditions;
+        view.finishingTimes = finishingTimes;
+        view.averageSpeeds = averageSpeeds;
+        view.initialConfidences = initialConfidences;
+        view.finalConfidences = finalConfidences;
+        view.winners = winners;
+        view.names.addAll(names);
+        return view;
+    }
+
+    int codeOf(String name) {
+        Integer code = codes.get(name);
+        if (code == null) {
+            code = names.size();
+            codes.put(name, code);
+            names.add(name);
+        }
+        return code;
+    }
+
+    private void grow(int capacity) {
+        horseIds = Arrays.copyOf(horseIds, capacity);
+        trackNames = Arrays.copyOf(trackNames, capacity);
+        weatherConditions = Arrays.copyOf(weatherConditions, capacity);
+        finishingTimes = Arrays.copyOf(finishingTimes, capacity);
+        averageSpeeds = Arrays.copyOf(averageSpeeds, capacity);
+        initialConfidences = Arrays.copyOf(initialConfidences, capacity);
+        finalConfidences = Arrays.copyOf(finalConfidences, capacity);
+        finalConfidencesShared = false;
+        winners = Arrays.copyOf(winners, capacity);
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size ring of the most recent bet lines shown in the GUI.
+ * Adding overwrites the oldest line once full, so memory stays flat
+ * however long the session runs.
+ */
+public class RecentBetsLog {
+    private final String[] entries;
+    private int next;
+    private int size;
+
+    public RecentBetsLog(int capacity) {
+        this.entries = new String[capacity];
+    }
+
+    public synchronized void add(String entry) {
+        entries[next] = entry;
+        next = (next + 1) % entries.length;
+        if (size < entries.length) {
+            size++;
+        }
+    }
+
+    /**
+     * The retained lines, oldest first
+     */
+    public synchronized List<String> toList() {
+        List<String> list = new ArrayList<>(size);
+        int start = (next - size + entries.length) % entries.length;
+        for (int i = 0; i < size; i++) {
+            list.add(entries[(start + i) % entries.length]);
+        }
+        return list;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+}
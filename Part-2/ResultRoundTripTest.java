@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class ResultRoundTripTest {
+    private static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("Testing RaceResultExporter to HistoryImporter");
+        System.out.println("---------------------------------------------");
+
+        // More rows than one columnar block, and names that need quoting
+        HorseGUI[] horses = {
+            new HorseGUI('A', "Plain Jane", 0.6),
+            new HorseGUI('B', "Comma, the \"Quick\"", 0.7),
+            new HorseGUI('C', "Éclair Ñandú", 0.8)
+        };
+        Statistics statistics = new Statistics();
+        SplittableRandom random = new SplittableRandom(7);
+        int rows = RaceResultExporter.BLOCK_ROWS + 1000;
+        for (int row = 0; row < rows; row++) {
+            String track = SeasonSimulator.TRACK_SHAPES[random.nextInt(SeasonSimulator.TRACK_SHAPES.length)];
+            String weather = SeasonSimulator.WEATHER[random.nextInt(SeasonSimulator.WEATHER.length)];
+            double time = 5 + random.nextDouble() * 20;
+            double confidence = 0.5 + random.nextDouble() * 0.4;
+            statistics.recordRace(horses[row % horses.length],
+                new RaceStats(track, weather, time, 50 / time, confidence, confidence - 0.05, row % 8 == 0));
+        }
+        List<Object[]> original = rowsOf(statistics);
+
+        Path directory = Files.createTempDirectory("roundtrip");
+        try {
+            int test = 1;
+            for (RaceResultExporter.Format format : RaceResultExporter.Format.values()) {
+                System.out.println("\nTest " + test++ + ": " + format + " Round Trip");
+                Path file = directory.resolve("history." + format.name().toLowerCase());
+                long written;
+                try (RaceResultExporter exporter = new RaceResultExporter(file, format)) {
+                    written = exporter.exportStatistics(statistics);
+                }
+                check("every recorded race is written", written == rows);
+
+                Statistics imported = new Statistics();
+                HistoryImporter.Result result = new HistoryImporter().importHistory(file, imported);
+                check("every row is read back", result.getRows() == rows);
+                check("every horse is read back", result.getHorseCount() == horses.length);
+
+                // CSV keeps four decimals, the columnar format is exact
+                double tolerance = format == RaceResultExporter.Format.CSV ? 1e-4 : 0;
+                List<Object[]> read = rowsOf(imported);
+                boolean same = read.size() == original.size();
+                for (int row = 0; row < read.size() && same; row++) {
+                    same = matches(original.get(row), read.get(row), result, tolerance);
+                }
+                check("names, tracks, times and winners survive", same);
+                Files.delete(file);
+            }
+        } finally {
+            Files.delete(directory);
+        }
+
+        System.out.println(failures == 0 ? "\nAll tests passed!" : "\n" + failures + " test(s) failed!");
+        if (failures > 0) System.exit(1);
+    }
+
+    private static List<Object[]> rowsOf(Statistics statistics) throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        Statistics.RecordedRaces recorded = statistics.getRecordedRaces();
+        recorded.visit(0, recorded.size(), (row, horseId, horseName, trackName, weatherCondition, finishingTime,
+                averageSpeed, initialConfidence, finalConfidence, winner) -> rows.add(new Object[] {
+            horseId, horseName, trackName, weatherCondition,
+            new double[] {finishingTime, averageSpeed, initialConfidence, finalConfidence}, winner
+        }));
+        return rows;
+    }
+
+    private static boolean matches(Object[] expected, Object[] actual, HistoryImporter.Result result,
+                                   double tolerance) {
+        if (result.getHorseId((Integer) expected[0]) != (Integer) actual[0]) return false;
+        for (int i = 1; i < 4; i++) {
+            if (!expected[i].equals(actual[i])) return false;
+        }
+        double[] expectedNumbers = (double[]) expected[4];
+        double[] actualNumbers = (double[]) actual[4];
+        for (int i = 0; i < expectedNumbers.length; i++) {
+            if (Math.abs(expectedNumbers[i] - actualNumbers[i]) > tolerance) return false;
+        }
+        return expected[5].equals(actual[5]);
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS: " : "FAIL: ") + name);
+        if (!passed) failures++;
+    }
+}
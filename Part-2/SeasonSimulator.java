@@ -0,0 +1,433 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs whole seasons and knockout tournaments over a roster of horses.
+ *
+ * Heats are independent, so they are split across the common ForkJoinPool
+ * and each piece keeps its own standings, merged as the pieces finish.
+ * Races follow the Race rules through RaceSimulator and are timed with
+ * the same tick clock, so the results can go straight into Statistics.
+ */
+public class SeasonSimulator {
+    public static final String[] TRACK_SHAPES = {"Oval", "Figure-eight", "Straight", "Zigzag", "Custom"};
+    public static final String[] WEATHER = {"Clear", "Rainy", "Snowy"};
+    // Championship points for first to sixth
+    static final int[] POINTS = {10, 6, 4, 3, 2, 1};
+    // Knockout heats where every horse falls are run again, up to this many times
+    private static final int MAX_RERUNS = 10;
+
+    private final List<HorseGUI> roster;
+    private final int raceLength;
+    private final int fieldSize;
+    private final Track[] tracks;
+    private final double[][] moveChance; // [track][roster index]
+    private final double[][] fallChance;
+    private final int[] stepsPerMove;
+
+    public SeasonSimulator(List<HorseGUI> roster, int raceLength, int fieldSize) {
+        if (fieldSize < 2 || fieldSize > 25) {
+            throw new IllegalArgumentException("Fields must have 2 to 25 lanes");
+        }
+        if (roster.size() < fieldSize) {
+            throw new IllegalArgumentException("The roster has fewer than " + fieldSize + " horses");
+        }
+        this.roster = new ArrayList<>(roster);
+        this.raceLength = raceLength;
+        this.fieldSize = fieldSize;
+
+        // Every combination of shape and weather, with the per-tick chances
+        // worked out once per horse instead of once per race
+        tracks = new Track[TRACK_SHAPES.length * WEATHER.length];
+        moveChance = new double[tracks.length][this.roster.size()];
+        fallChance = new double[tracks.length][this.roster.size()];
+        stepsPerMove = new int[this.roster.size()];
+        for (int t = 0; t < tracks.length; t++) {
+            tracks[t] = new Track(raceLength, fieldSize);
+            tracks[t].setShape(TRACK_SHAPES[t / WEATHER.length]);
+            tracks[t].setWeatherCondition(WEATHER[t % WEATHER.length]);
+            for (int i = 0; i < this.roster.size(); i++) {
+                moveChance[t][i] = Race.moveChance(this.roster.get(i), tracks[t]);
+                fallChance[t][i] = Race.fallChance(this.roster.get(i), tracks[t]);
+            }
+        }
+        for (int i = 0; i < this.roster.size(); i++) {
+            stepsPerMove[i] = this.roster.get(i).getStepsPerMove();
+        }
+    }
+
+    /**
+     * Runs a season of randomly drawn heats on random tracks and weather.
+     *
+     * @param statistics where every horse's run is recorded, or null
+     */
+    public Standings runSeason(int races, long seed, Statistics statistics) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Schedule schedule = new Schedule(races, 0);
+        int[] pool = new int[roster.size()];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = i;
+        }
+        for (int heat = 0; heat < races; heat++) {
+            // Partial shuffle: the first fieldSize entries are a fair draw
+            for (int i = 0; i < fieldSize; i++) {
+                swap(pool, i, i + random.nextInt(pool.length - i));
+            }
+            schedule.entrants[heat] = Arrays.copyOf(pool, fieldSize);
+            schedule.track[heat] = random.nextInt(tracks.length);
+        }
+
+        Standings standings = run(schedule, random.split());
+        record(schedule, statistics);
+        return standings;
+    }
+
+    /**
+     * Runs a knockout: the roster is drawn into brackets of at most one
+     * field each, the first {@code advance} home in every heat go through,
+     * and rounds repeat until one field is left to run the final.
+     *
+     * @param statistics where every horse's run is recorded, or null
+     */
+    public Standings runTournament(int advance, long seed, Statistics statistics) {
+        if (advance < 1 || advance > fieldSize / 2) {
+            throw new IllegalArgumentException("Between 1 and " + fieldSize / 2 + " horses can advance from a heat");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        Standings standings = new Standings(roster);
+        int[] remaining = new int[roster.size()];
+        for (int i = 0; i < remaining.length; i++) {
+            remaining[i] = i;
+        }
+
+        while (remaining.length > 0) {
+            for (int i = remaining.length - 1; i > 0; i--) {
+                swap(remaining, i, random.nextInt(i + 1));
+            }
+            // Brackets as even as possible, so nobody gets a walkover
+            int heats = (remaining.length + fieldSize - 1) / fieldSize;
+            Schedule schedule = new Schedule(heats, MAX_RERUNS);
+            for (int heat = 0; heat < heats; heat++) {
+                int from = (int) ((long) heat * remaining.length / heats);
+                int to = (int) ((long) (heat + 1) * remaining.length / heats);
+                schedule.entrants[heat] = Arrays.copyOfRange(remaining, from, to);
+                schedule.track[heat] = random.nextInt(tracks.length);
+            }
+            standings.merge(run(schedule, random.split()));
+            record(schedule, statistics);
+
+            if (heats == 1) {
+                int[] order = schedule.placings[0];
+                if (order.length > 0) {
+                    standings.champion = roster.get(order[0]);
+                }
+                break;
+            }
+
+            int[] next = new int[heats * advance];
+            int count = 0;
+            for (int[] order : schedule.placings) {
+                for (int i = 0; i < Math.min(advance, order.length); i++) {
+                    next[count++] = order[i];
+                }
+            }
+            remaining = Arrays.copyOf(next, count);
+        }
+        return standings;
+    }
+
+    private Standings run(Schedule schedule, SplittableRandom random) {
+        int pieces = ForkJoinPool.getCommonPoolParallelism() * 8;
+        int threshold = Math.max(1, schedule.size() / pieces);
+        return ForkJoinPool.commonPool().invoke(new HeatTask(schedule, 0, schedule.size(), threshold, random));
+    }
+
+    /**
+     * Records every run of a schedule in heat order, so the history reads
+     * the same however the heats were spread across threads
+     */
+    private void record(Schedule schedule, Statistics statistics) {
+        if (statistics == null) return;
+        for (int heat = 0; heat < schedule.size(); heat++) {
+            Track track = tracks[schedule.track[heat]];
+            int[] entrants = schedule.entrants[heat];
+            int[] placings = schedule.placings[heat];
+            for (int lane = 0; lane < entrants.length; lane++) {
+                HorseGUI horse = roster.get(entrants[lane]);
+                double time = schedule.times[heat][lane];
+                boolean won = placings.length > 0 && placings[0] == entrants[lane];
+                statistics.recordRace(horse, new RaceStats(track.getShape(), track.getWeatherCondition(),
+                    time, raceLength / time, horse.getConfidence(), horse.getConfidence(), won));
+            }
+        }
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    public List<HorseGUI> getRoster() {
+        return Collections.unmodifiableList(roster);
+    }
+
+    /**
+     * The heats of one season or knockout round. Each heat's results are
+     * written by whichever task runs it, into its own slots.
+     */
+    private static class Schedule {
+        final int[][] entrants; // Roster indices by lane
+        final int[] track;
+        final int reruns;
+        final int[][] placings; // Roster indices in finishing order
+        final double[][] times; // By lane
+
+        Schedule(int heats, int reruns) {
+            this.entrants = new int[heats][];
+            this.track = new int[heats];
+            this.reruns = reruns;
+            this.placings = new int[heats][];
+            this.times = new double[heats][];
+        }
+
+        int size() {
+            return track.length;
+        }
+    }
+
+    private class HeatTask extends RecursiveTask<Standings> {
+        private static final long serialVersionUID = 1L;
+        private final Schedule schedule;
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final SplittableRandom random;
+
+        HeatTask(Schedule schedule, int from, int to, int threshold, SplittableRandom random) {
+            this.schedule = schedule;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.random = random;
+        }
+
+        @Override
+        protected Standings compute() {
+            if (to - from > threshold) {
+                int middle = (from + to) >>> 1;
+                // Split before forking so every heat gets the same stream whichever thread runs it
+                HeatTask left = new HeatTask(schedule, from, middle, threshold, random.split());
+                left.fork();
+                Standings standings = new HeatTask(schedule, middle, to, threshold, random).compute();
+                return standings.merge(left.join());
+            }
+
+            Standings standings = new Standings(roster);
+            for (int heat = from; heat < to; heat++) {
+                runHeat(heat, standings);
+            }
+            return standings;
+        }
+
+        private void runHeat(int heat, Standings standings) {
+            int[] entrants = schedule.entrants[heat];
+            int track = schedule.track[heat];
+            double[] move = new double[entrants.length];
+            double[] fall = new double[entrants.length];
+            int[] steps = new int[entrants.length];
+            for (int lane = 0; lane < entrants.length; lane++) {
+                move[lane] = moveChance[track][entrants[lane]];
+                fall[lane] = fallChance[track][entrants[lane]];
+                steps[lane] = stepsPerMove[entrants[lane]];
+            }
+            RaceSimulator simulator = new RaceSimulator(new RaceField(raceLength, move, fall, steps), random);
+            int placed = simulator.run();
+            for (int attempt = 0; attempt < schedule.reruns && placed == 0; attempt++) {
+                placed = simulator.run();
+            }
+
+            int[] order = new int[placed];
+            for (int i = 0; i < placed; i++) {
+                order[i] = entrants[simulator.getPlacings()[i]];
+            }
+            double raceTime = simulator.getTicks() * Race.TICK_SECONDS;
+            double[] times = new double[entrants.length];
+            for (int lane = 0; lane < entrants.length; lane++) {
+                times[lane] = Race.horseTime(raceTime, simulator.getDistance(lane), raceLength,
+                    simulator.getFallTick(lane));
+                standings.addRun(entrants[lane], times[lane], simulator.hasFallen(lane));
+            }
+            standings.addPlacings(order);
+            schedule.placings[heat] = order;
+            schedule.times[heat] = times;
+        }
+    }
+
+    /**
+     * Points table over a roster, indexed by roster position. Every task
+     * fills its own and they are merged pairwise as tasks finish.
+     */
+    public static class Standings {
+        private final List<HorseGUI> roster;
+        private final int[] starts;
+        private final int[] wins;
+        private final int[] points;
+        private final int[] falls;
+        private final double[] totalTime;
+        private int races;
+        private HorseGUI champion;
+
+        Standings(List<HorseGUI> roster) {
+            this.roster = roster;
+            this.starts = new int[roster.size()];
+            this.wins = new int[roster.size()];
+            this.points = new int[roster.size()];
+            this.falls = new int[roster.size()];
+            this.totalTime = new double[roster.size()];
+        }
+
+        void addRun(int horse, double time, boolean fell) {
+            starts[horse]++;
+            totalTime[horse] += time;
+            if (fell) falls[horse]++;
+        }
+
+        void addPlacings(int[] order) {
+            races++;
+            if (order.length > 0) wins[order[0]]++;
+            for (int i = 0; i < Math.min(order.length, POINTS.length); i++) {
+                points[order[i]] += POINTS[i];
+            }
+        }
+
+        Standings merge(Standings other) {
+            races += other.races;
+            for (int i = 0; i < starts.length; i++) {
+                starts[i] += other.starts[i];
+                wins[i] += other.wins[i];
+                points[i] += other.points[i];
+                falls[i] += other.falls[i];
+                totalTime[i] += other.totalTime[i];
+            }
+            return this;
+        }
+
+        public int getRaceCount() {
+            return races;
+        }
+
+        /**
+         * Winner of a knockout's final, null for seasons or if every
+         * horse in the final fell
+         */
+        public HorseGUI getChampion() {
+            return champion;
+        }
+
+        /**
+         * Every horse that raced, by points, then wins, then average time
+         */
+        public List<Standing> getTable() {
+            List<Standing> table = new ArrayList<>();
+            for (int i = 0; i < starts.length; i++) {
+                if (starts[i] > 0) {
+                    table.add(new Standing(roster.get(i), starts[i], wins[i], points[i], falls[i],
+                        totalTime[i] / starts[i]));
+                }
+            }
+            table.sort((a, b) -> {
+                if (a.getPoints() != b.getPoints()) return Integer.compare(b.getPoints(), a.getPoints());
+                if (a.getWins() != b.getWins()) return Integer.compare(b.getWins(), a.getWins());
+                return Double.compare(a.getAverageTime(), b.getAverageTime());
+            });
+            return table;
+        }
+    }
+
+    /**
+     * One horse's line in the standings
+     */
+    public static class Standing {
+        private final HorseGUI horse;
+        private final int starts;
+        private final int wins;
+        private final int points;
+        private final int falls;
+        private final double averageTime;
+
+        Standing(HorseGUI horse, int starts, int wins, int points, int falls, double averageTime) {
+            this.horse = horse;
+            this.starts = starts;
+            this.wins = wins;
+            this.points = points;
+            this.falls = falls;
+            this.averageTime = averageTime;
+        }
+
+        public HorseGUI getHorse() {
+            return horse;
+        }
+
+        public int getStarts() {
+            return starts;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        public int getFalls() {
+            return falls;
+        }
+
+        public double getAverageTime() {
+            return averageTime;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-12s %5d starts %5d wins %6d pts %4d falls %6.2fs",
+                horse.getName().trim(), starts, wins, points, falls, averageTime);
+        }
+    }
+
+    public static void main(String[] args) {
+        int horses = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int races = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        SplittableRandom random = new SplittableRandom(42);
+        List<HorseGUI> roster = new ArrayList<>();
+        for (int i = 0; i < horses; i++) {
+            HorseGUI horse = new HorseGUI((char) ('A' + i % 26), "Horse " + (i + 1), 0.5 + random.nextDouble() * 0.4);
+            horse.setSpeed(0.6 + random.nextDouble() * 0.3);
+            horse.setStamina(0.5 + random.nextDouble() * 0.4);
+            roster.add(horse);
+        }
+
+        SeasonSimulator simulator = new SeasonSimulator(roster, 50, 8);
+        Statistics statistics = new Statistics();
+        long start = System.nanoTime();
+        Standings season = simulator.runSeason(races, 1, statistics);
+        System.out.printf("Season: %d races in %.0f ms, %d runs recorded%n", season.getRaceCount(),
+            (System.nanoTime() - start) / 1e6, statistics.getRecordedRaceCount());
+        List<Standing> table = season.getTable();
+        for (int i = 0; i < Math.min(10, table.size()); i++) {
+            System.out.printf("%3d. %s%n", i + 1, table.get(i));
+        }
+
+        start = System.nanoTime();
+        Standings knockout = simulator.runTournament(2, 2, null);
+        HorseGUI champion = knockout.getChampion();
+        System.out.printf("Knockout: %d heats in %.0f ms, champion %s%n", knockout.getRaceCount(),
+            (System.nanoTime() - start) / 1e6, champion != null ? champion.getName().trim() : "none");
+    }
+}
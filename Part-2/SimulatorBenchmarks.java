@@ -0,0 +1,322 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Baseline timings for the engine, rendering, odds and statistics.
+ *
+ * Every benchmark runs in a JVM of its own, so the JIT profile one
+ * leaves behind cannot speed up or slow down the next. In that JVM it is
+ * warmed up, then run for several fixed-length measurement rounds, and
+ * the mean and best time per operation are reported back. Results feed a
+ * sink so the JIT cannot drop the work.
+ *
+ * The results are written as CSV. Given the CSV from an earlier run as a
+ * baseline, any benchmark whose mean is slower by more than the threshold
+ * is reported as a regression and the run exits with code 1.
+ *
+ * Inside its JVM a benchmark runs on the race's own engine thread, the
+ * only thread a race is driven from, so no timer tick or reset can run
+ * alongside it. The race has no bet history, so nothing is written to
+ * the player's files.
+ *
+ * Usage: java -Djava.awt.headless=true SimulatorBenchmarks [name-filter]
+ *            [--out results.csv] [--baseline earlier.csv] [--threshold 0.10]
+ */
+public class SimulatorBenchmarks {
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long ROUND_NANOS = 1_000_000_000L;
+    private static final int ROUNDS = 3;
+    private static final int[] HISTORY_SIZES = {10, 1_000, 100_000};
+    private static final String CHILD = "--child";
+    private static final String RESULT = "RESULT ";
+    private static final String CSV_HEADER = "benchmark,mean_ns_per_op,best_ns_per_op";
+
+    interface Benchmark {
+        long run();
+    }
+
+    private static long sink;
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length == 2 && args[0].equals(CHILD)) {
+            runChild(args[1]);
+            return;
+        }
+
+        String filter = "";
+        Path out = Paths.get("benchmark-results.csv");
+        Path baseline = null;
+        double threshold = 0.10;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out":
+                    out = Paths.get(args[++i]);
+                    break;
+                case "--baseline":
+                    baseline = Paths.get(args[++i]);
+                    break;
+                case "--threshold":
+                    threshold = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    filter = args[i];
+            }
+        }
+
+        Map<String, double[]> results = new LinkedHashMap<>();
+        System.out.printf("%-26s %14s %14s%n", "benchmark", "mean ns/op", "best ns/op");
+        for (String name : names()) {
+            if (!name.contains(filter)) continue;
+            double[] result = fork(name);
+            results.put(name, result);
+            System.out.printf("%-26s %14.1f %14.1f%n", name, result[0], result[1]);
+        }
+        writeResults(out, results);
+        System.out.println("Results written to " + out);
+
+        if (baseline != null && !compare(readResults(baseline), results, threshold)) {
+            System.exit(1);
+        }
+    }
+
+    private static List<String> names() {
+        List<String> names = new ArrayList<>();
+        names.add("engine.race");
+        names.add("race.tick");
+        names.add("render.printRace");
+        names.add("odds.calculateOdds");
+        names.add("odds.inRunning");
+        for (int size : HISTORY_SIZES) {
+            names.add("statistics.query." + size);
+        }
+        for (int size : HISTORY_SIZES) {
+            names.add("statistics.history." + size);
+        }
+        for (int size : HISTORY_SIZES) {
+            names.add("statistics.export." + size);
+        }
+        return names;
+    }
+
+    /**
+     * Runs one benchmark in a new JVM with this one's classpath and options
+     *
+     * @return the mean and best nanoseconds per operation
+     */
+    private static double[] fork(String name) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(SimulatorBenchmarks.class.getName());
+        command.add(CHILD);
+        command.add(name);
+
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        double[] result = null;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT)) {
+                    String[] fields = line.substring(RESULT.length()).split(" ");
+                    result = new double[]{Double.parseDouble(fields[0]), Double.parseDouble(fields[1])};
+                }
+            }
+        }
+        int exit = process.waitFor();
+        if (exit != 0 || result == null) {
+            throw new IOException("Benchmark " + name + " failed with exit code " + exit);
+        }
+        return result;
+    }
+
+    private static void runChild(String name) throws InterruptedException, ExecutionException {
+        ScheduledExecutorService engine = Race.newEngine();
+        Race race = new Race(50, null, engine, null);
+        race.setLaneCount(8);
+        // Queued behind setLaneCount, so it sees the full field
+        double[] result = engine.submit(() -> measure(create(name, race))).get();
+        engine.shutdownNow();
+        System.out.println(RESULT + result[0] + " " + result[1]);
+        if (sink == 42) System.out.println();
+    }
+
+    private static Benchmark create(String name, Race race) {
+        BettingSystem betting = race.getBettingSystem();
+        HorseGUI[] field = race.getHorses().toArray(new HorseGUI[0]);
+        HorseGUI horse = field[0];
+
+        if (name.startsWith("statistics.")) {
+            int size = Integer.parseInt(name.substring(name.lastIndexOf('.') + 1));
+            Statistics statistics = statisticsWithHistory(horse, size);
+            if (name.startsWith("statistics.query.")) {
+                // Running totals, so these should not grow with the history
+                return () -> (long) (statistics.getAverageSpeed(horse)
+                    + statistics.getWinRatio(horse) + statistics.getConfidenceTrend(horse));
+            }
+            if (name.startsWith("statistics.history.")) {
+                // Walks every race the horse has run, as the performance report does
+                return () -> {
+                    double total = 0;
+                    for (RaceStats stats : statistics.getRaceHistory(horse)) {
+                        total += stats.getFinishingTime();
+                    }
+                    return (long) total;
+                };
+            }
+            // Reads the whole race table, as an export does
+            return () -> {
+                double[] total = new double[1];
+                try {
+                    Statistics.RecordedRaces recorded = statistics.getRecordedRaces();
+                    recorded.visit(0, recorded.size(), (row, horseId, horseName, trackName, weatherCondition,
+                            finishingTime, averageSpeed, initialConfidence, finalConfidence, winner) ->
+                        total[0] += finishingTime);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                return (long) total[0];
+            };
+        }
+
+        switch (name) {
+            case "engine.race": {
+                RaceField raceField = RaceField.of(race.getHorses(), race.getTrack(), race.getRaceLength());
+                RaceSimulator simulator = new RaceSimulator(raceField, new SplittableRandom(42));
+                return () -> simulator.run() + simulator.getTicks();
+            }
+            case "race.tick":
+                return () -> {
+                    // A new race only once the last has finished, not one per tick
+                    if (!race.isRaceRunning()) race.beginRaceOnEngine();
+                    race.updateRace();
+                    return race.getHorses().get(0).getDistanceTravelled();
+                };
+            case "render.printRace":
+                return () -> {
+                    race.printRace();
+                    return 1;
+                };
+            case "odds.calculateOdds":
+                return () -> {
+                    betting.calculateOdds(field, race.getTrack());
+                    return (long) betting.getOdds(horse);
+                };
+            case "odds.inRunning":
+                return () -> {
+                    betting.updateOddsDuringRace(field, race.getTrack());
+                    return (long) betting.getOdds(horse);
+                };
+            default:
+                throw new IllegalArgumentException("No benchmark " + name);
+        }
+    }
+
+    private static Statistics statisticsWithHistory(HorseGUI horse, int size) {
+        Statistics statistics = new Statistics();
+        SplittableRandom random = new SplittableRandom(size);
+        for (int i = 0; i < size; i++) {
+            statistics.recordRace(horse, new RaceStats("Oval", "Clear", 10 + random.nextDouble(),
+                5 + random.nextDouble(), 0.7, 0.6 + random.nextDouble() * 0.2, random.nextInt(4) == 0));
+        }
+        return statistics;
+    }
+
+    /**
+     * @return the mean and best nanoseconds per operation over the rounds
+     */
+    private static double[] measure(Benchmark benchmark) {
+        runFor(benchmark, WARMUP_NANOS);
+        double total = 0;
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            double nanosPerOp = runFor(benchmark, ROUND_NANOS);
+            total += nanosPerOp;
+            best = Math.min(best, nanosPerOp);
+        }
+        return new double[]{total / ROUNDS, best};
+    }
+
+    /**
+     * Runs the benchmark in batches until the time is up
+     *
+     * @return nanoseconds per operation
+     */
+    private static double runFor(Benchmark benchmark, long nanos) {
+        long operations = 0;
+        long batch = 1;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (long i = 0; i < batch; i++) {
+                sink += benchmark.run();
+            }
+            operations += batch;
+            batch = Math.min(batch * 2, 1 << 16);
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+        return (double) elapsed / operations;
+    }
+
+    private static void writeResults(Path file, Map<String, double[]> results) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(CSV_HEADER);
+        for (Map.Entry<String, double[]> entry : results.entrySet()) {
+            lines.add(entry.getKey() + "," + entry.getValue()[0] + "," + entry.getValue()[1]);
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, double[]> readResults(Path file) throws IOException {
+        Map<String, double[]> results = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.equals(CSV_HEADER)) continue;
+            String[] fields = line.split(",");
+            results.put(fields[0], new double[]{Double.parseDouble(fields[1]), Double.parseDouble(fields[2])});
+        }
+        return results;
+    }
+
+    /**
+     * Prints each benchmark's change against the baseline
+     *
+     * @return false if any mean got slower by more than the threshold
+     */
+    private static boolean compare(Map<String, double[]> baseline, Map<String, double[]> results,
+                                   double threshold) {
+        boolean passed = true;
+        System.out.printf("%n%-26s %14s %14s %9s%n", "benchmark", "baseline ns/op", "mean ns/op", "change");
+        for (Map.Entry<String, double[]> entry : results.entrySet()) {
+            double[] before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-26s %14s %14.1f %9s%n", entry.getKey(), "-", entry.getValue()[0], "new");
+                continue;
+            }
+            double change = entry.getValue()[0] / before[0] - 1.0;
+            boolean regressed = change > threshold;
+            passed &= !regressed;
+            System.out.printf("%-26s %14.1f %14.1f %+8.1f%% %s%n", entry.getKey(), before[0], entry.getValue()[0],
+                change * 100, regressed ? "REGRESSED" : "");
+        }
+        return passed;
+    }
+}
@@ -0,0 +1,122 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the simulator's work, so a recording
+ * can line GC pauses and EDT stalls up with the race, odds or settlement
+ * that was running at the time.
+ *
+ * Callers check shouldCommit() before filling in fields, so a disabled
+ * event costs little more than the begin and end timestamps.
+ */
+public final class SimulatorEvents {
+    private static final String CATEGORY = "Horse Race Simulator";
+
+    private SimulatorEvents() {
+    }
+
+    @Name("horserace.RaceStart")
+    @Label("Race Start")
+    @Category({CATEGORY, "Race"})
+    @StackTrace(false)
+    public static class RaceStart extends Event {
+        @Label("Field Size")
+        public int fieldSize;
+        @Label("Race Length")
+        public int raceLength;
+        @Label("Track Shape")
+        public String trackShape;
+        @Label("Weather")
+        public String weather;
+    }
+
+    @Name("horserace.RaceFinish")
+    @Label("Race Finish")
+    @Category({CATEGORY, "Race"})
+    @StackTrace(false)
+    public static class RaceFinish extends Event {
+        @Label("Field Size")
+        public int fieldSize;
+        @Label("Track Shape")
+        public String trackShape;
+        @Label("Weather")
+        public String weather;
+        @Label("Ticks")
+        public int ticks;
+        @Label("Winner")
+        @Description("Winning horse, empty if every horse fell")
+        public String winner;
+        @Label("Race Seconds")
+        public double raceSeconds;
+    }
+
+    @Name("horserace.RaceTick")
+    @Label("Race Tick")
+    @Category({CATEGORY, "Race"})
+    @StackTrace(false)
+    public static class RaceTick extends Event {
+        @Label("Tick")
+        public int tick;
+        @Label("Field Size")
+        public int fieldSize;
+        @Label("Track Shape")
+        public String trackShape;
+        @Label("Weather")
+        public String weather;
+    }
+
+    @Name("horserace.OddsCalculation")
+    @Label("Odds Calculation")
+    @Category({CATEGORY, "Betting"})
+    @StackTrace(false)
+    public static class OddsCalculation extends Event {
+        @Label("Kind")
+        @Description("pre-race or in-running")
+        public String kind;
+        @Label("Field Size")
+        public int fieldSize;
+        @Label("Track Shape")
+        public String trackShape;
+        @Label("Weather")
+        public String weather;
+    }
+
+    @Name("horserace.BetPlacement")
+    @Label("Bet Placement")
+    @Category({CATEGORY, "Betting"})
+    @StackTrace(false)
+    public static class BetPlacement extends Event {
+        @Label("Bets")
+        public int bets;
+        @Label("Accepted")
+        public boolean accepted;
+        @Label("Total Stake")
+        public double totalStake;
+        @Label("Field Size")
+        public int fieldSize;
+    }
+
+    @Name("horserace.Settlement")
+    @Label("Settlement")
+    @Category({CATEGORY, "Betting"})
+    @StackTrace(false)
+    public static class Settlement extends Event {
+        @Label("Field Size")
+        public int fieldSize;
+        @Label("Track Shape")
+        public String trackShape;
+        @Label("Weather")
+        public String weather;
+        @Label("Winner")
+        @Description("Winning horse, empty if every horse fell")
+        public String winner;
+        @Label("Total Staked")
+        public double totalStaked;
+        @Label("Paid Out")
+        public double paidOut;
+    }
+}
@@ -0,0 +1,166 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.swing.SwingUtilities;
+
+/**
+ * Latency histograms for the simulator's hot paths, published over JMX
+ * as HorseRaceSimulator:type=SimulatorMetrics.
+ *
+ * Each histogram shows up as Count, MeanMicros, P50Micros, P99Micros,
+ * P999Micros and MaxMicros attributes prefixed with its name, e.g.
+ * TickP99Micros, and the reset operation clears them all.
+ */
+public class SimulatorMetrics implements DynamicMBean {
+    public static final LatencyHistogram TICK = new LatencyHistogram("Tick");
+    public static final LatencyHistogram RENDER = new LatencyHistogram("Render");
+    public static final LatencyHistogram ODDS = new LatencyHistogram("Odds");
+    public static final LatencyHistogram SETTLEMENT = new LatencyHistogram("Settlement");
+    public static final LatencyHistogram STATISTICS_VIEW = new LatencyHistogram("StatisticsView");
+    public static final LatencyHistogram EDT_LAG = new LatencyHistogram("EdtLag");
+
+    private static final LatencyHistogram[] ALL = {TICK, RENDER, ODDS, SETTLEMENT, STATISTICS_VIEW, EDT_LAG};
+    private static final String[] STATS = {"Count", "MeanMicros", "P50Micros", "P99Micros", "P999Micros", "MaxMicros"};
+    private static final String OBJECT_NAME = "HorseRaceSimulator:type=SimulatorMetrics";
+
+    private static boolean registered;
+    private static ScheduledExecutorService edtProbe;
+
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+
+    private SimulatorMetrics() {
+        for (LatencyHistogram histogram : ALL) {
+            histograms.put(histogram.getName(), histogram);
+        }
+    }
+
+    /**
+     * Registers the MBean with the platform MBean server, once
+     */
+    public static synchronized void register() {
+        if (registered) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(new SimulatorMetrics(), new ObjectName(OBJECT_NAME));
+            registered = true;
+        } catch (JMException e) {
+            System.err.println("Could not register simulator metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Measures how long the Swing event thread takes to get round to a
+     * task posted to it, every periodMillis
+     */
+    public static synchronized void startEdtLagProbe(long periodMillis) {
+        if (edtProbe != null) return;
+        edtProbe = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "edt-lag-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        edtProbe.scheduleAtFixedRate(() -> {
+            long posted = System.nanoTime();
+            SwingUtilities.invokeLater(() -> EDT_LAG.recordSince(posted));
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static void resetAll() {
+        for (LatencyHistogram histogram : ALL) {
+            histogram.reset();
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        for (String stat : STATS) {
+            if (attribute.endsWith(stat)) {
+                LatencyHistogram histogram = histograms.get(attribute.substring(0, attribute.length() - stat.length()));
+                if (histogram != null) {
+                    return read(histogram, stat);
+                }
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    private static Object read(LatencyHistogram histogram, String stat) {
+        switch (stat) {
+            case "Count":
+                return histogram.getCount();
+            case "MeanMicros":
+                return histogram.getMean() / 1000.0;
+            case "P50Micros":
+                return histogram.getPercentile(0.5) / 1000.0;
+            case "P99Micros":
+                return histogram.getPercentile(0.99) / 1000.0;
+            case "P999Micros":
+                return histogram.getPercentile(0.999) / 1000.0;
+            default:
+                return histogram.getMax() / 1000.0;
+        }
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Unknown names are left out, as the DynamicMBean contract allows
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if ("reset".equals(actionName)) {
+            resetAll();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName), "No operation " + actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : histograms.keySet()) {
+            for (String stat : STATS) {
+                String type = stat.equals("Count") ? "long" : "double";
+                attributes.add(new MBeanAttributeInfo(name + stat, type, name + " " + stat, true, false, false));
+            }
+        }
+        MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Clears every histogram",
+            new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "Horse race simulator latencies",
+            attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[]{reset}, null);
+    }
+}
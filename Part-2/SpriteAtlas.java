@@ -0,0 +1,190 @@
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+/**
+ * Every horse sprite the track can show, baked into one image.
+ *
+ * There is one sprite for each coat, saddle and horseshoe combination,
+ * standing and fallen, all drawn once at a fixed size. Drawing a horse
+ * is then a single sub-image blit from the atlas, which is kept in a
+ * VolatileImage so the blit can stay in video memory.
+ */
+public class SpriteAtlas {
+    public static final String[] COATS = {"Brown", "Black", "Grey", "White", "Chestnut"};
+    public static final String[] SADDLES = {"Standard", "Racing", "Lightweight", "Heavy"};
+    public static final String[] SHOES = {"Standard", "Lightweight", "Heavy", "Racing"};
+
+    private static final Color[] COAT_COLOURS = {
+        new Color(101, 67, 33), new Color(30, 30, 30), new Color(128, 128, 128),
+        new Color(225, 225, 220), new Color(149, 69, 33)
+    };
+    private static final Color[] SADDLE_COLOURS = {
+        new Color(120, 20, 20), new Color(20, 60, 160), new Color(230, 200, 40), new Color(60, 40, 20)
+    };
+    private static final Color[] SHOE_COLOURS = {
+        new Color(160, 160, 160), new Color(220, 220, 240), new Color(70, 70, 70), new Color(230, 170, 30)
+    };
+    private static final int COLUMNS = 16;
+    private static final int SPRITES = COATS.length * SADDLES.length * SHOES.length * 2;
+
+    private final int spriteWidth;
+    private final int spriteHeight;
+    private final BufferedImage baked;
+    private VolatileImage atlas;
+
+    public SpriteAtlas(int spriteHeight) {
+        this.spriteHeight = Math.max(4, spriteHeight);
+        this.spriteWidth = this.spriteHeight * 3 / 2;
+        int rows = (SPRITES + COLUMNS - 1) / COLUMNS;
+        this.baked = new BufferedImage(COLUMNS * spriteWidth, rows * this.spriteHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = baked.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            for (int coat = 0; coat < COATS.length; coat++) {
+                for (int saddle = 0; saddle < SADDLES.length; saddle++) {
+                    for (int shoe = 0; shoe < SHOES.length; shoe++) {
+                        for (int down = 0; down < 2; down++) {
+                            int index = index(coat, saddle, shoe, down == 1);
+                            bake(g, (index % COLUMNS) * spriteWidth, (index / COLUMNS) * this.spriteHeight,
+                                coat, saddle, shoe, down == 1);
+                        }
+                    }
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    public int getSpriteWidth() {
+        return spriteWidth;
+    }
+
+    public int getSpriteHeight() {
+        return spriteHeight;
+    }
+
+    /**
+     * The atlas to draw from this frame. Call once per frame; the
+     * VolatileImage is recreated or refilled if it was lost.
+     *
+     * @param configuration the target's configuration, or null to use
+     *                      the plain in-memory image
+     */
+    public Image validImage(GraphicsConfiguration configuration) {
+        if (configuration == null) return baked;
+        int state = atlas == null ? VolatileImage.IMAGE_INCOMPATIBLE : atlas.validate(configuration);
+        if (state == VolatileImage.IMAGE_INCOMPATIBLE) {
+            atlas = configuration.createCompatibleVolatileImage(baked.getWidth(), baked.getHeight(),
+                Transparency.TRANSLUCENT);
+        }
+        if (state != VolatileImage.IMAGE_OK || atlas.contentsLost()) {
+            Graphics2D g = atlas.createGraphics();
+            try {
+                g.setComposite(AlphaComposite.Src);
+                g.drawImage(baked, 0, 0, null);
+            } finally {
+                g.dispose();
+            }
+        }
+        return atlas;
+    }
+
+    public boolean contentsLost() {
+        return atlas != null && atlas.contentsLost();
+    }
+
+    /**
+     * Blits the horse's sprite with its top-left corner at x, y
+     */
+    public void draw(Graphics2D g, Image image, HorseGUI horse, boolean fallen, int x, int y) {
+        int index = index(indexOf(COATS, horse.getCoatColor()), indexOf(SADDLES, horse.getSaddle()),
+            indexOf(SHOES, horse.getHorseshoes()), fallen);
+        int sourceX = (index % COLUMNS) * spriteWidth;
+        int sourceY = (index / COLUMNS) * spriteHeight;
+        g.drawImage(image, x, y, x + spriteWidth, y + spriteHeight,
+            sourceX, sourceY, sourceX + spriteWidth, sourceY + spriteHeight, null);
+    }
+
+    private static int index(int coat, int saddle, int shoe, boolean fallen) {
+        return (((coat * SADDLES.length + saddle) * SHOES.length + shoe) << 1) | (fallen ? 1 : 0);
+    }
+
+    private static int indexOf(String[] options, String value) {
+        for (int i = 0; i < options.length; i++) {
+            if (options[i].equals(value)) return i;
+        }
+        return 0;
+    }
+
+    private void bake(Graphics2D g, int left, int top, int coat, int saddle, int shoe, boolean fallen) {
+        Graphics2D sprite = (Graphics2D) g.create(left, top, spriteWidth, spriteHeight);
+        try {
+            double w = spriteWidth;
+            double h = spriteHeight;
+            if (fallen) {
+                // Lying on its side, faded
+                sprite.rotate(Math.PI / 2.2, w / 2, h / 2);
+                sprite.scale(0.8, 0.8);
+                sprite.translate(w * 0.1, h * 0.1);
+                sprite.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.6f));
+            }
+
+            Color body = COAT_COLOURS[coat];
+            Color outline = body.getRed() + body.getGreen() + body.getBlue() > 500 ? Color.DARK_GRAY : body.darker();
+            sprite.setStroke(new BasicStroke((float) Math.max(1, h / 16)));
+
+            // Legs with shoes at the hooves
+            double legTop = h * 0.55;
+            double legBottom = h * 0.9;
+            double legWidth = Math.max(1, w * 0.05);
+            for (double legX : new double[]{0.22, 0.32, 0.62, 0.72}) {
+                sprite.setColor(body);
+                sprite.fill(new Rectangle2D.Double(w * legX, legTop, legWidth, legBottom - legTop));
+                sprite.setColor(SHOE_COLOURS[shoe]);
+                sprite.fill(new Rectangle2D.Double(w * legX - legWidth * 0.2, legBottom,
+                    legWidth * 1.4, h * 0.06));
+            }
+
+            // Tail, body, neck and head
+            GeneralPath tail = new GeneralPath();
+            tail.moveTo(w * 0.18, h * 0.38);
+            tail.quadTo(w * 0.02, h * 0.42, w * 0.06, h * 0.72);
+            sprite.setColor(outline);
+            sprite.draw(tail);
+
+            Ellipse2D.Double torso = new Ellipse2D.Double(w * 0.15, h * 0.3, w * 0.65, h * 0.32);
+            sprite.setColor(body);
+            sprite.fill(torso);
+            GeneralPath neck = new GeneralPath();
+            neck.moveTo(w * 0.68, h * 0.38);
+            neck.lineTo(w * 0.82, h * 0.08);
+            neck.lineTo(w * 0.92, h * 0.12);
+            neck.lineTo(w * 0.8, h * 0.45);
+            neck.closePath();
+            sprite.fill(neck);
+            sprite.fill(new Ellipse2D.Double(w * 0.8, h * 0.05, w * 0.18, h * 0.16));
+            sprite.setColor(outline);
+            sprite.draw(torso);
+
+            // Saddle on the back
+            sprite.setColor(SADDLE_COLOURS[saddle]);
+            sprite.fill(new RoundRectangle2D.Double(w * 0.38, h * 0.26, w * 0.2, h * 0.12,
+                w * 0.05, h * 0.05));
+        } finally {
+            sprite.dispose();
+        }
+    }
+}
@@ -1,81 +1,259 @@
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class Statistics {
-    private Map<HorseGUI, List<RaceStats>> horseStats;
+    private RaceStatsTable races; // Every race recorded, oldest first
+    private IntObjectMap<HorseRecord> horseStats; // By horse id
     private Map<String, Double> trackRecords;
     
     public Statistics() {
-        this.horseStats = new HashMap<>();
+        this.races = new RaceStatsTable();
+        this.horseStats = new IntObjectMap<>();
         this.trackRecords = new HashMap<>();
     }
+
+    /**
+     * A horse's rows in the race table plus running totals, so the
+     * summary figures never have to walk its history
+     */
+    private static class HorseRecord {
+        String name;
+        int[] rows = new int[8];
+        int count;
+        int wins;
+        double totalSpeed;
+
+        void add(int row, RaceStats stats) {
+            add(row, stats.getAverageSpeed(), stats.isWinner());
+        }
+
+        void add(int row, double averageSpeed, boolean winner) {
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            rows[count++] = row;
+            totalSpeed += averageSpeed;
+            if (winner) wins++;
+        }
+    }
     
-    public void recordRace(HorseGUI horse, RaceStats stats) {
-        if (!horseStats.containsKey(horse)) {
-            horseStats.put(horse, new ArrayList<>());
+    public synchronized void recordRace(HorseGUI horse, RaceStats stats) {
+        HorseRecord record = horseStats.get(horse.getId());
+        if (record == null) {
+            record = new HorseRecord();
+            horseStats.put(horse.getId(), record);
         }
-        horseStats.get(horse).add(stats);
+        record.name = horse.getName();
+        record.add(races.add(horse.getId(), stats), stats);
         
         // Update track record if this is the fastest time
         String trackKey = stats.getTrackName() + "_" + stats.getWeatherCondition();
-        double currentTime = stats.getFinishingTime();
-        if (!trackRecords.containsKey(trackKey) || currentTime < trackRecords.get(trackKey)) {
+        updateTrackRecord(trackKey, stats.getFinishingTime());
+    }
+
+    private void updateTrackRecord(String trackKey, double currentTime) {
+        Double record = trackRecords.get(trackKey);
+        if (record == null || currentTime < record) {
             trackRecords.put(trackKey, currentTime);
         }
     }
-    
-    public double getAverageSpeed(HorseGUI horse) {
-        List<RaceStats> stats = horseStats.get(horse);
-        if (stats == null || stats.isEmpty()) {
-            return 0.0;
+
+    /**
+     * Appends a batch of races read from outside, in order. Horse ids in
+     * the batch are translated through horseIds; names are by the
+     * translated id.
+     */
+    synchronized void importRaces(RaceStatsTable batch, IntIntMap horseIds, IntObjectMap<String> horseNames) {
+        races.ensureCapacity(races.size() + batch.size());
+        // The batch has its own name codes; translate each once, not per row
+        int names = 0;
+        for (int row = 0; row < batch.size(); row++) {
+            names = Math.max(names, Math.max(batch.getTrackCode(row), batch.getWeatherCode(row)) + 1);
         }
-        
-        double totalSpeed = 0;
-        for (RaceStats stat : stats) {
-            totalSpeed += stat.getAverageSpeed();
+        int[] codes = new int[names];
+        Arrays.fill(codes, -1);
+        // Fastest times by track and weather code, merged into trackRecords at the end
+        double[][] fastest = new double[names][names];
+        for (double[] times : fastest) {
+            Arrays.fill(times, Double.NaN);
+        }
+
+        HorseRecord record = null;
+        int recordId = -1;
+        for (int row = 0; row < batch.size(); row++) {
+            int horseId = horseIds.get(batch.getHorseId(row), batch.getHorseId(row));
+            if (horseId != recordId || record == null) {
+                record = horseStats.get(horseId);
+                if (record == null) {
+                    record = new HorseRecord();
+                    record.name = horseNames.get(horseId);
+                    horseStats.put(horseId, record);
+                }
+                recordId = horseId;
+            }
+            int track = batch.getTrackCode(row);
+            int weather = batch.getWeatherCode(row);
+            if (codes[track] < 0) codes[track] = races.codeOf(batch.nameOf(track));
+            if (codes[weather] < 0) codes[weather] = races.codeOf(batch.nameOf(weather));
+
+            double averageSpeed = batch.getAverageSpeed(row);
+            boolean winner = batch.isWinner(row);
+            record.add(races.add(horseId, codes[track], codes[weather], batch.getFinishingTime(row), averageSpeed,
+                batch.getInitialConfidence(row), batch.getFinalConfidence(row), winner), averageSpeed, winner);
+
+            double finishingTime = batch.getFinishingTime(row);
+            if (!(finishingTime >= fastest[track][weather])) {
+                fastest[track][weather] = finishingTime;
+            }
+        }
+        for (int track = 0; track < names; track++) {
+            for (int weather = 0; weather < names; weather++) {
+                if (!Double.isNaN(fastest[track][weather])) {
+                    updateTrackRecord(batch.nameOf(track) + "_" + batch.nameOf(weather), fastest[track][weather]);
+                }
+            }
         }
-        return totalSpeed / stats.size();
     }
     
-    public double getWinRatio(HorseGUI horse) {
-        List<RaceStats> stats = horseStats.get(horse);
-        if (stats == null || stats.isEmpty()) {
+    public synchronized double getAverageSpeed(HorseGUI horse) {
+        HorseRecord record = horseStats.get(horse.getId());
+        if (record == null || record.count == 0) {
             return 0.0;
         }
-        
-        int wins = 0;
-        for (RaceStats stat : stats) {
-            if (stat.isWinner()) {
-                wins++;
-            }
+        return record.totalSpeed / record.count;
+    }
+    
+    public synchronized double getWinRatio(HorseGUI horse) {
+        HorseRecord record = horseStats.get(horse.getId());
+        if (record == null || record.count == 0) {
+            return 0.0;
         }
-        return (double) wins / stats.size();
+        return (double) record.wins / record.count;
     }
     
-    public double getTrackRecord(String trackName, String weatherCondition) {
+    public synchronized double getTrackRecord(String trackName, String weatherCondition) {
         String key = trackName + "_" + weatherCondition;
         return trackRecords.getOrDefault(key, 0.0);
     }
     
-    public List<RaceStats> getRaceHistory(HorseGUI horse) {
-        return horseStats.getOrDefault(horse, new ArrayList<>());
+    /**
+     * The horse's races so far, oldest first. Rows are read from the race
+     * table only as they are accessed.
+     */
+    public synchronized List<RaceStats> getRaceHistory(HorseGUI horse) {
+        HorseRecord record = horseStats.get(horse.getId());
+        int[] rows = record != null ? record.rows : new int[0];
+        int count = record != null ? record.count : 0;
+        return new AbstractList<RaceStats>() {
+            @Override
+            public RaceStats get(int index) {
+                if (index < 0 || index >= count) {
+                    throw new IndexOutOfBoundsException("Race " + index + " of " + count);
+                }
+                return getRecordedRace(rows[index]);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
     }
     
-    public double getConfidenceTrend(HorseGUI horse) {
-        List<RaceStats> stats = horseStats.get(horse);
-        if (stats == null || stats.size() < 2) {
+    public synchronized double getConfidenceTrend(HorseGUI horse) {
+        HorseRecord record = horseStats.get(horse.getId());
+        if (record == null || record.count < 2) {
             return 0.0;
         }
         
-        // Calculate the trend in confidence changes
-        double totalChange = 0;
-        for (int i = 1; i < stats.size(); i++) {
-            totalChange += stats.get(i).getFinalConfidence() - 
-                         stats.get(i-1).getFinalConfidence();
+        // The changes between consecutive races add up to last minus first
+        double first = races.getFinalConfidence(record.rows[0]);
+        double last = races.getFinalConfidence(record.rows[record.count - 1]);
+        return (last - first) / (record.count - 1);
+    }
+
+    /**
+     * Number of races recorded for all horses together
+     */
+    public synchronized int getRecordedRaceCount() {
+        return races.size();
+    }
+
+    /**
+     * One recorded race by row number, 0 being the oldest
+     */
+    public synchronized RaceStats getRecordedRace(int row) {
+        return races.get(row);
+    }
+
+    /**
+     * Name of the horse that ran a recorded race, as it was last known
+     */
+    public synchronized String getRecordedHorseName(int row) {
+        HorseRecord record = horseStats.get(races.getHorseId(row));
+        return record != null ? record.name : "";
+    }
+    
+    /**
+     * Receives recorded races one at a time, straight from the columns
+     */
+    public interface RecordedRaceVisitor {
+        void visit(int row, int horseId, String horseName, String trackName, String weatherCondition,
+                   double finishingTime, double averageSpeed, double initialConfidence,
+                   double finalConfidence, boolean winner) throws IOException;
+    }
+
+    /**
+     * The races recorded so far, as they are now. Reading it takes no
+     * lock, so an export can take as long as it likes without holding up
+     * races being recorded. Races recorded meanwhile are left out, and
+     * final confidences adjusted by recordBettingStats meanwhile keep
+     * the value they had.
+     */
+    public RecordedRaces getRecordedRaces() {
+        IntObjectMap<String> names = new IntObjectMap<>();
+        RaceStatsTable rows;
+        synchronized (this) {
+            horseStats.forEach((horseId, record) -> names.put(horseId, record.name));
+            rows = races.view();
+        }
+        return new RecordedRaces(rows, names);
+    }
+
+    public static class RecordedRaces {
+        private final RaceStatsTable rows;
+        private final IntObjectMap<String> horseNames;
+
+        private RecordedRaces(RaceStatsTable rows, IntObjectMap<String> horseNames) {
+            this.rows = rows;
+            this.horseNames = horseNames;
+        }
+
+        public int size() {
+            return rows.size();
+        }
+
+        /**
+         * Passes the races in rows from (inclusive) to to (exclusive) to
+         * the visitor without creating a RaceStats for each
+         *
+         * @return the row after the last one visited
+         */
+        public int visit(int from, int to, RecordedRaceVisitor visitor) throws IOException {
+            int end = Math.min(to, rows.size());
+            for (int row = from; row < end; row++) {
+                String name = horseNames.get(rows.getHorseId(row));
+                visitor.visit(row, rows.getHorseId(row), name != null ? name : "",
+                    rows.getTrackName(row), rows.getWeatherCondition(row), rows.getFinishingTime(row),
+                    rows.getAverageSpeed(row), rows.getInitialConfidence(row), rows.getFinalConfidence(row),
+                    rows.isWinner(row));
+            }
+            return Math.max(from, end);
         }
-        return totalChange / (stats.size() - 1);
     }
     
     public String generatePerformanceReport(HorseGUI horse) {
@@ -98,69 +276,15 @@ public class Statistics {
         return report.toString();
     }
 
-    public void recordBettingStats(HorseGUI winningHorse, double totalBets, double payout) {
+    public synchronized void recordBettingStats(HorseGUI winningHorse, double totalBets, double payout) {
         // Update the horse's race stats with betting information
-        List<RaceStats> horseStats = this.horseStats.get(winningHorse);
-        if (horseStats != null && !horseStats.isEmpty()) {
-            RaceStats lastRace = horseStats.get(horseStats.size() - 1);
+        HorseRecord record = this.horseStats.get(winningHorse.getId());
+        if (record != null && record.count > 0) {
+            int lastRace = record.rows[record.count - 1];
             // We can store betting information in the RaceStats class if needed
             // For now, we'll just update the confidence based on the betting outcome
             double confidenceChange = (payout > 0) ? 0.1 : -0.1;
-            lastRace.setFinalConfidence(lastRace.getFinalConfidence() + confidenceChange);
+            races.setFinalConfidence(lastRace, races.getFinalConfidence(lastRace) + confidenceChange);
         }
     }
 }
-
-class RaceStats {
-    private String trackName;
-    private String weatherCondition;
-    private double finishingTime;
-    private double averageSpeed;
-    private double initialConfidence;
-    private double finalConfidence;
-    private boolean isWinner;
-    
-    public RaceStats(String trackName, String weatherCondition, double finishingTime,
-                    double averageSpeed, double initialConfidence, double finalConfidence,
-                    boolean isWinner) {
-        this.trackName = trackName;
-        this.weatherCondition = weatherCondition;
-        this.finishingTime = finishingTime;
-        this.averageSpeed = averageSpeed;
-        this.initialConfidence = initialConfidence;
-        this.finalConfidence = finalConfidence;
-        this.isWinner = isWinner;
-    }
-    
-    public String getTrackName() {
-        return trackName;
-    }
-    
-    public String getWeatherCondition() {
-        return weatherCondition;
-    }
-    
-    public double getFinishingTime() {
-        return finishingTime;
-    }
-    
-    public double getAverageSpeed() {
-        return averageSpeed;
-    }
-    
-    public double getInitialConfidence() {
-        return initialConfidence;
-    }
-    
-    public double getFinalConfidence() {
-        return finalConfidence;
-    }
-    
-    public boolean isWinner() {
-        return isWinner;
-    }
-    
-    public void setFinalConfidence(double finalConfidence) {
-        this.finalConfidence = finalConfidence;
-    }
-} 
\ No newline at end of file
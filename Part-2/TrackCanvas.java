@@ -0,0 +1,237 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.VolatileImage;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * Graphical view of the race track.
+ *
+ * Follows the race through its event bus and draws at the display rate,
+ * sliding each horse between the positions of the last two ticks so
+ * motion is smooth rather than one jump per tick. The track itself is
+ * drawn once into a cached VolatileImage, horses come from a pre-baked
+ * SpriteAtlas, and each frame is composed in a VolatileImage back buffer,
+ * so a frame is only blits whatever the track length or field size.
+ */
+public class TrackCanvas extends JComponent {
+    private static final long serialVersionUID = 1L;
+    private static final int FRAME_MILLIS = 16;
+    private static final int MARGIN = 24;
+    private static final Color GRASS = new Color(46, 125, 50);
+    private static final Color LANE_LIGHT = new Color(196, 164, 120);
+    private static final Color LANE_DARK = new Color(181, 149, 105);
+
+    private final Race race;
+    private final RaceEventBus.Subscription events;
+    private final RaceEvent event = new RaceEvent();
+    private final Timer frameTimer;
+
+    // Distances at the start and end of the tick being animated, by lane
+    private double[] from = new double[PlacingTable.MAX_LANES];
+    private double[] to = new double[PlacingTable.MAX_LANES];
+    private boolean[] fallen = new boolean[PlacingTable.MAX_LANES];
+    private long tickStartNanos;
+
+    private VolatileImage trackImage;
+    private VolatileImage backBuffer;
+    private int trackImageLanes;
+    private int trackImageLength;
+    private SpriteAtlas sprites;
+
+    public TrackCanvas(Race race) {
+        this.race = race;
+        this.events = race.getEventBus().subscribe();
+        this.frameTimer = new Timer(FRAME_MILLIS, e -> {
+            events.drain(event, this::onRaceEvent, Integer.MAX_VALUE);
+            repaint();
+        });
+        setPreferredSize(new Dimension(600, 300));
+        setOpaque(true);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        frameTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        frameTimer.stop();
+        super.removeNotify();
+    }
+
+    private void onRaceEvent(RaceEvent event) {
+        int lane = event.getLane();
+        switch (event.getType()) {
+            case TICK:
+                if (event.getTick() == 1) {
+                    Arrays.fill(to, 0);
+                    Arrays.fill(fallen, false);
+                }
+                System.arraycopy(to, 0, from, 0, to.length);
+                tickStartNanos = System.nanoTime();
+                break;
+            case MOVE:
+                ensureLane(lane);
+                to[lane] = event.getDistance();
+                break;
+            case FALL:
+                ensureLane(lane);
+                fallen[lane] = true;
+                break;
+            case FINISH:
+                System.arraycopy(to, 0, from, 0, to.length);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void ensureLane(int lane) {
+        if (lane >= to.length) {
+            int size = Math.max(lane + 1, to.length * 2);
+            from = Arrays.copyOf(from, size);
+            to = Arrays.copyOf(to, size);
+            fallen = Arrays.copyOf(fallen, size);
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) return;
+
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration == null) {
+            drawFrame((Graphics2D) g, width, height, false);
+            return;
+        }
+        do {
+            if (backBuffer == null || backBuffer.getWidth() != width || backBuffer.getHeight() != height
+                    || backBuffer.validate(configuration) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                backBuffer = configuration.createCompatibleVolatileImage(width, height);
+            }
+            Graphics2D buffer = backBuffer.createGraphics();
+            try {
+                drawFrame(buffer, width, height, true);
+            } finally {
+                buffer.dispose();
+            }
+            g.drawImage(backBuffer, 0, 0, null);
+        } while (backBuffer.contentsLost() || sprites.contentsLost());
+    }
+
+    private void drawFrame(Graphics2D g, int width, int height, boolean cacheTrack) {
+        List<HorseGUI> horses = race.getHorses();
+        int lanes = Math.max(1, horses.size());
+        int raceLength = Math.max(1, race.getRaceLength());
+
+        if (cacheTrack) {
+            g.drawImage(validTrackImage(width, height, lanes, raceLength), 0, 0, null);
+        } else {
+            drawTrack(g, width, height, lanes, MARGIN);
+        }
+
+        double laneHeight = (double) (height - 2 * MARGIN) / lanes;
+        double unit = (double) (width - 2 * MARGIN) / raceLength;
+        double progress = tickProgress();
+        boolean running = race.isRaceRunning();
+        RaceFrame snapshot = race.getFrame();
+
+        // Sprites are only re-baked when the lane height changes
+        int spriteHeight = (int) Math.max(6, Math.min(laneHeight * 0.9, 48));
+        if (sprites == null || sprites.getSpriteHeight() != spriteHeight) {
+            sprites = new SpriteAtlas(spriteHeight);
+        }
+        Image atlas = sprites.validImage(cacheTrack ? getGraphicsConfiguration() : null);
+        for (int lane = 0; lane < horses.size(); lane++) {
+            HorseGUI horse = horses.get(lane);
+            double distance;
+            boolean down;
+            if (running && lane < to.length) {
+                distance = from[lane] + (to[lane] - from[lane]) * progress;
+                down = fallen[lane];
+            } else if (snapshot != null && lane < snapshot.getLaneCount()) {
+                // Idle, reset or finished: draw the horses where the engine last left them
+                distance = snapshot.getDistance(lane);
+                down = snapshot.hasFallen(lane);
+            } else {
+                distance = horse.getDistanceTravelled();
+                down = horse.hasFallen();
+            }
+            int x = (int) (MARGIN + Math.min(distance, raceLength) * unit) - sprites.getSpriteWidth() / 2;
+            int y = (int) (MARGIN + lane * laneHeight + (laneHeight - spriteHeight) / 2);
+            sprites.draw(g, atlas, horse, down, x, y);
+        }
+    }
+
+    /**
+     * How far through the current tick the animation is, 0 to 1
+     */
+    private double tickProgress() {
+        double elapsed = (System.nanoTime() - tickStartNanos) / 1_000_000.0;
+        return Math.max(0.0, Math.min(1.0, elapsed / race.getTickMillis()));
+    }
+
+    private VolatileImage validTrackImage(int width, int height, int lanes, int raceLength) {
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        boolean stale = trackImage == null || trackImage.getWidth() != width || trackImage.getHeight() != height
+            || trackImageLanes != lanes || trackImageLength != raceLength;
+        int state = stale ? VolatileImage.IMAGE_INCOMPATIBLE : trackImage.validate(configuration);
+        if (state == VolatileImage.IMAGE_INCOMPATIBLE) {
+            trackImage = configuration.createCompatibleVolatileImage(width, height);
+        }
+        if (state != VolatileImage.IMAGE_OK || trackImage.contentsLost()) {
+            Graphics2D g = trackImage.createGraphics();
+            try {
+                drawTrack(g, width, height, lanes, MARGIN);
+            } finally {
+                g.dispose();
+            }
+            trackImageLanes = lanes;
+            trackImageLength = raceLength;
+        }
+        return trackImage;
+    }
+
+    /**
+     * Grass, lanes, start and finish, with margin pixels of grass around
+     * the lanes. Shared with RaceDashboard.
+     */
+    static void drawTrack(Graphics2D g, int width, int height, int lanes, int margin) {
+        g.setColor(GRASS);
+        g.fillRect(0, 0, width, height);
+        double laneHeight = (double) (height - 2 * margin) / lanes;
+        for (int lane = 0; lane < lanes; lane++) {
+            int top = (int) (margin + lane * laneHeight);
+            int bottom = (int) (margin + (lane + 1) * laneHeight);
+            g.setColor(lane % 2 == 0 ? LANE_LIGHT : LANE_DARK);
+            g.fillRect(margin, top, width - 2 * margin, bottom - top);
+            g.setColor(Color.WHITE);
+            g.drawString(String.valueOf(lane + 1), 6, (top + bottom) / 2 + 4);
+        }
+
+        g.setColor(Color.WHITE);
+        g.setStroke(new BasicStroke(2));
+        g.drawLine(margin, margin, margin, height - margin);
+        // Chequered finish line
+        int finishX = width - margin;
+        int square = 6;
+        for (int y = margin, row = 0; y < height - margin; y += square, row++) {
+            g.setColor(row % 2 == 0 ? Color.BLACK : Color.WHITE);
+            g.fillRect(finishX - square, y, square, Math.min(square, height - margin - y));
+            g.setColor(row % 2 == 0 ? Color.WHITE : Color.BLACK);
+            g.fillRect(finishX, y, square, Math.min(square, height - margin - y));
+        }
+    }
+}